@@ -52,6 +52,20 @@ public class DataLocationProvider {
 		else { return null;}
 	}
 
+	/** Get the name of the assembly of the genome that is set.
+	 *
+	 * @return UCSC name of the assembly (e.g., hg38)
+	 */
+	public static String getGenomeAssembly() {
+		if ( getGenome().equals("human")) {
+			return CommonConstants.HUMAN_GENOME_ASSEMBLY_GRCH38;
+		}
+		else if ( getGenome().equals("mouse")) {
+			return CommonConstants.MOUSE_GENOME_ASSEMBLY_GRCH38;
+		}
+		else { return null;}
+	}
+
 	// =-=-=-=-=-=-=-=-=-=-=-=-=
 
 	// =-=-= GENOME ANNOTATION =-=-=
@@ -164,6 +178,24 @@ public class DataLocationProvider {
 		return Paths.get(getDataHome()+"/parquet/hg38/");
 	}
 
+	/** Get a location of the protein translations of the transcripts of an annotation release.
+	 *
+	 * @param assembly - genome assembly (e.g., hg38)
+	 * @param release - annotation release (e.g., Homo_sapiens.GRCh38.90)
+	 * @return path to the Parquet table as String
+	 */
+	public static String getTranscriptTranslationsLocation(String assembly, String release) {
+		return getDataHome()+"parquet/translations/"+assembly+"/"+release;
+	}
+
+	/** Get a location of the checkpoints of the mappings of PDB entries to UniProt isoforms retrieved from PDBe.
+	 *
+	 * @return path to the directory of Parquet checkpoints as String
+	 */
+	public static String getAllIsoformsMappingsLocation() {
+		return getDataHome()+"parquet/pdbe-all-isoforms/";
+	}
+
 	public static String getHomologyModelsLocation() {
 		return getDataHome() +"parquet/"+getGenome()+"-homology-models";
 	}
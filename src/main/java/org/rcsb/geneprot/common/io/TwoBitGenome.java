@@ -0,0 +1,282 @@
+package org.rcsb.geneprot.common.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide, thread-safe reader of reference genomes in the UCSC .2bit format.
+ *
+ * The file is opened once per path: the sequence index is read up front, and the header
+ * (N-blocks and soft-mask blocks) and packed bases of a sequence are memory-mapped on
+ * first use. Slices are decoded straight from the mapped buffers with absolute reads,
+ * so any number of threads can share one instance. Use {@link #getInstance(String)}
+ * instead of creating a TwoBitFacade per call.
+ *
+ * Coordinates are 0-based and half-open, as for TwoBitFacade. Bases in N-blocks are
+ * returned as N, soft-masked bases in lower case.
+ *
+ * @author Yana Valasatava
+ */
+public class TwoBitGenome {
+
+	private static final int SIGNATURE = 0x1A412743;
+	private static final byte[] BASES = {'T', 'C', 'A', 'G'};
+	private static final byte[] MASKED_BASES = {'t', 'c', 'a', 'g'};
+
+	private static final Map<String, TwoBitGenome> instances = new ConcurrentHashMap<>();
+
+	private final File file;
+	private final ByteOrder order;
+	private final Map<String, Long> offsets = new LinkedHashMap<>();
+	private final Map<String, SequenceRecord> records = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the shared reader of a .2bit file. The file is opened and indexed only the first
+	 * time it is requested in the JVM.
+	 */
+	public static TwoBitGenome getInstance(String path) throws IOException {
+
+		String key = new File(path).getCanonicalPath();
+		TwoBitGenome genome = instances.get(key);
+		if (genome == null) {
+			synchronized (instances) {
+				genome = instances.get(key);
+				if (genome == null) {
+					genome = new TwoBitGenome(new File(key));
+					instances.put(key, genome);
+				}
+			}
+		}
+		return genome;
+	}
+
+	public static TwoBitGenome getInstance(File file) throws IOException {
+		return getInstance(file.getPath());
+	}
+
+	/**
+	 * Gets the shared reader of the genome set in {@link DataLocationProvider}.
+	 */
+	public static TwoBitGenome getInstance() throws IOException {
+		return getInstance(DataLocationProvider.getGenomeLocation());
+	}
+
+	private TwoBitGenome(File file) throws IOException {
+
+		this.file = file;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+
+			ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			if (header.getInt(0) == SIGNATURE) {
+				order = ByteOrder.LITTLE_ENDIAN;
+			} else if (Integer.reverseBytes(header.getInt(0)) == SIGNATURE) {
+				order = ByteOrder.BIG_ENDIAN;
+			} else {
+				throw new IOException("Not a .2bit file: " + file);
+			}
+			header.order(order);
+			int version = header.getInt(4);
+			if (version != 0 && version != 1)
+				throw new IOException("Unsupported .2bit version " + version + ": " + file);
+			int sequenceCount = header.getInt(8);
+
+			// the index holds the name and the offset of each sequence (8 bytes offsets in version 1)
+			int offsetSize = version == 0 ? 4 : 8;
+			long position = 16;
+			ByteBuffer buffer = ByteBuffer.allocate(256 + offsetSize).order(order);
+			for (int i = 0; i < sequenceCount; i++) {
+				buffer.clear();
+				buffer.limit(1);
+				readFully(channel, buffer, position);
+				int nameSize = buffer.get(0) & 0xFF;
+				buffer.clear();
+				buffer.limit(nameSize + offsetSize);
+				readFully(channel, buffer, position + 1);
+				String name = new String(buffer.array(), 0, nameSize, StandardCharsets.US_ASCII);
+				long offset = version == 0 ? buffer.getInt(nameSize) & 0xFFFFFFFFL : buffer.getLong(nameSize);
+				offsets.put(name, offset);
+				position += 1 + nameSize + offsetSize;
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public List<String> getSequenceNames() {
+		return Collections.unmodifiableList(new ArrayList<>(offsets.keySet()));
+	}
+
+	public boolean hasSequence(String name) {
+		return offsets.containsKey(name);
+	}
+
+	public int getSequenceLength(String name) throws IOException {
+		return getRecord(name).length;
+	}
+
+	/**
+	 * Gets the bases [start, end) of a sequence.
+	 */
+	public String getSequence(String name, int start, int end) throws IOException {
+		byte[] bases = new byte[end - start];
+		getSequence(name, start, end, bases, 0);
+		return new String(bases, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Writes the bases [start, end) of a sequence as ASCII bytes into a buffer.
+	 *
+	 * @return number of bases written
+	 */
+	public int getSequence(String name, int start, int end, byte[] buffer, int offset) throws IOException {
+
+		SequenceRecord record = getRecord(name);
+		if (start < 0 || end > record.length || start > end)
+			throw new IndexOutOfBoundsException("Region " + start + "-" + end + " is out of " + name + " (length " + record.length + ")");
+
+		ByteBuffer packed = record.packed;
+		for (int i = start; i < end; i++) {
+			int b = packed.get(i >> 2);
+			buffer[offset + i - start] = BASES[(b >> (6 - 2 * (i & 3))) & 0x03];
+		}
+		record.mask(record.maskStarts, record.maskEnds, start, end, buffer, offset, true);
+		record.mask(record.nStarts, record.nEnds, start, end, buffer, offset, false);
+		return end - start;
+	}
+
+	private SequenceRecord getRecord(String name) throws IOException {
+
+		SequenceRecord record = records.get(name);
+		if (record != null)
+			return record;
+
+		Long offset = offsets.get(name);
+		if (offset == null)
+			throw new IllegalArgumentException("Sequence " + name + " is not in " + file);
+
+		synchronized (records) {
+			record = records.get(name);
+			if (record == null) {
+				record = new SequenceRecord(offset);
+				records.put(name, record);
+			}
+		}
+		return record;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int n = channel.read(buffer, position);
+			if (n < 0)
+				throw new IOException("Unexpected end of .2bit file");
+			position += n;
+		}
+	}
+
+	private class SequenceRecord {
+
+		private final int length;
+		private final int[] nStarts;
+		private final int[] nEnds;
+		private final int[] maskStarts;
+		private final int[] maskEnds;
+		private final MappedByteBuffer packed;
+
+		SequenceRecord(long offset) throws IOException {
+
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+
+				ByteBuffer counts = ByteBuffer.allocate(8).order(order);
+				readFully(channel, counts, offset);
+				length = counts.getInt(0);
+				int nBlockCount = counts.getInt(4);
+
+				long position = offset + 8;
+				int[][] nBlocks = readBlocks(channel, position, nBlockCount);
+				position += 8L * nBlockCount;
+
+				counts.clear();
+				counts.limit(4);
+				readFully(channel, counts, position);
+				int maskBlockCount = counts.getInt(0);
+				position += 4;
+				int[][] maskBlocks = readBlocks(channel, position, maskBlockCount);
+				position += 8L * maskBlockCount + 4; // blocks and a reserved word
+
+				nStarts = nBlocks[0];
+				nEnds = nBlocks[1];
+				maskStarts = maskBlocks[0];
+				maskEnds = maskBlocks[1];
+				packed = channel.map(FileChannel.MapMode.READ_ONLY, position, (length + 3) / 4);
+			}
+		}
+
+		private int[][] readBlocks(FileChannel channel, long position, int count) throws IOException {
+
+			ByteBuffer buffer = ByteBuffer.allocate(8 * count).order(order);
+			readFully(channel, buffer, position);
+			int[] starts = new int[count];
+			int[] ends = new int[count];
+			for (int i = 0; i < count; i++) {
+				starts[i] = buffer.getInt(4 * i);
+				ends[i] = starts[i] + buffer.getInt(4 * (count + i));
+			}
+			// blocks are sorted by start in the files written by faToTwoBit, but that is not required
+			Integer[] sorted = new Integer[count];
+			for (int i = 0; i < count; i++)
+				sorted[i] = i;
+			Arrays.sort(sorted, (a, b) -> Integer.compare(starts[a], starts[b]));
+			int[] sortedStarts = new int[count];
+			int[] sortedEnds = new int[count];
+			for (int i = 0; i < count; i++) {
+				sortedStarts[i] = starts[sorted[i]];
+				sortedEnds[i] = ends[sorted[i]];
+			}
+			return new int[][]{sortedStarts, sortedEnds};
+		}
+
+		/**
+		 * Applies the blocks that overlap [start, end) to the decoded bases: N-blocks replace
+		 * the bases with N, mask blocks turn them to lower case.
+		 */
+		void mask(int[] blockStarts, int[] blockEnds, int start, int end, byte[] buffer, int offset, boolean lowerCase) {
+
+			int i = Arrays.binarySearch(blockStarts, start);
+			if (i < 0)
+				i = Math.max(0, -i - 2);
+			for (; i < blockStarts.length && blockStarts[i] < end; i++) {
+				int from = Math.max(blockStarts[i], start);
+				int to = Math.min(blockEnds[i], end);
+				for (int j = from; j < to; j++) {
+					int k = offset + j - start;
+					buffer[k] = lowerCase ? MASKED_BASES[code(buffer[k])] : (byte) 'N';
+				}
+			}
+		}
+	}
+
+	private static int code(byte base) {
+		switch (base) {
+			case 'T': return 0;
+			case 'C': return 1;
+			case 'A': return 2;
+			default: return 3;
+		}
+	}
+}
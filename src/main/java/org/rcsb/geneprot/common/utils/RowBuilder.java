@@ -0,0 +1,87 @@
+package org.rcsb.geneprot.common.utils;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.catalyst.expressions.GenericRowWithSchema;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+
+import java.io.Serializable;
+
+/**
+ * Appends fields to rows of a given schema in a single copy.
+ *
+ * The schema of the output rows is built once, when the builder is created, instead of
+ * being extended field by field for every row as with RowUpdater.addField. A function
+ * should keep a builder for the schema of its input rows and create a new one only when
+ * the input schema changes, see {@link #forSchema(RowBuilder, StructType, StructField...)}.
+ *
+ * @author Yana Valasatava
+ */
+public class RowBuilder implements Serializable {
+
+	private static final long serialVersionUID = -2466513939171545712L;
+
+	private final StructType inputSchema;
+	private final StructType schema;
+
+	/**
+	 * @param inputSchema - the schema of the rows the fields are appended to
+	 * @param fields - the appended fields
+	 */
+	public RowBuilder(StructType inputSchema, StructField... fields) {
+
+		this.inputSchema = inputSchema;
+
+		StructField[] all = new StructField[inputSchema.size() + fields.length];
+		System.arraycopy(inputSchema.fields(), 0, all, 0, inputSchema.size());
+		System.arraycopy(fields, 0, all, inputSchema.size(), fields.length);
+		this.schema = new StructType(all);
+	}
+
+	/**
+	 * Gets a builder appending the fields to rows of the input schema: the given builder if it
+	 * was created for that schema, otherwise a new one.
+	 */
+	public static RowBuilder forSchema(RowBuilder builder, StructType inputSchema, StructField... fields) {
+
+		if (builder != null && builder.accepts(inputSchema))
+			return builder;
+		return new RowBuilder(inputSchema, fields);
+	}
+
+	public boolean accepts(StructType schema) {
+		return schema == inputSchema || inputSchema.equals(schema);
+	}
+
+	/**
+	 * Gets the schema of the built rows.
+	 */
+	public StructType getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Creates a row with the values of a row followed by the values of the appended fields.
+	 */
+	public Row append(Row row, Object... values) {
+		return new GenericRowWithSchema(copy(row, values), schema);
+	}
+
+	/**
+	 * Creates a row without schema with the values of a row followed by the given values.
+	 */
+	public static Row appendValues(Row row, Object... values) {
+		return RowFactory.create(copy(row, values));
+	}
+
+	private static Object[] copy(Row row, Object[] values) {
+
+		int size = row.size();
+		Object[] all = new Object[size + values.length];
+		for (int i = 0; i < size; i++)
+			all[i] = row.get(i);
+		System.arraycopy(values, 0, all, size, values.length);
+		return all;
+	}
+}
@@ -0,0 +1,142 @@
+package org.rcsb.geneprot.gencode.gtf;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.sources.BaseRelation;
+import org.apache.spark.sql.sources.DataSourceRegister;
+import org.apache.spark.sql.sources.RelationProvider;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import scala.collection.JavaConverters;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Spark data source of GTF files with a fixed typed schema ({@link #SCHEMA}):
+ *
+ * <pre>
+ * Dataset&lt;Row&gt; features = sparkSession.read().format("gtf").load(path)
+ *         .filter(col(GTFDataSource.COL_TRANSCRIPT_BIOTYPE).equalTo("protein_coding"));
+ * </pre>
+ *
+ * The file is read from its path by the executors. Filters on the columns and on the biotype attributes
+ * are checked on the raw lines, so the lines that are filtered out are never parsed (see {@link GTFScan}).
+ *
+ * Options: partitions - the minimal number of partitions of the file.
+ *
+ * @author Yana Valasatava
+ */
+public class GTFDataSource implements RelationProvider, DataSourceRegister {
+
+    public static final String FORMAT = "gtf";
+
+    public static final String COL_SEQNAME = "seqname";
+    public static final String COL_SOURCE = "source";
+    public static final String COL_FEATURE = "feature";
+    public static final String COL_START = "start";
+    public static final String COL_END = "end";
+    public static final String COL_SCORE = "score";
+    public static final String COL_STRAND = "strand";
+    public static final String COL_FRAME = "frame";
+    public static final String COL_GENE_ID = "gene_id";
+    public static final String COL_GENE_NAME = "gene_name";
+    public static final String COL_GENE_BIOTYPE = "gene_biotype";
+    public static final String COL_TRANSCRIPT_ID = "transcript_id";
+    public static final String COL_TRANSCRIPT_NAME = "transcript_name";
+    public static final String COL_TRANSCRIPT_BIOTYPE = "transcript_biotype";
+    public static final String COL_EXON_NUMBER = "exon_number";
+    public static final String COL_CCDS_ID = "ccds_id";
+    public static final String COL_PROTEIN_ID = "protein_id";
+    public static final String COL_ATTRIBUTES = "attributes";
+
+    /**
+     * The 8 columns of a GTF line, the common attributes and the map of all attributes.
+     * The biotype columns hold the Ensembl (e.g., transcript_biotype) or the GENCODE (e.g., transcript_type) attribute.
+     */
+    public static final StructType SCHEMA = DataTypes
+            .createStructType(new StructField[] {
+                      DataTypes.createStructField(COL_SEQNAME, DataTypes.StringType, false)
+                    , DataTypes.createStructField(COL_SOURCE, DataTypes.StringType, false)
+                    , DataTypes.createStructField(COL_FEATURE, DataTypes.StringType, false)
+                    , DataTypes.createStructField(COL_START, DataTypes.IntegerType, false)
+                    , DataTypes.createStructField(COL_END, DataTypes.IntegerType, false)
+                    , DataTypes.createStructField(COL_SCORE, DataTypes.DoubleType, true)
+                    , DataTypes.createStructField(COL_STRAND, DataTypes.StringType, false)
+                    , DataTypes.createStructField(COL_FRAME, DataTypes.IntegerType, true)
+                    , DataTypes.createStructField(COL_GENE_ID, DataTypes.StringType, true)
+                    , DataTypes.createStructField(COL_GENE_NAME, DataTypes.StringType, true)
+                    , DataTypes.createStructField(COL_GENE_BIOTYPE, DataTypes.StringType, true)
+                    , DataTypes.createStructField(COL_TRANSCRIPT_ID, DataTypes.StringType, true)
+                    , DataTypes.createStructField(COL_TRANSCRIPT_NAME, DataTypes.StringType, true)
+                    , DataTypes.createStructField(COL_TRANSCRIPT_BIOTYPE, DataTypes.StringType, true)
+                    , DataTypes.createStructField(COL_EXON_NUMBER, DataTypes.IntegerType, true)
+                    , DataTypes.createStructField(COL_CCDS_ID, DataTypes.StringType, true)
+                    , DataTypes.createStructField(COL_PROTEIN_ID, DataTypes.StringType, true)
+                    , DataTypes.createStructField(COL_ATTRIBUTES, DataTypes.createMapType(DataTypes.StringType, DataTypes.StringType), false)
+            });
+
+    @Override
+    public String shortName() {
+        return FORMAT;
+    }
+
+    @Override
+    public BaseRelation createRelation(SQLContext sqlContext, scala.collection.immutable.Map<String, String> parameters) {
+
+        Map<String, String> options = JavaConverters.mapAsJavaMapConverter(parameters).asJava();
+        String path = options.get("path");
+        if (path == null)
+            throw new IllegalArgumentException("The path of the GTF file must be specified");
+
+        int partitions = options.containsKey("partitions")
+                ? Integer.parseInt(options.get("partitions"))
+                : sqlContext.sparkContext().defaultMinPartitions();
+
+        return new GTFRelation(sqlContext, path, partitions);
+    }
+
+    /**
+     * Creates a feature of a row of the data source, with the attributes of the typed columns
+     * selected in the row (and all attributes if the attributes column is selected).
+     */
+    public static GencodeFeature toFeature(Row row) throws GTFParseException {
+
+        GencodeFeature feature = new GencodeFeature();
+        StructType schema = row.schema();
+
+        feature.seqname = row.getString(row.fieldIndex(COL_SEQNAME));
+        feature.source = hasField(schema, COL_SOURCE) ? row.getString(row.fieldIndex(COL_SOURCE)) : null;
+        feature.featureType = FeatureType.fromString(row.getString(row.fieldIndex(COL_FEATURE)));
+        feature.start = row.getInt(row.fieldIndex(COL_START));
+        feature.end = row.getInt(row.fieldIndex(COL_END));
+        feature.strand = Strand.fromString(row.getString(row.fieldIndex(COL_STRAND)));
+        if (hasField(schema, COL_SCORE))
+            feature.score = (Double) row.get(row.fieldIndex(COL_SCORE));
+        if (hasField(schema, COL_FRAME))
+            feature.frame = (Integer) row.get(row.fieldIndex(COL_FRAME));
+
+        Map<String, String> attributes = new HashMap<>();
+        if (hasField(schema, COL_ATTRIBUTES))
+            attributes.putAll(row.getJavaMap(row.fieldIndex(COL_ATTRIBUTES)));
+        for (int i = GTFScan.FIRST_ATTRIBUTE_COLUMN; i < GTFScan.ATTRIBUTES_COLUMN; i++) {
+            String column = SCHEMA.fields()[i].name();
+            if (hasField(schema, column) && !row.isNullAt(row.fieldIndex(column)))
+                attributes.putIfAbsent(GTFScan.ATTRIBUTE_KEYS[i][0], String.valueOf(row.get(row.fieldIndex(column))));
+        }
+        feature.attributes = attributes;
+
+        feature.geneId = attributes.get(COL_GENE_ID);
+        feature.geneName = attributes.get(COL_GENE_NAME);
+        feature.transcriptName = attributes.get(COL_TRANSCRIPT_NAME);
+        feature.geneType = attributes.containsKey("gene_type") ? attributes.get("gene_type") : attributes.get(COL_GENE_BIOTYPE);
+        feature.transcriptType = attributes.containsKey("transcript_type") ? attributes.get("transcript_type") : attributes.get(COL_TRANSCRIPT_BIOTYPE);
+
+        return feature;
+    }
+
+    private static boolean hasField(StructType schema, String name) {
+        return schema.getFieldIndex(name).isDefined();
+    }
+}
@@ -0,0 +1,62 @@
+package org.rcsb.geneprot.gencode.gtf;
+
+import org.apache.spark.rdd.RDD;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.sources.BaseRelation;
+import org.apache.spark.sql.sources.Filter;
+import org.apache.spark.sql.sources.PrunedFilteredScan;
+import org.apache.spark.sql.types.StructType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A GTF file read by {@link GTFDataSource}. Only the selected columns are built and
+ * the filters are pushed down to the lines (see {@link GTFScan}).
+ *
+ * @author Yana Valasatava
+ */
+public class GTFRelation extends BaseRelation implements PrunedFilteredScan {
+
+    private final SQLContext sqlContext;
+    private final String path;
+    private final int partitions;
+
+    public GTFRelation(SQLContext sqlContext, String path, int partitions) {
+        this.sqlContext = sqlContext;
+        this.path = path;
+        this.partitions = partitions;
+    }
+
+    @Override
+    public SQLContext sqlContext() {
+        return sqlContext;
+    }
+
+    @Override
+    public StructType schema() {
+        return GTFDataSource.SCHEMA;
+    }
+
+    @Override
+    public Filter[] unhandledFilters(Filter[] filters) {
+
+        List<Filter> unhandled = new ArrayList<>();
+        for (Filter filter : filters) {
+            if (!GTFScan.isExact(filter))
+                unhandled.add(filter);
+        }
+        return unhandled.toArray(new Filter[unhandled.size()]);
+    }
+
+    @Override
+    public RDD<Row> buildScan(String[] requiredColumns, Filter[] filters) {
+
+        return sqlContext.sparkContext()
+                .textFile(path, partitions)
+                .toJavaRDD()
+                .mapPartitions(new GTFScan(requiredColumns, filters))
+                .rdd();
+    }
+}
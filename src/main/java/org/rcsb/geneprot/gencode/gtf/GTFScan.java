@@ -0,0 +1,389 @@
+package org.rcsb.geneprot.gencode.gtf;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.sources.EqualTo;
+import org.apache.spark.sql.sources.Filter;
+import org.apache.spark.sql.sources.In;
+import org.apache.spark.sql.sources.IsNotNull;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Reads the rows of {@link GTFDataSource} from the lines of a partition of a GTF file.
+ *
+ * Equality, IN and IS NOT NULL filters on the string columns are checked on the raw line before
+ * anything is parsed: the column filters (e.g., feature, seqname) compare a region of the line,
+ * the attribute filters (e.g., transcript_biotype) locate the attribute without reading the others.
+ * The lines that pass are parsed with a {@link GTFTokenizer} that keeps only the attributes of
+ * the selected columns.
+ *
+ * @author Yana Valasatava
+ */
+class GTFScan implements FlatMapFunction<Iterator<String>, Row> {
+
+    private static final long serialVersionUID = -2403418835624706121L;
+
+    static final int FIRST_ATTRIBUTE_COLUMN = 8;
+    static final int EXON_NUMBER_COLUMN = 14;
+    static final int ATTRIBUTES_COLUMN = 17;
+
+    /**
+     * The attributes of the typed attribute columns of {@link GTFDataSource#SCHEMA}, in the order of preference.
+     */
+    static final String[][] ATTRIBUTE_KEYS = {
+            null, null, null, null, null, null, null, null,
+            {"gene_id"}, {"gene_name"}, {"gene_biotype", "gene_type"},
+            {"transcript_id"}, {"transcript_name"}, {"transcript_biotype", "transcript_type"},
+            {"exon_number"}, {"ccds_id"}, {"protein_id"}
+    };
+
+    private static final int NOT_FOUND = -1;
+    private static final int UNKNOWN = -2;
+
+    private final int[] columns;
+    private final Predicate[] predicates;
+    private final boolean readAttributes;
+    private final GTFTokenizer tokenizer;
+
+    GTFScan(String[] requiredColumns, Filter[] filters) {
+
+        columns = new int[requiredColumns.length];
+        Set<String> keys = new LinkedHashSet<>();
+        boolean allAttributes = false;
+        for (int i = 0; i < requiredColumns.length; i++) {
+            int column = GTFDataSource.SCHEMA.fieldIndex(requiredColumns[i]);
+            columns[i] = column;
+            if (column == ATTRIBUTES_COLUMN) {
+                allAttributes = true;
+            } else if (column >= FIRST_ATTRIBUTE_COLUMN) {
+                for (String key : ATTRIBUTE_KEYS[column])
+                    keys.add(key);
+            }
+        }
+        readAttributes = allAttributes || !keys.isEmpty();
+        tokenizer = allAttributes ? new GTFTokenizer() : new GTFTokenizer(keys.toArray(new String[keys.size()]));
+
+        List<Predicate> list = new ArrayList<>();
+        for (Filter filter : filters) {
+            Predicate predicate = toPredicate(filter);
+            if (predicate != null)
+                list.add(predicate);
+        }
+        predicates = list.toArray(new Predicate[list.size()]);
+    }
+
+    /**
+     * Gets the predicate of a filter that can be checked on the raw lines, or null.
+     */
+    static Predicate toPredicate(Filter filter) {
+
+        String attribute;
+        Object[] values;
+        if (filter instanceof EqualTo) {
+            attribute = ((EqualTo) filter).attribute();
+            values = new Object[]{((EqualTo) filter).value()};
+        } else if (filter instanceof In) {
+            attribute = ((In) filter).attribute();
+            values = ((In) filter).values();
+        } else if (filter instanceof IsNotNull) {
+            attribute = ((IsNotNull) filter).attribute();
+            values = null;
+        } else {
+            return null;
+        }
+
+        int column = GTFDataSource.SCHEMA.getFieldIndex(attribute).isDefined()
+                ? GTFDataSource.SCHEMA.fieldIndex(attribute) : -1;
+        if (!isStringColumn(column))
+            return null;
+
+        String[] strings = null;
+        if (values != null) {
+            strings = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (!(values[i] instanceof String))
+                    return null;
+                strings[i] = (String) values[i];
+            }
+        }
+        return new Predicate(column, strings);
+    }
+
+    /**
+     * Tells whether the filter is fully evaluated on the raw lines, so Spark does not have to check it again.
+     * The attribute filters are only used to skip lines: they are checked again on the parsed values.
+     */
+    static boolean isExact(Filter filter) {
+        Predicate predicate = toPredicate(filter);
+        return predicate != null && predicate.column < FIRST_ATTRIBUTE_COLUMN;
+    }
+
+    private static boolean isStringColumn(int column) {
+        return column == 0 || column == 1 || column == 2 || column == 6
+                || column >= FIRST_ATTRIBUTE_COLUMN && column < ATTRIBUTES_COLUMN && column != EXON_NUMBER_COLUMN;
+    }
+
+    @Override
+    public Iterator<Row> call(Iterator<String> lines) throws Exception {
+
+        return new Iterator<Row>() {
+
+            private final int[] tabs = new int[10];
+            private final int[] bounds = new int[2];
+            private Row next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && lines.hasNext()) {
+                    String line = lines.next();
+                    try {
+                        next = read(line, tabs, bounds);
+                    } catch (GTFParseException e) {
+                        throw new IllegalStateException("Could not parse the GTF line: " + line, e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Row row = next;
+                next = null;
+                return row;
+            }
+        };
+    }
+
+    /**
+     * Gets the row of a line, or null if the line is a comment or does not pass the filters.
+     */
+    Row read(String line, int[] tabs, int[] bounds) throws GTFParseException {
+
+        if (line == null || line.isEmpty() || line.startsWith("#"))
+            return null;
+
+        // tabs[k] is the index of the tab before column k, the attributes span (tabs[8], tabs[9])
+        int columnsCount = 1;
+        tabs[0] = -1;
+        while (columnsCount < 9) {
+            int tab = line.indexOf('\t', tabs[columnsCount - 1] + 1);
+            if (tab < 0)
+                break;
+            tabs[columnsCount++] = tab;
+        }
+        if (columnsCount < 8)
+            throw new GTFParseException("Expected 9 tab separated columns, found " + columnsCount);
+        if (columnsCount == 8) {
+            tabs[8] = line.length();
+            tabs[9] = line.length();
+        } else {
+            int tab = line.indexOf('\t', tabs[8] + 1);
+            tabs[9] = tab < 0 ? line.length() : tab;
+        }
+
+        for (Predicate predicate : predicates) {
+            if (!predicate.test(line, tabs, bounds))
+                return null;
+        }
+
+        Map<String, String> attributes = readAttributes && tabs[8] < tabs[9]
+                ? tokenizer.readAttributes(line, tabs[8] + 1, tabs[9])
+                : null;
+
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            int column = columns[i];
+            switch (column) {
+                case 0:
+                case 1:
+                case 2:
+                case 6:
+                    values[i] = tokenizer.intern(line, tabs[column] + 1, tabs[column + 1]);
+                    break;
+                case 3:
+                    values[i] = GTFTokenizer.parseInt(line, tabs[3] + 1, tabs[4], "start");
+                    break;
+                case 4:
+                    values[i] = GTFTokenizer.parseInt(line, tabs[4] + 1, tabs[5], "end");
+                    break;
+                case 5:
+                    values[i] = parseNumber(line, tabs[5] + 1, tabs[6], false);
+                    break;
+                case 7:
+                    values[i] = parseNumber(line, tabs[7] + 1, tabs[8], true);
+                    break;
+                case ATTRIBUTES_COLUMN:
+                    values[i] = attributes != null ? attributes : new HashMap<String, String>();
+                    break;
+                default:
+                    String value = null;
+                    if (attributes != null) {
+                        for (String key : ATTRIBUTE_KEYS[column]) {
+                            value = attributes.get(key);
+                            if (value != null)
+                                break;
+                        }
+                    }
+                    values[i] = column == EXON_NUMBER_COLUMN ? parseInteger(value) : value;
+            }
+        }
+        return RowFactory.create(values);
+    }
+
+    private static Object parseNumber(String line, int from, int to, boolean integer) {
+
+        if (from >= to || to - from == 1 && line.charAt(from) == '.')
+            return null;
+        String value = line.substring(from, to);
+        try {
+            return integer ? (Object) Integer.valueOf(value) : (Object) Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parseInteger(String value) {
+
+        if (value == null)
+            return null;
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A filter checked on the raw line. A column is compared in place; an attribute is located
+     * the way {@link GTFTokenizer} reads it, and the line is kept when the value cannot be
+     * told without parsing (e.g., values with inner spaces).
+     */
+    static final class Predicate implements Serializable {
+
+        private static final long serialVersionUID = 5764430781693574316L;
+
+        final int column;
+        final String[] values; // null for IS NOT NULL
+
+        Predicate(int column, String[] values) {
+            this.column = column;
+            this.values = values;
+        }
+
+        boolean test(String line, int[] tabs, int[] bounds) {
+
+            if (column < FIRST_ATTRIBUTE_COLUMN)
+                return matches(line, tabs[column] + 1, tabs[column + 1]);
+
+            for (String key : ATTRIBUTE_KEYS[column]) {
+                int found = findAttribute(line, tabs[8] + 1, tabs[9], key, bounds);
+                if (found == UNKNOWN)
+                    return true;
+                if (found != NOT_FOUND)
+                    return matches(line, bounds[0], bounds[1]);
+            }
+            return false; // null
+        }
+
+        private boolean matches(String line, int from, int to) {
+
+            if (values == null)
+                return true;
+            int length = to - from;
+            for (String value : values) {
+                if (value.length() == length && line.regionMatches(from, value, 0, length))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Locates the value of an attribute in the region [from, to) of a line, as {@link GTFTokenizer}
+     * reads it: the last piece with the key wins and the quotes around the value are not part of it.
+     *
+     * @return the start of the value (its bounds are set), NOT_FOUND, or UNKNOWN if the line has to be parsed
+     */
+    static int findAttribute(String line, int from, int to, String key, int[] bounds) {
+
+        int found = NOT_FOUND;
+        int start = from;
+        while (start < to) {
+            int end = line.indexOf(';', start);
+            if (end < 0 || end > to)
+                end = to;
+
+            int keyStart = start;
+            while (keyStart < end && line.charAt(keyStart) <= ' ') keyStart++;
+            if (line.startsWith(key, keyStart)) {
+                int piece = readValue(line, start, end, keyStart + key.length(), bounds);
+                if (piece == UNKNOWN)
+                    return UNKNOWN;
+                if (piece != NOT_FOUND)
+                    found = piece;
+            }
+            start = end + 1;
+        }
+        return found;
+    }
+
+    private static int readValue(String line, int from, int to, int keyEnd, int[] bounds) {
+
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029')
+                return UNKNOWN;
+        }
+
+        // the split of GTFTokenizer: the last whitespace that leaves at least one character on both sides
+        int split = -1;
+        for (int i = to - 2; i > from; i--) {
+            char c = line.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\f' || c == '\u000B') {
+                split = i;
+                break;
+            }
+        }
+        if (split < 0)
+            return NOT_FOUND;
+        int end = split;
+        while (end > keyEnd && line.charAt(end - 1) <= ' ') end--;
+        if (end != keyEnd)
+            return NOT_FOUND; // another key
+
+        int valueStart = split + 1;
+        int valueEnd = to;
+        while (valueStart < valueEnd && line.charAt(valueStart) <= ' ') valueStart++;
+        while (valueEnd > valueStart && line.charAt(valueEnd - 1) <= ' ') valueEnd--;
+
+        int quotes = 0;
+        for (int i = valueStart; i < valueEnd; i++) {
+            if (line.charAt(i) == '"')
+                quotes++;
+        }
+        if (quotes == 2 && line.charAt(valueStart) == '"' && line.charAt(valueEnd - 1) == '"') {
+            valueStart++;
+            valueEnd--;
+        } else if (quotes != 0) {
+            return UNKNOWN;
+        }
+        if (valueStart >= valueEnd)
+            return NOT_FOUND;
+
+        bounds[0] = valueStart;
+        bounds[1] = valueEnd;
+        return valueStart;
+    }
+}
@@ -0,0 +1,357 @@
+package org.rcsb.geneprot.gencode.gtf;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single-pass GTF line parser producing the same {@link GencodeFeature} records as {@link GTFParser}.
+ *
+ * The line is scanned once by index: no split, no regular expression and no copies of
+ * the columns. Sequence names, sources, feature types, attribute keys and the values of
+ * low-cardinality attributes (biotypes, sources, tags...) are interned in a pool of the
+ * parser, so the records of a file share their strings. A parser can be restricted to the
+ * attributes the caller needs; the other attributes are skipped without being read.
+ *
+ * A parser is not thread-safe: use one instance per thread (Spark tasks get their own copy).
+ *
+ * @author Yana Valasatava
+ */
+public class GTFTokenizer implements Serializable {
+
+    private static final long serialVersionUID = 3180457246315412390L;
+
+    /**
+     * Attributes with few distinct values in Ensembl and GENCODE files, whose values are interned.
+     */
+    public static final Set<String> INTERNED_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            "gene_biotype", "transcript_biotype", "gene_type", "transcript_type",
+            "gene_source", "transcript_source", "gene_status", "transcript_status",
+            "gene_version", "transcript_version", "exon_version", "protein_version",
+            "exon_number", "level", "tag", "transcript_support_level"));
+
+    // the attribute pattern of GTFParser, used for the rare attributes with line terminators
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("^\\s*(.+)\\s(.+)$");
+
+    private static final int MAX_POOL_SIZE = 1 << 16;
+
+    private final Set<String> attributes;
+
+    private transient StringPool pool;
+    private transient Map<String, FeatureType> featureTypes;
+    private transient int[] tabs;
+
+    /**
+     * Creates a parser that keeps all attributes.
+     */
+    public GTFTokenizer() {
+        this.attributes = null;
+    }
+
+    /**
+     * Creates a parser that keeps only the given attributes. The fields of {@link GencodeFeature}
+     * that are read from attributes (e.g., gene name) are null unless their attribute is requested.
+     */
+    public GTFTokenizer(String... attributes) {
+        this.attributes = new HashSet<>(Arrays.asList(attributes));
+    }
+
+    public GencodeFeature parseLine(String line) throws GTFParseException {
+
+        if (line == null || line.startsWith("#"))
+            return null;
+
+        init();
+
+        // tabs[k] is the index of the tab before column k, column k spans (tabs[k], tabs[k + 1])
+        int length = line.length();
+        int columns = 1;
+        tabs[0] = -1;
+        while (columns < 9) {
+            int tab = line.indexOf('\t', tabs[columns - 1] + 1);
+            if (tab < 0)
+                break;
+            tabs[columns++] = tab;
+        }
+        if (columns < 8)
+            throw new GTFParseException("Expected 9 tab separated columns, found " + columns);
+        int attributesEnd = length;
+        if (columns == 9) {
+            int tab = line.indexOf('\t', tabs[8] + 1);
+            if (tab >= 0)
+                attributesEnd = tab;
+        }
+        tabs[columns] = columns == 9 ? attributesEnd : length;
+
+        GencodeFeature record = new GencodeFeature();
+
+        record.seqname = pool.get(line, tabs[0] + 1, tabs[1]);
+        record.source = pool.get(line, tabs[1] + 1, tabs[2]);
+
+        String type = pool.get(line, tabs[2] + 1, tabs[3]);
+        FeatureType featureType = featureTypes.get(type);
+        if (featureType == null) {
+            featureType = FeatureType.fromString(type);
+            featureTypes.put(type, featureType);
+        }
+        record.featureType = featureType;
+
+        record.start = parseInt(line, tabs[3] + 1, tabs[4], "start");
+        record.end = parseInt(line, tabs[4] + 1, tabs[5], "end");
+
+        int strand = tabs[6] + 1;
+        if (tabs[7] - strand == 1 && line.charAt(strand) == '+') {
+            record.strand = Strand.FORWARD;
+        } else if (tabs[7] - strand == 1 && line.charAt(strand) == '-') {
+            record.strand = Strand.REVERSE;
+        } else {
+            record.strand = Strand.fromString(line.substring(strand, tabs[7]));
+        }
+
+        // as in GTFParser, the frame is only read if the score is a number
+        int score = tabs[5] + 1;
+        if (tabs[6] - score != 1 || line.charAt(score) != '.') {
+            try {
+                record.score = Double.valueOf(line.substring(score, tabs[6]));
+                record.frame = Integer.valueOf(line.substring(tabs[7] + 1, tabs[8]));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        if (columns == 9) {
+            record.attributes = new HashMap<>(attributes == null ? 64 : 2 * attributes.size());
+            parseAttributes(line, tabs[8] + 1, attributesEnd, record.attributes);
+        } else {
+            record.attributes = new HashMap<>();
+        }
+
+        record.geneId = record.getAttribute("gene_id");
+
+        record.geneType = record.getAttribute("gene_type");
+        record.geneStatus = record.getAttribute("gene_status");
+        record.geneName = record.getAttribute("gene_name");
+        record.transcriptType = record.getAttribute("transcript_type");
+        record.transcriptStatus = record.getAttribute("transcript_status");
+        record.transcriptName = record.getAttribute("transcript_name");
+        String level = record.getAttribute("level");
+        if (level != null) {
+            try {
+                record.level = Integer.valueOf(level);
+            } catch (NumberFormatException ignored) { }
+        }
+
+        return record;
+    }
+
+    private void init() {
+        if (pool == null) {
+            pool = new StringPool();
+            featureTypes = new HashMap<>();
+            tabs = new int[10];
+        }
+    }
+
+    /**
+     * Gets the string of the region [from, to) of a line from the pool of the parser.
+     */
+    String intern(String line, int from, int to) {
+        init();
+        return pool.get(line, from, to);
+    }
+
+    /**
+     * Reads the (requested) attributes of the region [from, to) of a line.
+     */
+    Map<String, String> readAttributes(String line, int from, int to) {
+        init();
+        Map<String, String> map = new HashMap<>(attributes == null ? 64 : 2 * attributes.size());
+        parseAttributes(line, from, to, map);
+        return map;
+    }
+
+    /**
+     * Reads the attributes (key "value"; pairs) of the region [from, to) of a line.
+     *
+     * Every piece between semicolons is split at its last inner whitespace, as the pattern
+     * of GTFParser does; the key and the value are trimmed and the quotes are removed from the value.
+     */
+    private void parseAttributes(String line, int from, int to, Map<String, String> map) {
+
+        int start = from;
+        while (start < to) {
+            int end = line.indexOf(';', start);
+            if (end < 0 || end > to)
+                end = to;
+            parseAttribute(line, start, end, map);
+            start = end + 1;
+        }
+    }
+
+    private void parseAttribute(String line, int from, int to, Map<String, String> map) {
+
+        // the last whitespace that leaves at least one character on both sides
+        int split = -1;
+        for (int i = to - 2; i > from; i--) {
+            char c = line.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\f' || c == '\u000B') {
+                split = i;
+                break;
+            }
+            if (isLineTerminator(c)) {
+                parseAttributeWithPattern(line.substring(from, to), map);
+                return;
+            }
+        }
+        if (split < 0)
+            return;
+        for (int i = from; i < to; i++) {
+            if (isLineTerminator(line.charAt(i))) {
+                parseAttributeWithPattern(line.substring(from, to), map);
+                return;
+            }
+        }
+
+        int keyStart = from;
+        int keyEnd = split;
+        while (keyStart < keyEnd && line.charAt(keyStart) <= ' ') keyStart++;
+        while (keyEnd > keyStart && line.charAt(keyEnd - 1) <= ' ') keyEnd--;
+        String key = pool.get(line, keyStart, keyEnd);
+        if (attributes != null && !attributes.contains(key))
+            return;
+
+        int valueStart = split + 1;
+        int valueEnd = to;
+        while (valueStart < valueEnd && line.charAt(valueStart) <= ' ') valueStart++;
+        while (valueEnd > valueStart && line.charAt(valueEnd - 1) <= ' ') valueEnd--;
+
+        // the usual "value" form is read without a copy of the quoted text
+        int quotes = 0;
+        for (int i = valueStart; i < valueEnd; i++) {
+            if (line.charAt(i) == '"')
+                quotes++;
+        }
+        String value;
+        if (quotes == 0 || quotes == 2 && line.charAt(valueStart) == '"' && line.charAt(valueEnd - 1) == '"') {
+            if (quotes == 2) {
+                valueStart++;
+                valueEnd--;
+            }
+            if (valueStart >= valueEnd)
+                return;
+            value = INTERNED_ATTRIBUTES.contains(key) ? pool.get(line, valueStart, valueEnd) : line.substring(valueStart, valueEnd);
+        } else {
+            StringBuilder sb = new StringBuilder(valueEnd - valueStart);
+            for (int i = valueStart; i < valueEnd; i++) {
+                char c = line.charAt(i);
+                if (c != '"')
+                    sb.append(c);
+            }
+            if (sb.length() == 0)
+                return;
+            value = sb.toString();
+        }
+        map.put(key, value);
+    }
+
+    private void parseAttributeWithPattern(String variableString, Map<String, String> map) {
+
+        Matcher m = ATTRIBUTE_PATTERN.matcher(variableString);
+        if (m.matches()) {
+            String key = m.group(1).trim();
+            String val = m.group(2).trim().replace("\"", "");
+            if (val.length() > 0 && (attributes == null || attributes.contains(key)))
+                map.put(key, val);
+        }
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    static int parseInt(String line, int from, int to, String field) throws GTFParseException {
+
+        if (from < to && to - from < 10) {
+            int value = 0;
+            int i = from;
+            for (; i < to; i++) {
+                char c = line.charAt(i);
+                if (c < '0' || c > '9')
+                    break;
+                value = 10 * value + (c - '0');
+            }
+            if (i == to)
+                return value;
+        }
+        // signs, long numbers and errors
+        try {
+            return Integer.valueOf(line.substring(from, to));
+        } catch (NumberFormatException e) {
+            throw new GTFParseException("Invalid integer value for " + field, e);
+        }
+    }
+
+    /**
+     * An open addressing set of strings that are looked up by a region of another
+     * string, so a string already in the pool is found without creating a new one.
+     */
+    static final class StringPool {
+
+        private String[] table = new String[1024];
+        private int size;
+
+        String get(String s, int from, int to) {
+
+            int length = to - from;
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + s.charAt(i);
+            }
+
+            int mask = table.length - 1;
+            int index = mix(hash) & mask;
+            String candidate;
+            while ((candidate = table[index]) != null) {
+                if (candidate.length() == length && s.regionMatches(from, candidate, 0, length))
+                    return candidate;
+                index = (index + 1) & mask;
+            }
+
+            String value = s.substring(from, to);
+            if (size < MAX_POOL_SIZE) {
+                table[index] = value;
+                if (2 * ++size > table.length)
+                    rehash();
+            }
+            return value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void rehash() {
+
+            String[] old = table;
+            table = new String[2 * old.length];
+            int mask = table.length - 1;
+            for (String value : old) {
+                if (value == null)
+                    continue;
+                int index = mix(value.hashCode()) & mask;
+                while (table[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
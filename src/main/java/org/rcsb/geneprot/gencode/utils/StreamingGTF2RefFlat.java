@@ -0,0 +1,430 @@
+package org.rcsb.geneprot.gencode.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.rcsb.geneprot.gencode.gtf.FeatureType;
+import org.rcsb.geneprot.gencode.gtf.GTFParseException;
+import org.rcsb.geneprot.gencode.gtf.GTFTokenizer;
+import org.rcsb.geneprot.gencode.gtf.GencodeFeature;
+import org.rcsb.geneprot.gencode.gtf.Strand;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Converts a GTF file to the refFlat format in one streaming pass, with the same output as {@link GTF2RefFlat}.
+ *
+ * The lines are parsed once, in batches spread over a pool of threads, into compact feature records
+ * (type, start, end) of the protein coding transcripts. The features of a transcript are contiguous in
+ * GENCODE and Ensembl files: a transcript is converted as soon as its block of lines ends and its features
+ * are dropped. A file whose transcripts are not contiguous is reported with an IOException.
+ *
+ * {@link GTF2RefFlat} writes the transcripts in the order of a HashMap of all the transcript IDs of the file;
+ * the same map is built here, holding the refFlat lines instead of the GTF lines, so the outputs are identical.
+ *
+ * @author Yana Valasatava
+ */
+public class StreamingGTF2RefFlat {
+
+    private static Log logger = LogFactory.getLog(StreamingGTF2RefFlat.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+
+    private static final String[] ATTRIBUTES = {"transcript_id", "transcript_type", "gene_name"};
+
+    private static final ThreadLocal<GTFTokenizer> TOKENIZER = ThreadLocal.withInitial(() -> new GTFTokenizer(ATTRIBUTES));
+
+    // the value of the transcripts that are protein coding but have no exons
+    private static final String NO_RECORD = new String();
+
+    private final int threads;
+    private final int batchSize;
+
+    public StreamingGTF2RefFlat() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param threads - the number of threads parsing the lines and building the refFlat records
+     * @param batchSize - the number of lines parsed by a task
+     */
+    public StreamingGTF2RefFlat(int threads, int batchSize) {
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    public void convert(File gtfFile, File outFile) throws IOException
+    {
+        logger.info("Converting GTF File: "+gtfFile.getAbsolutePath());
+        long tstart = System.currentTimeMillis();
+
+        // the refFlat lines by transcript ID, in the order of GTF2RefFlat
+        Map<String, String> records = new HashMap<>();
+        Merger merger = new Merger(records);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(gtfFile), "UTF-8"))) {
+
+            Deque<Future<Batch>> pending = new ArrayDeque<>();
+            List<String> lines = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) continue;
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    pending.add(submit(executor, lines));
+                    lines = new ArrayList<>(batchSize);
+                    // bounds the number of batches in memory
+                    if (pending.size() > 2 * threads)
+                        merger.merge(get(pending.poll()));
+                }
+            }
+            if (!lines.isEmpty())
+                pending.add(submit(executor, lines));
+            while (!pending.isEmpty())
+                merger.merge(get(pending.poll()));
+            merger.finish();
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (PrintWriter output = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outFile), "UTF-8"))) {
+            for (String record : records.values()) {
+                if (record != null && record != NO_RECORD)
+                    output.println(record);
+            }
+        }
+
+        long tend = System.currentTimeMillis();
+        double totalTime = ((tend - tstart)/1000);
+        logger.info("Finished conversion: "+totalTime + "s");
+        logger.info("Output written to: "+outFile.getAbsolutePath());
+    }
+
+    private static Future<Batch> submit(ExecutorService executor, List<String> lines) {
+        return executor.submit(() -> parse(lines));
+    }
+
+    private static Batch get(Future<Batch> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while converting the GTF file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException("Failed to convert the GTF file", e.getCause());
+        }
+    }
+
+    /**
+     * Parses a batch of lines into blocks of consecutive lines of a transcript. Lines without
+     * a transcript ID (e.g., genes) do not end a block. The refFlat records of the blocks that
+     * are inside the batch are built here; the first and the last ones can continue in the
+     * neighbouring batches.
+     */
+    static Batch parse(List<String> lines) {
+
+        GTFTokenizer tokenizer = TOKENIZER.get();
+        Batch batch = new Batch();
+        Block current = null;
+        for (String line : lines) {
+
+            GencodeFeature feature;
+            try {
+                feature = tokenizer.parseLine(line);
+            } catch (GTFParseException e) {
+                throw new RuntimeException("Failed to parse gene models file", e);
+            }
+            if (feature == null)
+                continue;
+
+            String id = feature.getAttribute("transcript_id");
+            batch.ids.add(id);
+            boolean coding = "protein_coding".equals(feature.getAttribute("transcript_type"));
+
+            if (id == null) {
+                if (coding)
+                    batch.untracked.add(feature);
+                continue;
+            }
+            if (current == null || !current.transcriptId.equals(id)) {
+                current = new Block(id);
+                batch.blocks.add(current);
+            }
+            if (coding)
+                current.add(feature);
+        }
+
+        for (int i = 1; i < batch.blocks.size() - 1; i++)
+            batch.blocks.get(i).build();
+
+        return batch;
+    }
+
+    static final class Batch {
+
+        // the transcript IDs in the order of their first line
+        final Set<String> ids = new LinkedHashSet<>();
+        final List<Block> blocks = new ArrayList<>();
+        // the features without transcript ID, grouped together as in GTF2RefFlat
+        final Block untracked = new Block(null);
+    }
+
+    /**
+     * Joins the blocks of the batches in the order of the file and stores the refFlat
+     * record of each transcript when its block ends.
+     */
+    private static final class Merger {
+
+        private final Map<String, String> records;
+        private final Block untracked = new Block(null);
+        private Block open;
+
+        Merger(Map<String, String> records) {
+            this.records = records;
+        }
+
+        void merge(Batch batch) throws IOException {
+
+            for (String id : batch.ids)
+                records.putIfAbsent(id, null);
+
+            untracked.append(batch.untracked);
+            for (Block block : batch.blocks) {
+                if (open != null && open.transcriptId.equals(block.transcriptId)) {
+                    open.append(block);
+                } else {
+                    flush(open);
+                    open = block;
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            flush(open);
+            open = null;
+            flush(untracked);
+        }
+
+        private void flush(Block block) throws IOException {
+
+            if (block == null || block.size == 0)
+                return;
+            if (records.get(block.transcriptId) != null)
+                throw new IOException("The features of the transcript " + block.transcriptId + " are not contiguous in the GTF file");
+            String record = block.build();
+            records.put(block.transcriptId, record != null ? record : NO_RECORD);
+        }
+    }
+
+    /**
+     * The protein coding features of a transcript: type, start and end of each feature in an int array.
+     */
+    static final class Block {
+
+        private static final int EXON = FeatureType.EXON.ordinal();
+        private static final int CDS = FeatureType.CDS.ordinal();
+        private static final int STOP_CODON = FeatureType.STOP_CODON.ordinal();
+
+        final String transcriptId;
+        private String geneName;
+        private String chrom;
+        private Strand strand;
+
+        private int[] features = new int[3 * 16];
+        private int size;
+
+        private boolean built;
+        private String record;
+
+        Block(String transcriptId) {
+            this.transcriptId = transcriptId;
+        }
+
+        void add(GencodeFeature feature) {
+            if (size == 0) {
+                geneName = feature.getGeneName();
+                chrom = feature.getSeqname();
+                strand = feature.getStrand();
+            }
+            add(feature.getFeatureType().ordinal(), feature.getStart(), feature.getEnd());
+        }
+
+        private void add(int type, int start, int end) {
+            if (3 * size == features.length)
+                features = Arrays.copyOf(features, 2 * features.length);
+            features[3 * size] = type;
+            features[3 * size + 1] = start;
+            features[3 * size + 2] = end;
+            size++;
+        }
+
+        void append(Block block) {
+            if (size == 0 && block.size > 0) {
+                geneName = block.geneName;
+                chrom = block.chrom;
+                strand = block.strand;
+            }
+            for (int i = 0; i < block.size; i++)
+                add(block.features[3 * i], block.features[3 * i + 1], block.features[3 * i + 2]);
+        }
+
+        /**
+         * Builds the refFlat record of the transcript (once), as GTF2RefFlat does; null if it has no exons.
+         */
+        String build() {
+
+            if (built)
+                return record;
+            built = true;
+            if (size == 0)
+                return null;
+
+            // a stable sort by start: the features with the same start stay in the order of the file
+            long[] order = new long[size];
+            for (int k = 0; k < size; k++)
+                order[k] = ((long) features[3 * k + 1] << 32) | k;
+            Arrays.sort(order);
+
+            int exonCount = 0;
+            int stopCodonStart = -1;
+            int stopCodonEnd = -1;
+            int cdsStart = Integer.MAX_VALUE;
+            int cdsEnd = Integer.MIN_VALUE;
+            int txStart = Integer.MAX_VALUE;
+            int txEnd = Integer.MIN_VALUE;
+
+            for (long o : order) {
+                int k = 3 * (int) o;
+                int type = features[k];
+                int start = features[k + 1];
+                int end = features[k + 2];
+
+                if (txStart > start) txStart = start;
+                if (txEnd < end) txEnd = end;
+
+                if (type == EXON) {
+                    exonCount++;
+                }
+                if (type == CDS) {
+                    if (start < cdsStart)
+                        cdsStart = start;
+                    if (end > cdsEnd)
+                        cdsEnd = end;
+                }
+                if (type == STOP_CODON) {
+                    /* stop_codon can be split, need bounds for adjusting CDS below */
+                    if ((stopCodonStart < 0) || (start < stopCodonStart))
+                        stopCodonStart = start;
+                    if ((stopCodonEnd < 0) || (end > stopCodonEnd))
+                        stopCodonEnd = end;
+                }
+            }
+
+            if (exonCount == 0) return null;
+
+            if (cdsStart > cdsEnd) {
+                /* no cds annotated */
+                cdsStart = 0;
+                cdsEnd = 0;
+            } else if (stopCodonStart >= 0) {
+                /* adjust CDS to include stop codon as in GTF */
+                if (Strand.FORWARD.equals(strand)) {
+                    if (stopCodonEnd > cdsEnd) cdsEnd = stopCodonEnd;
+                } else {
+                    if (stopCodonStart < cdsStart) cdsStart = stopCodonStart;
+                }
+            }
+
+            if (cdsStart > cdsEnd) {
+                cdsStart = txStart;
+                cdsEnd = txEnd;
+            }
+
+            /* adjust tx range to include stop codon */
+            if (Strand.FORWARD.equals(strand) && (txEnd == stopCodonStart))
+                txEnd = stopCodonEnd;
+            else if (Strand.REVERSE.equals(strand) && (txStart == stopCodonEnd))
+                txStart = stopCodonStart;
+
+            int[] exonStarts = new int[exonCount];
+            int[] exonEnds = new int[exonCount];
+
+            int i = -1; /* before first exon */
+            /* fill in exons, merging overlaping and adjacent exons */
+            for (long o : order) {
+                int k = 3 * (int) o;
+                int type = features[k];
+                if (type == EXON || type == CDS) {
+                    int start = features[k + 1];
+                    int end = features[k + 2];
+                    if ((i < 0) || (start > exonEnds[i])) {
+                        /* start a new exon */
+                        ++i;
+                        exonStarts[i] = start;
+                        exonEnds[i] = end;
+                    } else {
+                        /* overlap, extend exon, picking the largest of ends */
+                        if (end > exonEnds[i])
+                            exonEnds[i] = end;
+                    }
+                }
+            }
+
+            // the unused ends of the arrays are written as in GTF2RefFlat
+            StringBuilder buf = new StringBuilder();
+            buf.append(geneName == null ? "" : geneName).append('\t')
+                    .append(transcriptId == null ? "" : transcriptId).append('\t')
+                    .append(chrom == null ? "" : chrom).append('\t')
+                    .append(strand).append('\t')
+                    .append(txStart).append('\t')
+                    .append(txEnd).append('\t')
+                    .append(cdsStart).append('\t')
+                    .append(cdsEnd).append('\t')
+                    .append(i + 1).append('\t');
+            join(buf, exonStarts).append('\t');
+            join(buf, exonEnds);
+
+            record = buf.toString();
+            features = null;
+            return record;
+        }
+
+        private static StringBuilder join(StringBuilder buf, int[] values) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0)
+                    buf.append(',');
+                buf.append(values[i]);
+            }
+            return buf;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        StreamingGTF2RefFlat g = new StreamingGTF2RefFlat();
+        g.convert(new File(args[0]), new File(args[1]));
+    }
+}
@@ -0,0 +1,151 @@
+package org.rcsb.geneprot.genes.datastructures;
+
+import org.biojava.nbio.genome.parsers.genename.GeneChromosomePosition;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact index of the coding regions of a genome.
+ *
+ * The coding parts of the exons of all transcripts are merged per chromosome into
+ * disjoint intervals kept in two sorted int arrays, so testing whether a position is
+ * coding is a binary search. Intervals are 1-based and closed, like VCF positions;
+ * a position is coding if it lies in the CDS of an exon of any transcript.
+ *
+ * The index is small enough to be broadcast to Spark executors.
+ *
+ * @author Yana Valasatava
+ */
+public class CodingRegionIndex implements Serializable {
+
+	private static final long serialVersionUID = 4851137309247218547L;
+
+	private final Map<String, int[]> starts = new HashMap<>();
+	private final Map<String, int[]> ends = new HashMap<>();
+
+	/**
+	 * Receives the coding part of an exon of a transcript.
+	 */
+	public interface CodingIntervalConsumer {
+
+		/**
+		 * @param transcript - the transcript of the exon
+		 * @param start - 1-based start of the coding part of the exon
+		 * @param end - 1-based inclusive end of the coding part of the exon
+		 */
+		void accept(GeneChromosomePosition transcript, int start, int end);
+	}
+
+	/**
+	 * Visits the coding part of every exon of the transcripts as a 1-based closed interval.
+	 * Transcripts without a CDS are skipped.
+	 */
+	public static void forEachCodingInterval(List<GeneChromosomePosition> transcripts, CodingIntervalConsumer consumer) {
+
+		for (GeneChromosomePosition gcp : transcripts) {
+
+			int cdsStart = gcp.getCdsStart();
+			int cdsEnd = gcp.getCdsEnd();
+			if (cdsStart >= cdsEnd)
+				continue;
+
+			List<Integer> exonStarts = gcp.getExonStarts();
+			List<Integer> exonEnds = gcp.getExonEnds();
+			for (int i = 0; i < exonStarts.size(); i++) {
+				// refFlat coordinates are 0-based half-open
+				int start = Math.max(exonStarts.get(i), cdsStart) + 1;
+				int end = Math.min(exonEnds.get(i), cdsEnd);
+				if (start <= end)
+					consumer.accept(gcp, start, end);
+			}
+		}
+	}
+
+	public CodingRegionIndex(List<GeneChromosomePosition> transcripts) {
+
+		Map<String, long[]> intervals = new HashMap<>();
+		Map<String, Integer> counts = new HashMap<>();
+
+		forEachCodingInterval(transcripts, (gcp, start, end) -> {
+
+			String chromosome = gcp.getChromosome();
+			long[] chrIntervals = intervals.get(chromosome);
+			int count = counts.getOrDefault(chromosome, 0);
+			if (chrIntervals == null) {
+				chrIntervals = new long[64];
+			} else if (count == chrIntervals.length) {
+				chrIntervals = Arrays.copyOf(chrIntervals, 2 * count);
+			}
+			// start in the high bits, so sorting the longs sorts the intervals by start
+			chrIntervals[count++] = (long) start << 32 | end;
+			intervals.put(chromosome, chrIntervals);
+			counts.put(chromosome, count);
+		});
+
+		for (Map.Entry<String, long[]> entry : intervals.entrySet()) {
+			merge(entry.getKey(), entry.getValue(), counts.get(entry.getKey()));
+		}
+	}
+
+	private void merge(String chromosome, long[] intervals, int count) {
+
+		Arrays.sort(intervals, 0, count);
+
+		int[] chrStarts = new int[count];
+		int[] chrEnds = new int[count];
+		int merged = -1;
+		for (int i = 0; i < count; i++) {
+			int start = (int) (intervals[i] >>> 32);
+			int end = (int) intervals[i];
+			if (merged >= 0 && start <= chrEnds[merged] + 1) {
+				chrEnds[merged] = Math.max(chrEnds[merged], end);
+			} else {
+				merged++;
+				chrStarts[merged] = start;
+				chrEnds[merged] = end;
+			}
+		}
+		starts.put(chromosome, Arrays.copyOf(chrStarts, merged + 1));
+		ends.put(chromosome, Arrays.copyOf(chrEnds, merged + 1));
+	}
+
+	/**
+	 * Checks if a position lies in a coding region.
+	 *
+	 * @param chromosome - chromosome name (e.g., chr21)
+	 * @param position - 1-based genomic position
+	 */
+	public boolean contains(String chromosome, long position) {
+
+		int[] chrStarts = starts.get(chromosome);
+		if (chrStarts == null)
+			return false;
+
+		int i = Arrays.binarySearch(chrStarts, (int) Math.min(position, Integer.MAX_VALUE));
+		if (i < 0)
+			i = -i - 2; // last interval starting before the position
+		return i >= 0 && position <= ends.get(chromosome)[i];
+	}
+
+	/**
+	 * Gets the number of merged coding intervals on a chromosome.
+	 */
+	public int getIntervalsCount(String chromosome) {
+		int[] chrStarts = starts.get(chromosome);
+		return chrStarts == null ? 0 : chrStarts.length;
+	}
+
+	/**
+	 * Gets the number of merged coding intervals on all chromosomes.
+	 */
+	public int getIntervalsCount() {
+		int count = 0;
+		for (int[] chrStarts : starts.values())
+			count += chrStarts.length;
+		return count;
+	}
+}
@@ -70,6 +70,10 @@ public class Exon {
 		}
 	}
 
+	public void setFrame(Frame frame) {
+		this.frame = frame;
+	}
+
 	public void setPhase(ExonFrameOffset phase) {
 		this.phase = phase;
 	}
@@ -2,9 +2,14 @@ package org.rcsb.geneprot.genes.datastructures;
 
 import org.rcsb.geneprot.genes.constants.StrandOrientation;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A transcript of a gene. The exons are kept in a compact {@link TranscriptStructure};
+ * the list getters are views over it.
+ */
 public class Transcript {
 	
 	private String chromosomeName; // e.g., chr21
@@ -14,7 +19,7 @@ public class Transcript {
 	private StrandOrientation orientation;
 	
 	private int exonsCount;
-	private List<Exon> exons;
+	private TranscriptStructure structure;
 	
 	private int codingStart;
 	private int codingEnd;
@@ -56,6 +61,8 @@ public class Transcript {
 	
 	public void setCodingStart(int start) {
 		this.codingStart = start;
+		if (structure != null)
+			structure = structure.withCodingRange(codingStart, codingEnd);
 	}
 	
 	public int getCodingEnd() {
@@ -64,14 +71,38 @@ public class Transcript {
 	
 	public void setCodingEnd(int end) {
 		this.codingEnd = end;
+		if (structure != null)
+			structure = structure.withCodingRange(codingStart, codingEnd);
 	}
 	
-	public List<Exon> getExons() {
-		return exons;
+	public TranscriptStructure getStructure() {
+		return structure;
 	}
 
+	/**
+	 * Gets a read-only view of the exons; every call to get creates a new Exon object.
+	 */
+	public List<Exon> getExons() {
+		if (structure == null)
+			return null;
+		return new AbstractList<Exon>() {
+			@Override
+			public Exon get(int index) {
+				return structure.getExon(index);
+			}
+
+			@Override
+			public int size() {
+				return structure.getExonCount();
+			}
+		};
+	}
+
+	/**
+	 * Sets the exons of the transcript; the exons are copied, so later changes to them are not seen.
+	 */
 	public void setExons(List<Exon> exons) {
-		this.exons = exons;
+		this.structure = exons == null ? null : TranscriptStructure.of(exons, codingStart, codingEnd);
 	}
 	
 	public int getExonsCount() {
@@ -79,7 +110,7 @@ public class Transcript {
 	}
 	
 	public void setExonsCount() {
-		this.exonsCount = exons.size();
+		this.exonsCount = structure.getExonCount();
 	}
 	
 	public void setExonsCount(int exonsCount) {
@@ -87,29 +118,27 @@ public class Transcript {
 	}
 
 	public int getNumberOfExons() {
-		return exons.size();
+		return structure.getExonCount();
 	}
 	
+	/**
+	 * Gets a read-only view of the exon starts.
+	 */
 	public List<Integer> getExonStarts() {
-		List<Integer> exonStarts = new ArrayList<Integer>();
-		for (Exon exon : exons) {
-			exonStarts.add(exon.getStart());
-		}
-		return exonStarts;
+		return structure.getExonStarts();
 	}
 	
+	/**
+	 * Gets a read-only view of the exon ends.
+	 */
 	public List<Integer> getExonEnds() {
-		List<Integer> exonEnds = new ArrayList<Integer>();
-		for (Exon exon : exons) {
-			exonEnds.add(exon.getEnd());
-		}
-		return exonEnds;
+		return structure.getExonEnds();
 	}
 	
 	public List<Integer> getBounderies() {
 		List<Integer> bounderies = new ArrayList<Integer>();
-		bounderies.add(exons.get(0).getStart()+1);
-		bounderies.add(exons.get(exons.size()-1).getEnd());
+		bounderies.add(structure.getExonStart(0)+1);
+		bounderies.add(structure.getExonEnd(structure.getExonCount()-1));
 		return bounderies;
 	}
 	
@@ -131,9 +160,24 @@ public class Transcript {
 	}
 
 	public int getExonIndexByStartPos(int start) {
-		if (getExonStarts().contains(start))
-			return getExonStarts().indexOf(start);
-		return -1;
+		return structure.getExonIndexByStart(start);
+	}
+
+	/**
+	 * Gets the index of the exon containing a 1-based genomic position, -1 if none.
+	 */
+	public int getExonIndexByPosition(int position) {
+		return structure == null ? -1 : structure.getExonIndex(position);
+	}
+
+	/**
+	 * Gets the 1-based position in the coding sequence of a 1-based genomic position,
+	 * -1 if the position is not in a coding part of an exon.
+	 */
+	public int getCDSPosition(int position) {
+		if (structure == null)
+			return -1;
+		return structure.getCDSPosition(position, !StrandOrientation.REVERSE.equals(orientation));
 	}
 
 	public List<Exon> getExonsInRange(int i1, int i2) {
@@ -0,0 +1,129 @@
+package org.rcsb.geneprot.genes.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index over the coding ranges of transcripts that allows to retrieve
+ * the transcripts overlapping a genomic position without scanning the whole list.
+ *
+ * For every chromosome the coding ranges are kept in primitive arrays sorted by
+ * the coding start, together with the running maximum of the coding end. A lookup
+ * is a binary search followed by a backward scan that stops as soon as no earlier
+ * range can reach the queried position.
+ *
+ * @author Yana Valasatava
+ */
+public class TranscriptIntervalIndex {
+
+	private final List<Transcript> transcripts;
+	private final Map<String, ChromosomeIntervals> chromosomes = new HashMap<>();
+
+	public TranscriptIntervalIndex(List<Transcript> transcripts) {
+
+		this.transcripts = transcripts;
+
+		Map<String, List<Integer>> byChromosome = new HashMap<>();
+		for (int i = 0; i < transcripts.size(); i++) {
+			String chromosome = transcripts.get(i).getChromosomeName();
+			List<Integer> ids = byChromosome.get(chromosome);
+			if (ids == null) {
+				ids = new ArrayList<>();
+				byChromosome.put(chromosome, ids);
+			}
+			ids.add(i);
+		}
+
+		for (Map.Entry<String, List<Integer>> entry : byChromosome.entrySet()) {
+			chromosomes.put(entry.getKey(), new ChromosomeIntervals(transcripts, entry.getValue()));
+		}
+	}
+
+	/**
+	 * Gets the transcripts on a given chromosome whose coding range contains the position
+	 * (both ends inclusive). Transcripts are returned in the order of the original list.
+	 *
+	 * @param chromosome - chromosome name (e.g., chr21)
+	 * @param position - genomic coordinate
+	 * @return list of transcripts, empty if none overlaps the position
+	 */
+	public List<Transcript> getOverlapping(String chromosome, long position) {
+
+		ChromosomeIntervals intervals = chromosomes.get(chromosome);
+		if (intervals == null)
+			return Collections.emptyList();
+
+		int[] hits = intervals.query(position);
+		List<Transcript> overlapping = new ArrayList<>(hits.length);
+		for (int id : hits) {
+			overlapping.add(transcripts.get(id));
+		}
+		return overlapping;
+	}
+
+	public int size() {
+		return transcripts.size();
+	}
+
+	private static class ChromosomeIntervals {
+
+		private final int[] starts;
+		private final int[] ends;
+		private final int[] maxEnds;
+		private final int[] ids;
+
+		ChromosomeIntervals(List<Transcript> transcripts, List<Integer> members) {
+
+			Integer[] order = members.toArray(new Integer[members.size()]);
+			Arrays.sort(order, (a, b) -> Integer.compare(transcripts.get(a).getCodingStart(), transcripts.get(b).getCodingStart()));
+
+			int n = order.length;
+			starts = new int[n];
+			ends = new int[n];
+			maxEnds = new int[n];
+			ids = new int[n];
+
+			for (int i = 0; i < n; i++) {
+				Transcript t = transcripts.get(order[i]);
+				ids[i] = order[i];
+				starts[i] = t.getCodingStart();
+				ends[i] = t.getCodingEnd();
+				maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+			}
+		}
+
+		int[] query(long position) {
+
+			// index of the last range that starts at or before the position
+			int lo = 0;
+			int hi = starts.length - 1;
+			int last = -1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (starts[mid] <= position) {
+					last = mid;
+					lo = mid + 1;
+				} else {
+					hi = mid - 1;
+				}
+			}
+
+			int count = 0;
+			int[] hits = new int[4];
+			for (int i = last; i >= 0 && maxEnds[i] >= position; i--) {
+				if (ends[i] >= position) {
+					if (count == hits.length)
+						hits = Arrays.copyOf(hits, count * 2);
+					hits[count++] = ids[i];
+				}
+			}
+			hits = Arrays.copyOf(hits, count);
+			Arrays.sort(hits);
+			return hits;
+		}
+	}
+}
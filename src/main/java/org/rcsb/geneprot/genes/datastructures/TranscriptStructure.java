@@ -0,0 +1,303 @@
+package org.rcsb.geneprot.genes.datastructures;
+
+import org.biojava.nbio.core.sequence.transcription.Frame;
+import org.rcsb.geneprot.genes.constants.ExonFrameOffset;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact representation of the exons of a transcript and of its coding range.
+ *
+ * The exon coordinates are kept in int arrays, the phases and frames in byte arrays, in the order
+ * the exons were given. The coding length of the exons preceding each exon in genomic order is
+ * computed once, so that mapping a genomic position to the CDS or finding the exon of a position
+ * is a binary search. Coordinates are as in refFlat: exon starts and the coding start are 0-based,
+ * exon ends and the coding end are 1-based; the exons of a transcript do not overlap.
+ *
+ * Instances are immutable.
+ *
+ * @author Yana Valasatava
+ */
+public final class TranscriptStructure implements Serializable {
+
+	private static final long serialVersionUID = -3176449870527396305L;
+
+	private static final ExonFrameOffset[] PHASES = ExonFrameOffset.values();
+	private static final Frame[] FRAMES = Frame.values();
+
+	private final int[] exonStarts;
+	private final int[] exonEnds;
+	// ordinal + 1 of the phase and frame of each exon, 0 if not set
+	private final byte[] phases;
+	private final byte[] frames;
+
+	// the indexes of the exons sorted by start, null if the exons are already sorted
+	private final int[] order;
+
+	private final int codingStart;
+	private final int codingEnd;
+	// codingOffsets[k] is the coding length of the exons before the k-th exon in genomic order
+	private final int[] codingOffsets;
+	private final int codingLength;
+
+	private TranscriptStructure(int[] exonStarts, int[] exonEnds, byte[] phases, byte[] frames, int[] order,
+								int codingStart, int codingEnd) {
+
+		this.exonStarts = exonStarts;
+		this.exonEnds = exonEnds;
+		this.phases = phases;
+		this.frames = frames;
+		this.order = order;
+		this.codingStart = codingStart;
+		this.codingEnd = codingEnd;
+
+		int n = exonStarts.length;
+		codingOffsets = new int[n];
+		int length = 0;
+		for (int k = 0; k < n; k++) {
+			codingOffsets[k] = length;
+			int i = index(k);
+			length += Math.max(0, Math.min(exonEnds[i], codingEnd) - Math.max(exonStarts[i], codingStart));
+		}
+		codingLength = length;
+	}
+
+	/**
+	 * Creates the structure of a transcript from its exons; the exons are copied.
+	 */
+	public static TranscriptStructure of(List<Exon> exons, int codingStart, int codingEnd) {
+
+		int n = exons.size();
+		int[] starts = new int[n];
+		int[] ends = new int[n];
+		byte[] phases = new byte[n];
+		byte[] frames = new byte[n];
+		for (int i = 0; i < n; i++) {
+			Exon exon = exons.get(i);
+			starts[i] = exon.getStart();
+			ends[i] = exon.getEnd();
+			phases[i] = (byte) (exon.getPhase() == null ? 0 : exon.getPhase().ordinal() + 1);
+			frames[i] = (byte) (exon.getFrame() == null ? 0 : exon.getFrame().ordinal() + 1);
+		}
+		return new TranscriptStructure(starts, ends, phases, frames, sortedOrder(starts), codingStart, codingEnd);
+	}
+
+	/**
+	 * Gets the same exons with another coding range.
+	 */
+	public TranscriptStructure withCodingRange(int codingStart, int codingEnd) {
+		return new TranscriptStructure(exonStarts, exonEnds, phases, frames, order, codingStart, codingEnd);
+	}
+
+	private static int[] sortedOrder(int[] starts) {
+
+		boolean sorted = true;
+		for (int i = 1; i < starts.length && sorted; i++)
+			sorted = starts[i - 1] <= starts[i];
+		if (sorted)
+			return null;
+
+		// start in the high bits, so sorting the longs sorts the indexes by start
+		long[] keys = new long[starts.length];
+		for (int i = 0; i < starts.length; i++)
+			keys[i] = (long) starts[i] << 32 | i;
+		Arrays.sort(keys);
+
+		int[] order = new int[starts.length];
+		for (int k = 0; k < keys.length; k++)
+			order[k] = (int) keys[k];
+		return order;
+	}
+
+	private int index(int k) {
+		return order == null ? k : order[k];
+	}
+
+	public int getExonCount() {
+		return exonStarts.length;
+	}
+
+	public int getExonStart(int i) {
+		return exonStarts[i];
+	}
+
+	public int getExonEnd(int i) {
+		return exonEnds[i];
+	}
+
+	public int getCodingStart() {
+		return codingStart;
+	}
+
+	public int getCodingEnd() {
+		return codingEnd;
+	}
+
+	/**
+	 * Gets the number of coding bases of the transcript.
+	 */
+	public int getCodingLength() {
+		return codingLength;
+	}
+
+	public ExonFrameOffset getPhase(int i) {
+		return phases[i] == 0 ? null : PHASES[phases[i] - 1];
+	}
+
+	public Frame getFrame(int i) {
+		return frames[i] == 0 ? null : FRAMES[frames[i] - 1];
+	}
+
+	/**
+	 * Gets a new Exon object for the i-th exon.
+	 */
+	public Exon getExon(int i) {
+
+		Exon exon = new Exon();
+		exon.setStart(exonStarts[i]);
+		exon.setEnd(exonEnds[i]);
+		exon.setPhase(getPhase(i));
+		exon.setFrame(getFrame(i));
+		return exon;
+	}
+
+	/**
+	 * Gets a read-only view of the exon starts.
+	 */
+	public List<Integer> getExonStarts() {
+		return new IntListView(exonStarts);
+	}
+
+	/**
+	 * Gets a read-only view of the exon ends.
+	 */
+	public List<Integer> getExonEnds() {
+		return new IntListView(exonEnds);
+	}
+
+	/**
+	 * Gets the index of the exon with the given start, -1 if no exon starts there.
+	 */
+	public int getExonIndexByStart(int start) {
+
+		int k = search(start);
+		if (k < 0)
+			return -1;
+		// the first of the exons with that start, as List.indexOf
+		int index = index(k);
+		for (k = k - 1; k >= 0 && exonStarts[index(k)] == start; k--)
+			index = Math.min(index, index(k));
+		return index;
+	}
+
+	/**
+	 * Gets the index of the exon containing a genomic position, -1 if the position is not in an exon.
+	 *
+	 * @param position - 1-based genomic coordinate
+	 */
+	public int getExonIndex(int position) {
+
+		int k = findExon(position);
+		return k < 0 ? -1 : index(k);
+	}
+
+	/**
+	 * Gets the position in the coding sequence of a genomic position. The position is counted from
+	 * the start codon: from the coding start on the forward strand and from the coding end on the reverse strand.
+	 *
+	 * @param position - 1-based genomic coordinate
+	 * @param forward - true if the transcript is on the forward strand
+	 * @return the 1-based CDS position, -1 if the position is not in a coding part of an exon
+	 */
+	public int getCDSPosition(int position, boolean forward) {
+
+		if (position <= codingStart || position > codingEnd)
+			return -1;
+
+		int k = findExon(position);
+		if (k < 0)
+			return -1;
+
+		int offset = codingOffsets[k] + position - Math.max(exonStarts[index(k)], codingStart);
+		return forward ? offset : codingLength - offset + 1;
+	}
+
+	/**
+	 * Gets the position in genomic order of the exon containing a 1-based position, -1 if none.
+	 */
+	private int findExon(int position) {
+
+		// the last exon starting before the position
+		int k = search(position - 1);
+		if (k < 0)
+			k = -k - 2;
+		else
+			while (k + 1 < exonStarts.length && exonStarts[index(k + 1)] == position - 1)
+				k++;
+		if (k < 0 || position > exonEnds[index(k)])
+			return -1;
+		return k;
+	}
+
+	/**
+	 * A binary search of the exon starts in genomic order, with the result of {@link Arrays#binarySearch(int[], int)}.
+	 */
+	private int search(int start) {
+
+		if (order == null)
+			return Arrays.binarySearch(exonStarts, start);
+
+		int low = 0;
+		int high = order.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int value = exonStarts[order[mid]];
+			if (value < start)
+				low = mid + 1;
+			else if (value > start)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	private static final class IntListView extends AbstractList<Integer> {
+
+		private final int[] values;
+
+		IntListView(int[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Integer get(int index) {
+			return values[index];
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			if (o instanceof Integer) {
+				int value = (Integer) o;
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] == value)
+						return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return indexOf(o) >= 0;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package org.rcsb.geneprot.genes.expression;
+
+import org.rcsb.geneprot.genes.datastructures.Transcript;
+import org.rcsb.geneprot.genes.datastructures.TranscriptStructure;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of assembled coding sequences.
+ *
+ * The cache is keyed by the transcript GeneBank ID together with its exon layout and
+ * holds the spliced CDS as a byte array (one ASCII byte per base). The capacity is
+ * expressed in bytes: the least recently used sequences are evicted once the total
+ * size of the cached sequences exceeds the limit.
+ *
+ * @author Yana Valasatava
+ */
+public class CodingSequenceCache {
+
+	public static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+
+	// approximate per-entry cost of the map entry, the key and the array header
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final long capacity;
+	private final LinkedHashMap<Key, byte[]> sequences = new LinkedHashMap<>(256, 0.75f, true);
+
+	private long size;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public CodingSequenceCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity - maximum total size of the cached sequences in bytes
+	 */
+	public CodingSequenceCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Gets the cached coding sequence of a transcript.
+	 *
+	 * @return the sequence or null if it is not in the cache
+	 */
+	public synchronized byte[] get(Transcript transcript) {
+
+		byte[] sequence = sequences.get(new Key(transcript));
+		if (sequence == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return sequence;
+	}
+
+	public synchronized void put(Transcript transcript, byte[] sequence) {
+
+		Key key = new Key(transcript);
+		if (weight(key, sequence) > capacity)
+			return;
+
+		byte[] previous = sequences.put(key, sequence);
+		if (previous != null)
+			size -= weight(key, previous);
+		size += weight(key, sequence);
+
+		Iterator<Map.Entry<Key, byte[]>> it = sequences.entrySet().iterator();
+		while (size > capacity && it.hasNext()) {
+			Map.Entry<Key, byte[]> eldest = it.next();
+			if (eldest.getKey().equals(key))
+				break;
+			size -= weight(eldest.getKey(), eldest.getValue());
+			it.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized void clear() {
+		sequences.clear();
+		size = 0;
+	}
+
+	public synchronized int getEntriesCount() {
+		return sequences.size();
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "CodingSequenceCache [entries=" + sequences.size() + ", size=" + size + "/" + capacity
+				+ ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+	private static long weight(Key key, byte[] sequence) {
+		return sequence.length + 8L * key.exonStarts.length + ENTRY_OVERHEAD;
+	}
+
+	private static class Key {
+
+		private final String geneBankId;
+		private final String chromosome;
+		private final int codingStart;
+		private final int codingEnd;
+		private final int[] exonStarts;
+		private final int[] exonEnds;
+		private final int hash;
+
+		Key(Transcript transcript) {
+
+			geneBankId = transcript.getGeneBankId();
+			chromosome = transcript.getChromosomeName();
+			codingStart = transcript.getCodingStart();
+			codingEnd = transcript.getCodingEnd();
+
+			TranscriptStructure structure = transcript.getStructure();
+			int n = structure.getExonCount();
+			exonStarts = new int[n];
+			exonEnds = new int[n];
+			for (int i = 0; i < n; i++) {
+				exonStarts[i] = structure.getExonStart(i);
+				exonEnds[i] = structure.getExonEnd(i);
+			}
+
+			int h = geneBankId == null ? 0 : geneBankId.hashCode();
+			h = 31 * h + (chromosome == null ? 0 : chromosome.hashCode());
+			h = 31 * h + codingStart;
+			h = 31 * h + codingEnd;
+			h = 31 * h + Arrays.hashCode(exonStarts);
+			h = 31 * h + Arrays.hashCode(exonEnds);
+			hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return hash == other.hash
+					&& codingStart == other.codingStart
+					&& codingEnd == other.codingEnd
+					&& (geneBankId == null ? other.geneBankId == null : geneBankId.equals(other.geneBankId))
+					&& (chromosome == null ? other.chromosome == null : chromosome.equals(other.chromosome))
+					&& Arrays.equals(exonStarts, other.exonStarts)
+					&& Arrays.equals(exonEnds, other.exonEnds);
+		}
+	}
+}
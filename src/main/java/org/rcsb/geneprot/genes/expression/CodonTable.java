@@ -0,0 +1,171 @@
+package org.rcsb.geneprot.genes.expression;
+
+import java.util.Arrays;
+
+/**
+ * The standard genetic code (NCBI translation table 1) as a static lookup table.
+ *
+ * Every base is encoded in 2 bits (T/U=0, C=1, A=2, G=3) and a codon is the 6-bit
+ * index of its amino acid in a 64-entry table, so codons and whole coding sequences
+ * are translated without creating any sequence objects. Bases are case-insensitive;
+ * a codon with an ambiguous or unknown base translates to X.
+ *
+ * The translation of a sequence follows the BioJava transcription engine used elsewhere
+ * in the project: a trailing incomplete codon is ignored and a trailing stop codon is trimmed.
+ *
+ * @author Yana Valasatava
+ */
+public class CodonTable {
+
+	public static final char STOP = '*';
+	public static final char UNKNOWN = 'X';
+
+	private static final char[] AMINO_ACIDS =
+			"FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG".toCharArray();
+
+	// initiation codons of table 1: TTG, CTG, ATG
+	private static final boolean[] STARTS = new boolean[64];
+
+	private static final byte[] CODES = new byte[256];
+
+	private static final String[] AMINO_ACID_STRINGS = new String[128];
+
+	static {
+		Arrays.fill(CODES, (byte) -1);
+		CODES['T'] = CODES['t'] = 0;
+		CODES['U'] = CODES['u'] = 0;
+		CODES['C'] = CODES['c'] = 1;
+		CODES['A'] = CODES['a'] = 2;
+		CODES['G'] = CODES['g'] = 3;
+
+		STARTS[index(0, 0, 3)] = true;
+		STARTS[index(1, 0, 3)] = true;
+		STARTS[index(2, 0, 3)] = true;
+
+		for (char aa : AMINO_ACIDS) {
+			AMINO_ACID_STRINGS[aa] = String.valueOf(aa);
+		}
+		AMINO_ACID_STRINGS[UNKNOWN] = String.valueOf(UNKNOWN);
+	}
+
+	private static int index(int b1, int b2, int b3) {
+		return b1 << 4 | b2 << 2 | b3;
+	}
+
+	/**
+	 * Gets the 2-bit code of a nucleotide.
+	 *
+	 * @return the code or -1 if the base is not one of A, C, G, T or U
+	 */
+	public static int encode(int base) {
+		return CODES[base & 0xFF];
+	}
+
+	/**
+	 * Gets the 6-bit codon index of three bases.
+	 *
+	 * @return the index or -1 if any of the bases is ambiguous
+	 */
+	public static int getCodonIndex(int b1, int b2, int b3) {
+		int c1 = encode(b1);
+		int c2 = encode(b2);
+		int c3 = encode(b3);
+		if ((c1 | c2 | c3) < 0)
+			return -1;
+		return index(c1, c2, c3);
+	}
+
+	public static char translate(int b1, int b2, int b3) {
+		int index = getCodonIndex(b1, b2, b3);
+		return index < 0 ? UNKNOWN : AMINO_ACIDS[index];
+	}
+
+	public static char translate(byte[] sequence, int offset) {
+		return translate(sequence[offset], sequence[offset + 1], sequence[offset + 2]);
+	}
+
+	public static char translate(CharSequence codon) {
+		return translate(codon.charAt(0), codon.charAt(1), codon.charAt(2));
+	}
+
+	public static boolean isStart(int b1, int b2, int b3) {
+		int index = getCodonIndex(b1, b2, b3);
+		return index >= 0 && STARTS[index];
+	}
+
+	public static boolean isStop(int b1, int b2, int b3) {
+		return translate(b1, b2, b3) == STOP;
+	}
+
+	/**
+	 * Translates a single codon to its amino acid as a one-letter string. The strings
+	 * are shared constants, and a stop codon gives an empty string, the same as
+	 * {@link Ribosome#getProteinSequence(String)}.
+	 */
+	public static String getAminoAcid(CharSequence codon) {
+		if (codon.length() < 3)
+			return "";
+		char aa = translate(codon);
+		return aa == STOP ? "" : AMINO_ACID_STRINGS[aa];
+	}
+
+	/**
+	 * Translates the bases [from, to) of a coding sequence into a caller supplied buffer.
+	 *
+	 * @param sequence - nucleotide sequence, one ASCII byte per base
+	 * @param from - index of the first base of the first codon
+	 * @param to - end of the coding sequence (exclusive); an incomplete last codon is ignored
+	 * @param initMet - translate an alternative initiation codon at the first position to M
+	 * @param protein - buffer for the amino acids, at least (to - from) / 3 long
+	 * @return number of amino acids written, without the trailing stop
+	 */
+	public static int translate(byte[] sequence, int from, int to, boolean initMet, char[] protein) {
+
+		int length = 0;
+		for (int i = from; i + 3 <= to; i += 3) {
+			protein[length++] = translate(sequence, i);
+		}
+		if (initMet && length > 0 && isStart(sequence[from], sequence[from + 1], sequence[from + 2]))
+			protein[0] = 'M';
+		if (length > 0 && protein[length - 1] == STOP)
+			length--;
+		return length;
+	}
+
+	/**
+	 * Translates the reverse complement of the bases [from, to) of a sequence into a caller
+	 * supplied buffer. The codons are read backwards from the end and complemented on the fly,
+	 * so the reverse strand is never written out.
+	 *
+	 * @see #translate(byte[], int, int, boolean, char[])
+	 */
+	public static int translateReverse(byte[] sequence, int from, int to, boolean initMet, char[] protein) {
+
+		int length = 0;
+		for (int i = to - 1; i - 2 >= from; i -= 3) {
+			protein[length++] = translate(Nucleotides.complement(sequence[i]),
+					Nucleotides.complement(sequence[i - 1]), Nucleotides.complement(sequence[i - 2]));
+		}
+		if (initMet && length > 0 && isStart(Nucleotides.complement(sequence[to - 1]),
+				Nucleotides.complement(sequence[to - 2]), Nucleotides.complement(sequence[to - 3])))
+			protein[0] = 'M';
+		if (length > 0 && protein[length - 1] == STOP)
+			length--;
+		return length;
+	}
+
+	public static String translate(byte[] sequence, boolean initMet) {
+		char[] protein = new char[sequence.length / 3];
+		int length = translate(sequence, 0, sequence.length, initMet, protein);
+		return new String(protein, 0, length);
+	}
+
+	/**
+	 * Translates the reverse complement of a sequence.
+	 */
+	public static String translateReverse(byte[] sequence, boolean initMet) {
+		char[] protein = new char[sequence.length / 3];
+		int length = translateReverse(sequence, 0, sequence.length, initMet, protein);
+		return new String(protein, 0, length);
+	}
+}
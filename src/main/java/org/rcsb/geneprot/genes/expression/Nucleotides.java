@@ -0,0 +1,79 @@
+package org.rcsb.geneprot.genes.expression;
+
+/**
+ * Operations on nucleotide sequences held as ASCII bytes, one byte per base.
+ *
+ * Complements are looked up in 256-entry tables, so no sequence objects are created and
+ * reverse complements are computed in place. The complement keeps the case of the base
+ * and covers the IUPAC ambiguity codes; U complements to A, and any other byte is kept as is.
+ *
+ * @author Yana Valasatava
+ */
+public class Nucleotides {
+
+	private static final byte[] COMPLEMENT = new byte[256];
+	private static final byte[] UPPER_CASE_COMPLEMENT = new byte[256];
+	private static final byte[] UPPER_CASE = new byte[256];
+
+	static {
+		for (int i = 0; i < 256; i++) {
+			COMPLEMENT[i] = (byte) i;
+			UPPER_CASE[i] = (byte) (i >= 'a' && i <= 'z' ? i - 'a' + 'A' : i);
+		}
+		String bases =       "ACGTUMRWSYKVHDBN";
+		String complements = "TGCAAKYWSRMBDHVN";
+		for (int i = 0; i < bases.length(); i++) {
+			char b = bases.charAt(i);
+			char c = complements.charAt(i);
+			COMPLEMENT[b] = (byte) c;
+			COMPLEMENT[Character.toLowerCase(b)] = (byte) Character.toLowerCase(c);
+		}
+		for (int i = 0; i < 256; i++) {
+			UPPER_CASE_COMPLEMENT[i] = UPPER_CASE[COMPLEMENT[i] & 0xFF];
+		}
+	}
+
+	public static byte complement(byte base) {
+		return COMPLEMENT[base & 0xFF];
+	}
+
+	/**
+	 * Reverse complements a sequence in place.
+	 */
+	public static void reverseComplement(byte[] sequence) {
+		reverseComplement(sequence, 0, sequence.length, false);
+	}
+
+	/**
+	 * Reverse complements the bases [from, to) of a sequence in place.
+	 *
+	 * @param upperCase - also convert the bases to upper case
+	 */
+	public static void reverseComplement(byte[] sequence, int from, int to, boolean upperCase) {
+
+		byte[] table = upperCase ? UPPER_CASE_COMPLEMENT : COMPLEMENT;
+		for (int i = from, j = to - 1; i <= j; i++, j--) {
+			byte b = table[sequence[i] & 0xFF];
+			sequence[i] = table[sequence[j] & 0xFF];
+			sequence[j] = b;
+		}
+	}
+
+	/**
+	 * Writes the reverse complement of the bases [from, to) of a sequence into another buffer.
+	 */
+	public static void reverseComplement(byte[] sequence, int from, int to, byte[] buffer, int offset) {
+		for (int i = to - 1; i >= from; i--) {
+			buffer[offset++] = COMPLEMENT[sequence[i] & 0xFF];
+		}
+	}
+
+	/**
+	 * Converts the bases [from, to) of a sequence to upper case in place.
+	 */
+	public static void toUpperCase(byte[] sequence, int from, int to) {
+		for (int i = from; i < to; i++) {
+			sequence[i] = UPPER_CASE[sequence[i] & 0xFF];
+		}
+	}
+}
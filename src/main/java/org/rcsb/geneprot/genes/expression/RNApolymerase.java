@@ -1,19 +1,17 @@
 package org.rcsb.geneprot.genes.expression;
 
-import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
-import org.biojava.nbio.core.sequence.template.SequenceView;
 import org.rcsb.geneprot.genes.constants.StrandOrientation;
 import org.rcsb.geneprot.genes.datastructures.Exon;
 import org.rcsb.geneprot.common.io.DataLocationProvider;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
 import org.biojava.nbio.core.sequence.DNASequence;
 import org.biojava.nbio.genome.parsers.twobit.SimpleTwoBitFileProvider;
-import org.biojava.nbio.genome.parsers.twobit.TwoBitFacade;
-import org.biojava.nbio.genome.util.ChromosomeMappingTools;
 import org.rcsb.geneprot.genes.datastructures.Transcript;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class RNApolymerase implements Serializable  {
@@ -23,20 +21,32 @@ public class RNApolymerase implements Serializable  {
 	 */
 	private static final long serialVersionUID = -6996001236685762558L;
 
-	public int getmRNAPositionForGeneticCoordinate(int coordinate, Transcript transcript) {
+	private transient CodingSequenceCache cache;
+	private final long cacheCapacity;
 
-		if ( transcript.getOrientation().equals(StrandOrientation.FORWARD)) {
-			return ChromosomeMappingTools.getCDSPosForward(coordinate,
-					transcript.getExonStarts(),
-					transcript.getExonEnds(),
-					transcript.getCodingStart(),
-					transcript.getCodingEnd());
-		}
-		return ChromosomeMappingTools.getCDSPosReverse(coordinate,
-				transcript.getExonStarts(),
-				transcript.getExonEnds(),
-				transcript.getCodingStart(),
-				transcript.getCodingEnd());
+	public RNApolymerase() {
+		this(CodingSequenceCache.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param cacheCapacity - maximum size in bytes of the coding sequences kept in memory
+	 */
+	public RNApolymerase(long cacheCapacity) {
+		this.cacheCapacity = cacheCapacity;
+	}
+
+	public CodingSequenceCache getCache() {
+		if (cache == null)
+			cache = new CodingSequenceCache(cacheCapacity);
+		return cache;
+	}
+
+	/**
+	 * Gets the 1-based position in the coding sequence of a genomic coordinate, -1 if the
+	 * coordinate is not in a coding part of an exon. This is a binary search over the exons.
+	 */
+	public int getmRNAPositionForGeneticCoordinate(int coordinate, Transcript transcript) {
+		return transcript.getCDSPosition(coordinate);
 	}
 
 	public String getCodon(int cds, String codingSequence) throws IOException {
@@ -55,49 +65,121 @@ public class RNApolymerase implements Serializable  {
 		}
 		return codon.toString();
 	}
-	
+
+	public String getCodon(int cds, byte[] codingSequence) {
+
+		int offset = cds%3;
+
+		int start = cds-3;
+		if (offset==1) {
+			start = cds-1;
+		}
+		else if (offset==2) {
+			start = cds-2;
+		}
+		return new String(codingSequence, start, 3, StandardCharsets.US_ASCII);
+	}
+
 	public String getCodingSequence(Transcript transcript) throws Exception {
+		return new String(getCodingSequenceBytes(transcript), StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Gets the spliced coding sequence of a transcript as ASCII bytes. The sequences are
+	 * cached, so that repeated calls for the same transcript do not read the genome again.
+	 */
+	public byte[] getCodingSequenceBytes(Transcript transcript) throws Exception {
+
+		byte[] sequence = getCache().get(transcript);
+		if (sequence != null)
+			return sequence;
 
 		char orientation = '+';
 		if ( transcript.getOrientation().equals(StrandOrientation.REVERSE) ) {
 			orientation = '-';
 		}
 
-		return getCodingSequence(transcript.getChromosomeName(),
+		sequence = getCodingSequenceBytes(getGenome(), transcript.getChromosomeName(),
 				transcript.getExonStarts(), transcript.getExonEnds(),
-				transcript.getCodingStart(), transcript.getCodingEnd(), orientation).toString();
+				transcript.getCodingStart(), transcript.getCodingEnd(), orientation);
+		getCache().put(transcript, sequence);
+		return sequence;
 	}
 	
 	public DNASequence getCodingSequence(String chromosome, List<Integer> exonStarts, List<Integer> exonEnds,
 									int codingStart, int codingEnd, char orientation) throws Exception {
 
+		return new DNASequence(getCodingSequence(getGenome(), chromosome, exonStarts, exonEnds, codingStart, codingEnd, orientation));
+	}
+
+	private static TwoBitGenome getGenome() throws Exception {
+
 		File twoBitFileLocalLocation = new File(DataLocationProvider.getGenomeLocation());
 		SimpleTwoBitFileProvider.downloadIfNoTwoBitFileExists(twoBitFileLocalLocation, "hg38");
-		TwoBitFacade twoBitFacade = new TwoBitFacade(twoBitFileLocalLocation);
+		return TwoBitGenome.getInstance(twoBitFileLocalLocation);
+	}
+
+	/**
+	 * Gets the spliced coding sequence of a transcript in upper case, reverse complemented for
+	 * transcripts on the reverse strand. Exon and CDS coordinates are 0-based half-open as in refFlat.
+	 */
+	public static String getCodingSequence(TwoBitGenome genome, String chromosome, List<Integer> exonStarts, List<Integer> exonEnds,
+										   int codingStart, int codingEnd, char orientation) throws IOException {
+		return new String(getCodingSequenceBytes(genome, chromosome, exonStarts, exonEnds, codingStart, codingEnd, orientation),
+				StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Gets the spliced coding sequence of a transcript as ASCII bytes, see
+	 * {@link #getCodingSequence(TwoBitGenome, String, List, List, int, int, char)}. The exons are read
+	 * into a single array of the length of the CDS, which is then reverse complemented in place.
+	 */
+	public static byte[] getCodingSequenceBytes(TwoBitGenome genome, String chromosome, List<Integer> exonStarts, List<Integer> exonEnds,
+										   int codingStart, int codingEnd, char orientation) throws IOException {
+
+		int length = 0;
+		for (int i = 0; i < exonStarts.size(); i++) {
+			length += Math.max(0, Math.min(exonEnds.get(i), codingEnd) - Math.max(exonStarts.get(i), codingStart));
+		}
 
-		DNASequence transcribedDNASequence = ChromosomeMappingTools.getTranscriptDNASequence(twoBitFacade,
-				chromosome, exonStarts, exonEnds, codingStart, codingEnd, orientation);
+		byte[] sequence = new byte[length];
+		int offset = 0;
+		for (int i = 0; i < exonStarts.size(); i++) {
+			int start = Math.max(exonStarts.get(i), codingStart);
+			int end = Math.min(exonEnds.get(i), codingEnd);
+			if (start < end)
+				offset += genome.getSequence(chromosome, start, end, sequence, offset);
+		}
 
-		return transcribedDNASequence;
+		if (orientation == '-') {
+			Nucleotides.reverseComplement(sequence, 0, length, true);
+		} else {
+			Nucleotides.toUpperCase(sequence, 0, length);
+		}
+		return sequence;
 	}
 
-	public static DNASequence getCodingSequence(TwoBitFacade twoBitFacade, String chromosome, StrandOrientation orientation, List<Exon> exons) throws Exception {
+	public static DNASequence getCodingSequence(TwoBitGenome genome, String chromosome, StrandOrientation orientation, List<Exon> exons) throws Exception {
 
-		String dnaSequence = "";
+		int length = 0;
 		for (Exon e : exons) {
-			dnaSequence += twoBitFacade.getSequence(chromosome, e.getStart()-1, e.getEnd());
+			length += e.getEnd() - e.getStart() + 1;
+		}
+		byte[] sequence = new byte[length];
+		int offset = 0;
+		for (Exon e : exons) {
+			offset += genome.getSequence(chromosome, e.getStart()-1, e.getEnd(), sequence, offset);
 		}
 
 		if(orientation.equals(StrandOrientation.REVERSE)) {
-			dnaSequence = (new StringBuilder(dnaSequence)).reverse().toString();
-			DNASequence dna = new DNASequence(dnaSequence);
-			SequenceView<NucleotideCompound> compliment = dna.getComplement();
-			dnaSequence = compliment.getSequenceAsString();
+			Nucleotides.reverseComplement(sequence, 0, length, true);
+		} else {
+			Nucleotides.toUpperCase(sequence, 0, length);
 		}
-		return new DNASequence(dnaSequence.toUpperCase());
+		return new DNASequence(new String(sequence, StandardCharsets.US_ASCII));
 	}
 
-	public static String getExonSequence(TwoBitFacade twoBitFacade, String chromosome, String orientation, Exon exon) throws Exception {
+	public static String getExonSequence(TwoBitGenome genome, String chromosome, String orientation, Exon exon) throws Exception {
 
 		String transcription = "";
 		if (!orientation.equals("+")) {
@@ -108,11 +190,10 @@ public class RNApolymerase implements Serializable  {
 
 			int start = (exon.getStart() + correction) - 1;
 			int end = start + length;
-			transcription = twoBitFacade.getSequence(chromosome, start, end);
-			transcription = new StringBuilder(transcription).reverse().toString();
-			DNASequence dna = new DNASequence(transcription);
-			SequenceView<NucleotideCompound> compliment = dna.getComplement();
-			transcription = compliment.getSequenceAsString();
+			byte[] sequence = new byte[length];
+			genome.getSequence(chromosome, start, end, sequence, 0);
+			Nucleotides.reverseComplement(sequence);
+			transcription = new String(sequence, StandardCharsets.US_ASCII);
 		} else {
 
 			int length = (exon.getEnd() - (exon.getStart() + exon.getPhase().getValue())) + 1;
@@ -121,7 +202,7 @@ public class RNApolymerase implements Serializable  {
 
 			int start = (exon.getStart() + correction) - 1;
 			int end = start + length;
-			transcription = twoBitFacade.getSequence(chromosome, start, end);
+			transcription = genome.getSequence(chromosome, start, end);
 		}
 		return transcription;
 	}
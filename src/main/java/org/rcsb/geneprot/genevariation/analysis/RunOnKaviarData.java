@@ -16,40 +16,57 @@ import org.rcsb.geneprot.genes.parsers.GenePredictionsParser;
 import org.rcsb.geneprot.genevariation.constants.VariantType;
 import org.rcsb.geneprot.genevariation.datastructures.Mutation;
 import org.rcsb.geneprot.genevariation.datastructures.VcfContainer;
-import org.rcsb.geneprot.genevariation.mapfunctions.FilterCodingRegion;
+import org.rcsb.geneprot.genevariation.filters.IVariantDataFilter;
+import org.rcsb.geneprot.genevariation.filters.VariantColumns;
+import org.rcsb.geneprot.genevariation.filters.VariantDataFilterChromosome;
+import org.rcsb.geneprot.genevariation.io.VariantsDataProvider;
 import org.rcsb.geneprot.genevariation.mapfunctions.FilterSNPs;
 import org.rcsb.geneprot.genevariation.mapfunctions.MapToVcfContainer;
+import org.rcsb.geneprot.genevariation.utils.CodingRegionJoin;
 import org.rcsb.geneprot.genevariation.utils.VariationUtils;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+import scala.collection.JavaConversions;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class RunOnKaviarData {
 
     private static String filepathVCF = DataLocationProvider.getDataHome() + "vcfs/Kaviar-160204-Public-hg38-trim.vcf";
     private static String filepathParquet = DataLocationProvider.getDataHome() + "parquet/Kaviar-database";
+    private static String kaviarGenomeMappingParquet = DataLocationProvider.getDataHome() + "parquet/Kaviar-hg-mapping";
+
+    // columns of the Kaviar to genome mapping that are not in CommonConstants
+    private static final String COL_GENE_SYMBOL = "geneSymbol";
+    private static final String COL_UNIPROT_CANONICAL_POS = "uniProtCanonicalPos";
+    private static final String COL_VARIANT = "variant";
 
     public static void run() throws Exception {
 
         long start = System.nanoTime();
 
-        JavaSparkContext sc = SparkUtils.getSparkContext();
+        SparkSession sparkSession = SparkUtils.getSparkSession();
         List<GeneChromosomePosition> transcripts = GenePredictionsParser.getGeneChromosomePositions();
-        Broadcast<List<GeneChromosomePosition>> transcriptsBroadcast = sc.broadcast(transcripts);
+        Dataset<Row> intervals = CodingRegionJoin.getCodingIntervals(sparkSession, transcripts);
 
         Encoder<VcfContainer> vcfContainerEncoder = Encoders.bean(VcfContainer.class);
 
-        SparkUtils.getSparkSession().read()
+        Dataset<Row> snps = sparkSession.read()
                 .format("com.databricks.spark.csv")
                 .option("header", "false")
                 .option("delimiter", "\t")
                 .option("comment", "#")
                 .load(filepathVCF)
                 .flatMap(new MapToVcfContainer(), vcfContainerEncoder)
-                .filter(new FilterCodingRegion(transcriptsBroadcast))
                 .filter(new FilterSNPs())
+                .toDF();
+
+        // the coding regions of the whole genome are joined by bin rather than broadcast
+        CodingRegionJoin.filterCodingRegion(snps, CommonConstants.COL_CHROMOSOME, CommonConstants.COL_POSITION,
+                    intervals, CodingRegionJoin.DEFAULT_BIN_SIZE)
                 .write().mode(SaveMode.Overwrite).parquet(DataLocationProvider.getDataHome() + "parquet/coding-snps-Kaviar.parquet");
 
         System.out.println("Done: " + (System.nanoTime() - start) / 1E9 + " sec.");
@@ -71,6 +88,13 @@ public class RunOnKaviarData {
         System.out.println("Done: " + (System.nanoTime() - start) / 1E9 + " sec.");
     }
 
+    /**
+     * Reads the Kaviar variants accepted by the filter. The filter is pushed down into the Parquet scan.
+     */
+    public static Dataset<Row> readKaviar(IVariantDataFilter dataFilter) {
+        return VariantsDataProvider.readVariantsFromParquet(filepathParquet, dataFilter, VariantColumns.VCF_CONTAINER);
+    }
+
     public static void readKaviar() {
 
         long start = System.nanoTime();
@@ -80,50 +104,55 @@ public class RunOnKaviarData {
         System.out.println("Done: " + (System.nanoTime() - start) / 1E9 + " sec.");
     }
 
+    /**
+     * Joins Kaviar variants with the human genome mapping in one job. Both inputs are read once
+     * and hash partitioned by chromosome and position, so the join needs no further shuffle.
+     * The result is written partitioned by chromosome; a single chromosome is read back with
+     * a filter on the chromosome column (partition pruning).
+     */
     public static void mapKaviarOnHumanGenome() {
 
         long start = System.nanoTime();
 
-        Dataset<Row> df = SparkUtils.getSparkSession().read().parquet(filepathParquet);
-        df.persist();
-
         String[] chromosomes = {"chr1", "chr2", "chr3", "chr4", "chr5", "chr6", "chr7", "chr8", "chr9", "chr10", "chr11",
                 "chr12", "chr13", "chr14", "chr15", "chr16", "chr17", "chr18", "chr19", "chr20", "chr21", "chr22", "chrX", "chrY"};
 
-        for (String chr : chromosomes) {
-
-            System.out.println("getting the data for the chromosome " + chr);
-            Dataset<Row> chrom = SparkUtils.getSparkSession().read().parquet(DataLocationProvider.getHgMappingLocation()+chr);
-            Dataset<Row> mapping = df.join(chrom, chrom.col("chromosome").equalTo(df.col("chromosome"))
-                    .and(chrom.col("position").equalTo(df.col("position"))));
-            mapping.write().mode(SaveMode.Overwrite).parquet(DataLocationProvider.getDataHome() + "parquet/Kaviar-hg-mapping/" + chr);
+        String[] paths = new String[chromosomes.length];
+        for (int i = 0; i < chromosomes.length; i++) {
+            paths[i] = DataLocationProvider.getHgMappingLocation() + chromosomes[i];
         }
-        System.out.println("Done: " + (System.nanoTime() - start) / 1E9 + " sec.");
-    }
 
-    public static void writeKaviarOnHumanGenome() throws AnalysisException {
+        Column chromosome = functions.col(CommonConstants.COL_CHROMOSOME);
+        Column position = functions.col(CommonConstants.COL_POSITION);
 
-        Dataset<Row> all = null;
-//		String[] chromosomes = {"chr1", "chr2", "chr3", "chr4", "chr5", "chr6", "chr7", "chr8", "chr9", "chr10", "chr11",
-//				"chr12", "chr13", "chr14", "chr15", "chr16", "chr17", "chr18", "chr19",  "chr20", "chr21", "chr22", "chrX", "chrY"};
+        Dataset<Row> kaviar = SparkUtils.getSparkSession().read().parquet(filepathParquet)
+                .repartition(chromosome, position);
+        Dataset<Row> genome = SparkUtils.getSparkSession().read().parquet(paths)
+                .repartition(chromosome, position);
 
-        String[] chromosomes = {"chr21"};
+        kaviar.join(genome, JavaConversions.asScalaBuffer(Arrays.asList(CommonConstants.COL_CHROMOSOME, CommonConstants.COL_POSITION)).toSeq())
+                .write().mode(SaveMode.Overwrite)
+                .partitionBy(CommonConstants.COL_CHROMOSOME)
+                .parquet(kaviarGenomeMappingParquet);
 
-        for (String chr : chromosomes) {
+        System.out.println("Done: " + (System.nanoTime() - start) / 1E9 + " sec.");
+    }
 
-            String filepath = DataLocationProvider.getDataHome() + "parquet/Kaviar-hg-mapping/" + chr;
-            Dataset<Row> mapping = SparkUtils.getSparkSession().read().parquet(filepath);
-            mapping.createOrReplaceTempView("mapping");
+    /**
+     * Reads the Kaviar to genome mapping of a chromosome. Only the partition of the chromosome is scanned.
+     */
+    public static Dataset<Row> readKaviarOnHumanGenome(String chr) {
+        Dataset<Row> mapping = SparkUtils.getSparkSession().read().parquet(kaviarGenomeMappingParquet);
+        return mapping.filter(mapping.col(CommonConstants.COL_CHROMOSOME).equalTo(chr));
+    }
 
-            Dataset<Row> coding = SparkUtils.getSparkSession().sql("select * from mapping where inCoding=true");
+    public static void writeKaviarOnHumanGenome() throws AnalysisException {
 
-            if (all == null) {
-                all = coding;
-            } else {
-                all = all.union(coding);
-            }
-        }
-        all.write().mode(SaveMode.Overwrite).parquet(DataLocationProvider.getDataHome() + "parquet/Kaviar-hg-mapping-coding/");
+        Dataset<Row> mapping = SparkUtils.getSparkSession().read().parquet(kaviarGenomeMappingParquet);
+        mapping.filter(mapping.col("inCoding").equalTo(true))
+                .write().mode(SaveMode.Overwrite)
+                .partitionBy(CommonConstants.COL_CHROMOSOME)
+                .parquet(DataLocationProvider.getDataHome() + "parquet/Kaviar-hg-mapping-coding/");
     }
 
     public static void mapKaviarToMutations() throws AnalysisException, Exception {
@@ -143,22 +172,17 @@ public class RunOnKaviarData {
             File f = new File(System.getProperty("user.home")+"/data/genevariation/hg38.2bit");
             TwoBitFacade twoBitFacade = new TwoBitFacade(f);
 
-            String filepath = DataLocationProvider.getDataHome() + "parquet/Kaviar-hg-mapping/" + chr;
-            Dataset<Row> mapping = SparkUtils.getSparkSession().read().parquet(filepath).distinct();
+            Dataset<Row> mapping = readKaviarOnHumanGenome(chr).distinct();
 
-            Dataset<Row> filtered = mapping.filter((FilterFunction<Row>) (Row row) -> {
-                if (row.get(4).equals(true)) {
-                    return true;
-                        }
-                return false;
-            }).drop(mapping.col("inCoding")).filter(new FilterFunction<Row>() {
+            Dataset<Row> filtered = mapping.filter(mapping.col("inCoding").equalTo(true))
+                    .drop(mapping.col("inCoding")).filter(new FilterFunction<Row>() {
 
                         private static final long serialVersionUID = 8450775587033110761L;
 
                         @Override
                         public boolean call(Row row) throws Exception {
-                            String wildtype = row.get(6).toString();
-                            String mutation = row.get(7).toString();
+                            String wildtype = row.getAs(CommonConstants.COL_ORIGINAL).toString();
+                            String mutation = row.getAs(COL_VARIANT).toString();
                             if (VariationUtils.checkType(wildtype, mutation).compareTo(VariantType.SNP) == 0) {
                                 return true;
                             }
@@ -170,15 +194,21 @@ public class RunOnKaviarData {
             List<Row> snps = filtered.collectAsList();
             for (Row row :snps) {
 
+                String chromosome = row.getAs(CommonConstants.COL_CHROMOSOME).toString();
+                String geneSymbol = row.getAs(COL_GENE_SYMBOL).toString();
+                int position = ((Number) row.getAs(CommonConstants.COL_POSITION)).intValue();
+                char orientation = row.getAs(CommonConstants.COL_ORIENTATION).toString().charAt(0);
+                String variant = row.getAs(COL_VARIANT).toString();
+
                 for (GeneChromosomePosition cp : transcripts) {
-                    if (cp.getChromosome().equals(row.get(2).toString()) && cp.getGeneName().equals(row.get(0).toString()) && (cp.getCdsStart() <= row.getInt(3) && cp.getCdsEnd() >= row.getInt(3))) {
+                    if (cp.getChromosome().equals(chromosome) && cp.getGeneName().equals(geneSymbol) && (cp.getCdsStart() <= position && cp.getCdsEnd() >= position)) {
 
-                        int mRNAPos = ChromosomeMappingTools.getCDSPosForChromosomeCoordinate(row.getInt(3), cp);
+                        int mRNAPos = ChromosomeMappingTools.getCDSPosForChromosomeCoordinate(position, cp);
                         if (mRNAPos == -1)
                             continue;
 
                         DNASequence dnaSequence = mapper.getTranscriptDNASequence(twoBitFacade, chr, cp.getExonStarts(), cp.getExonEnds(),
-                                cp.getCdsStart(), cp.getCdsEnd(), row.get(8).toString().charAt(0));
+                                cp.getCdsStart(), cp.getCdsEnd(), orientation);
 
                         String transcript = dnaSequence.getSequenceAsString();
                         if (transcript.equals(""))
@@ -188,25 +218,25 @@ public class RunOnKaviarData {
                         String codon = polymerase.getCodon(mRNAPos, transcript);
 
                         String mutBase;
-                        if (row.get(8).toString().charAt(0) == '+') {
-                            mutBase = row.get(7).toString();
+                        if (orientation == '+') {
+                            mutBase = variant;
                         } else {
-                            mutBase = VariationUtils.reverseComplimentaryBase(row.get(7).toString());
+                            mutBase = VariationUtils.reverseComplimentaryBase(variant);
                         }
 
                         String codonM = "";
-                        if (row.get(8).toString().charAt(0) == '+') {
+                        if (orientation == '+') {
                             codonM = VariationUtils.mutateCodonForward(mRNAPos, codon, mutBase);
                         } else {
                             codonM = VariationUtils.mutateCodonReverse(mRNAPos, codon, mutBase);
                         }
 
                         Mutation mutation = new Mutation();
-                        mutation.setChromosomeName(row.get(2).toString());
+                        mutation.setChromosomeName(chromosome);
                         mutation.setGeneBankId(cp.getGenebankId());
-                        mutation.setPosition(Long.valueOf(row.get(3).toString()));
-                        mutation.setUniProtId(row.get(4).toString());
-                        mutation.setUniProtPos(Integer.valueOf(row.get(5).toString()));
+                        mutation.setPosition(position);
+                        mutation.setUniProtId(row.getAs(CommonConstants.COL_UNIPROT_ACCESSION).toString());
+                        mutation.setUniProtPos(Integer.valueOf(row.getAs(COL_UNIPROT_CANONICAL_POS).toString()));
                         mutation.setRefAminoAcid(Ribosome.getProteinSequence(codon));
                         mutation.setMutAminoAcid(Ribosome.getProteinSequence(codonM));
 
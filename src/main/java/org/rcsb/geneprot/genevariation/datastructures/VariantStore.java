@@ -0,0 +1,377 @@
+package org.rcsb.geneprot.genevariation.datastructures;
+
+import org.rcsb.geneprot.genevariation.constants.VariantType;
+import org.rcsb.geneprot.genevariation.filters.IVariantDataFilter;
+import org.rcsb.geneprot.genevariation.utils.VariationUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A columnar store of variants.
+ *
+ * Instead of one object per variant the store keeps a column per attribute: an interned
+ * chromosome id, the position and a flags byte holding the variant type and the strand.
+ * The alleles of single nucleotide variants are packed into the same byte (2 bits per base);
+ * all other alleles (indels, monomorphic sites, multi-base or ambiguous substitutions)
+ * go to an overflow pool of ASCII bytes that is only referenced by the rows that need it.
+ *
+ * Variants are read back as {@link VariantInterface} views, which are created on demand.
+ * The views are read-only.
+ *
+ * @author Yana Valasatava
+ */
+public class VariantStore implements Iterable<VariantInterface> {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private static final VariantType[] TYPES = VariantType.values();
+	private static final String[] BASES = {"A", "C", "G", "T"};
+
+	// flags: bits 0-1 type, bit 2 reverse, bit 3 overflow, bits 4-5 ref base, bits 6-7 alt base
+	private static final int TYPE_MASK = 0x03;
+	private static final int REVERSE = 0x04;
+	private static final int OVERFLOW = 0x08;
+	private static final int REF_SHIFT = 4;
+	private static final int ALT_SHIFT = 6;
+
+	private final List<String> chromosomeNames = new ArrayList<>();
+	private final Map<String, Integer> chromosomeIds = new HashMap<>();
+
+	private int size;
+	private short[] chromosomes;
+	private int[] positions;
+	private byte[] flags;
+
+	// rows with alleles in the pool (ascending), the allele boundaries in the pool and the pool itself
+	private int overflowCount;
+	private int[] overflowRows = new int[16];
+	private int[] overflowOffsets = new int[33];
+	private int poolSize;
+	private byte[] pool = new byte[256];
+
+	public VariantStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public VariantStore(int capacity) {
+		capacity = Math.max(capacity, 16);
+		chromosomes = new short[capacity];
+		positions = new int[capacity];
+		flags = new byte[capacity];
+	}
+
+	/**
+	 * Adds a variant. The type is derived from the alleles the same way as for the variant
+	 * objects (see {@link VariationUtils#checkType(String, String)}).
+	 *
+	 * @param chromosome - chromosome name (e.g., chr21)
+	 * @param position - 1-based genomic position
+	 * @param ref - reference allele
+	 * @param alt - alternative allele
+	 * @param reverse - the alleles are reported on the reverse strand
+	 * @return index of the added variant
+	 */
+	public int add(String chromosome, long position, String ref, String alt, boolean reverse) {
+
+		if (position < 0 || position > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Position out of range: " + position);
+
+		VariantType type = VariationUtils.checkType(ref, alt);
+
+		ensureCapacity(size + 1);
+		int row = size;
+
+		chromosomes[row] = getChromosomeId(chromosome);
+		positions[row] = (int) position;
+
+		int f = type.ordinal();
+		if (reverse)
+			f |= REVERSE;
+
+		int refCode = type == VariantType.SNP && ref.length() == 1 ? encode(ref.charAt(0)) : -1;
+		int altCode = refCode < 0 ? -1 : encode(alt.charAt(0));
+		if (altCode < 0) {
+			f |= OVERFLOW;
+			addOverflow(row, ref, alt);
+		} else {
+			f |= refCode << REF_SHIFT | altCode << ALT_SHIFT;
+		}
+		flags[row] = (byte) f;
+
+		size++;
+		return row;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public VariantInterface get(int index) {
+		checkIndex(index);
+		return new View(index);
+	}
+
+	public String getChromosomeName(int index) {
+		checkIndex(index);
+		return chromosomeNames.get(chromosomes[index]);
+	}
+
+	public long getPosition(int index) {
+		checkIndex(index);
+		return positions[index];
+	}
+
+	public VariantType getType(int index) {
+		checkIndex(index);
+		return TYPES[flags[index] & TYPE_MASK];
+	}
+
+	public boolean isReverse(int index) {
+		checkIndex(index);
+		return (flags[index] & REVERSE) != 0;
+	}
+
+	/**
+	 * Gets the reference allele as reported in the VCF file.
+	 */
+	public String getRef(int index) {
+		checkIndex(index);
+		if ((flags[index] & OVERFLOW) == 0)
+			return BASES[(flags[index] >> REF_SHIFT) & 0x03];
+		int k = 2 * findOverflow(index);
+		return decode(overflowOffsets[k], overflowOffsets[k + 1]);
+	}
+
+	/**
+	 * Gets the alternative allele as reported in the VCF file.
+	 */
+	public String getAlt(int index) {
+		checkIndex(index);
+		if ((flags[index] & OVERFLOW) == 0)
+			return BASES[(flags[index] >> ALT_SHIFT) & 0x03];
+		int k = 2 * findOverflow(index);
+		return decode(overflowOffsets[k + 1], overflowOffsets[k + 2]);
+	}
+
+	/**
+	 * Gets the names of the chromosomes in the order of their ids.
+	 */
+	public List<String> getChromosomeNames() {
+		return new ArrayList<>(chromosomeNames);
+	}
+
+	/**
+	 * Gets the indices of the variants accepted by the filter. The filter is called with a
+	 * single view that is moved from row to row, so it must not keep a reference to it.
+	 */
+	public int[] select(IVariantDataFilter dataFilter) {
+
+		int count = 0;
+		int[] selected = new int[Math.min(size, DEFAULT_CAPACITY)];
+		View cursor = new View(0);
+		for (int i = 0; i < size; i++) {
+			cursor.row = i;
+			if (dataFilter.filter(cursor)) {
+				if (count == selected.length)
+					selected = Arrays.copyOf(selected, count + (count >> 1) + 1);
+				selected[count++] = i;
+			}
+		}
+		return Arrays.copyOf(selected, count);
+	}
+
+	/**
+	 * Creates a new store with the variants accepted by the filter.
+	 */
+	public VariantStore filter(IVariantDataFilter dataFilter) {
+
+		int[] selected = select(dataFilter);
+		VariantStore filtered = new VariantStore(selected.length);
+		for (int i : selected) {
+			filtered.add(getChromosomeName(i), positions[i], getRef(i), getAlt(i), (flags[i] & REVERSE) != 0);
+		}
+		return filtered;
+	}
+
+	@Override
+	public Iterator<VariantInterface> iterator() {
+		return new Iterator<VariantInterface>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public VariantInterface next() {
+				if (next >= size)
+					throw new NoSuchElementException();
+				return new View(next++);
+			}
+		};
+	}
+
+	/**
+	 * Releases the unused capacity of the columns and of the overflow pool.
+	 */
+	public void trimToSize() {
+		chromosomes = Arrays.copyOf(chromosomes, size);
+		positions = Arrays.copyOf(positions, size);
+		flags = Arrays.copyOf(flags, size);
+		overflowRows = Arrays.copyOf(overflowRows, overflowCount);
+		overflowOffsets = Arrays.copyOf(overflowOffsets, 2 * overflowCount + 1);
+		pool = Arrays.copyOf(pool, poolSize);
+	}
+
+	/**
+	 * Gets an estimate of the heap used by the arrays of the store in bytes.
+	 */
+	public long getMemoryFootprint() {
+		return 2L * chromosomes.length + 4L * positions.length + flags.length
+				+ 4L * overflowRows.length + 4L * overflowOffsets.length + pool.length;
+	}
+
+	private short getChromosomeId(String chromosome) {
+
+		Integer id = chromosomeIds.get(chromosome);
+		if (id == null) {
+			if (chromosomeNames.size() > Short.MAX_VALUE)
+				throw new IllegalStateException("Too many chromosomes in the store: " + chromosomeNames.size());
+			id = chromosomeNames.size();
+			chromosomeNames.add(chromosome);
+			chromosomeIds.put(chromosome, id);
+		}
+		return id.shortValue();
+	}
+
+	private void ensureCapacity(int capacity) {
+
+		if (capacity <= positions.length)
+			return;
+		int grown = Math.max(capacity, positions.length + (positions.length >> 1));
+		chromosomes = Arrays.copyOf(chromosomes, grown);
+		positions = Arrays.copyOf(positions, grown);
+		flags = Arrays.copyOf(flags, grown);
+	}
+
+	private void addOverflow(int row, String ref, String alt) {
+
+		if (overflowCount == overflowRows.length) {
+			int grown = overflowCount + (overflowCount >> 1) + 1;
+			overflowRows = Arrays.copyOf(overflowRows, grown);
+			overflowOffsets = Arrays.copyOf(overflowOffsets, 2 * grown + 1);
+		}
+		overflowRows[overflowCount] = row;
+
+		int k = 2 * overflowCount;
+		overflowOffsets[k] = poolSize;
+		append(ref);
+		overflowOffsets[k + 1] = poolSize;
+		append(alt);
+		overflowOffsets[k + 2] = poolSize;
+
+		overflowCount++;
+	}
+
+	private void append(String allele) {
+
+		int length = allele.length();
+		if (poolSize + length > pool.length)
+			pool = Arrays.copyOf(pool, Math.max(poolSize + length, pool.length + (pool.length >> 1)));
+		for (int i = 0; i < length; i++) {
+			pool[poolSize++] = (byte) allele.charAt(i);
+		}
+	}
+
+	private int findOverflow(int row) {
+		return Arrays.binarySearch(overflowRows, 0, overflowCount, row);
+	}
+
+	private String decode(int from, int to) {
+		return new String(pool, from, to - from, StandardCharsets.US_ASCII);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+	}
+
+	private static int encode(char base) {
+		switch (base) {
+			case 'A': return 0;
+			case 'C': return 1;
+			case 'G': return 2;
+			case 'T': return 3;
+			default: return -1;
+		}
+	}
+
+	/**
+	 * A read-only view of a row of the store. The bases of a reverse strand SNP are
+	 * complemented, as {@link SNP} does; the alleles of other variants are returned as
+	 * reported in the VCF file.
+	 */
+	private class View implements VariantInterface {
+
+		private int row;
+
+		View(int row) {
+			this.row = row;
+		}
+
+		@Override
+		public String getChromosomeName() {
+			return chromosomeNames.get(chromosomes[row]);
+		}
+
+		@Override
+		public long getPosition() {
+			return positions[row];
+		}
+
+		@Override
+		public VariantType getType() {
+			return TYPES[flags[row] & TYPE_MASK];
+		}
+
+		@Override
+		public void setVariation(String ref, String alt) {
+			throw new UnsupportedOperationException("Variants of a VariantStore are read-only");
+		}
+
+		@Override
+		public String getRefBase() {
+			return strand(getRef(row));
+		}
+
+		@Override
+		public String getAltBase() {
+			return strand(getAlt(row));
+		}
+
+		@Override
+		public void setReverse(boolean reverse) {
+			throw new UnsupportedOperationException("Variants of a VariantStore are read-only");
+		}
+
+		@Override
+		public boolean isReverse() {
+			return (flags[row] & REVERSE) != 0;
+		}
+
+		private String strand(String allele) {
+			if (isReverse() && getType() == VariantType.SNP)
+				return VariationUtils.reverseComplimentaryBase(allele);
+			return allele;
+		}
+	}
+}
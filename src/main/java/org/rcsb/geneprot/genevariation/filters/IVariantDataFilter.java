@@ -1,5 +1,6 @@
 package org.rcsb.geneprot.genevariation.filters;
 
+import org.apache.spark.sql.Column;
 import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
 
 /**
@@ -7,6 +8,9 @@ import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
  * User can create the custom filter class by implementing this filter and invoke the filter based methods 
  * to apply the filter.
  * 
+ * The same filter can be applied to a Spark dataset of variants as a {@link Column} expression,
+ * so that the chromosome and position conditions are pushed down into the Parquet scan.
+ * 
  * @author Yana Valasatava
  */
 
@@ -14,4 +18,13 @@ public interface IVariantDataFilter {
 
 	boolean filter(VariantInterface variant);
 
+	/**
+	 * Compiles the filter into a Spark column expression.
+	 * 
+	 * @param columns - names of the variant columns of the dataset
+	 * @return boolean column expression that keeps the same variants as {@link #filter(VariantInterface)}
+	 */
+	default Column toColumn(VariantColumns columns) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot be applied to a Spark dataset");
+	}
 }
@@ -0,0 +1,105 @@
+package org.rcsb.geneprot.genevariation.filters;
+
+import org.apache.spark.sql.Column;
+import org.rcsb.geneprot.genevariation.constants.VariantType;
+import org.rcsb.geneprot.genevariation.utils.VariationUtils;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+
+import java.io.Serializable;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.length;
+import static org.apache.spark.sql.functions.lit;
+
+/**
+ * Names of the columns that hold the variant attributes in a Spark dataset. Used to
+ * compile an {@link IVariantDataFilter} into a Spark {@link Column} expression.
+ *
+ * @author Yana Valasatava
+ */
+public class VariantColumns implements Serializable {
+
+	private static final long serialVersionUID = -6218745129470155803L;
+
+	/**
+	 * Columns of the datasets written from {@link org.rcsb.geneprot.genevariation.datastructures.VcfContainer}
+	 * (e.g., the Kaviar Parquet files).
+	 */
+	public static final VariantColumns VCF_CONTAINER = new VariantColumns(
+			CommonConstants.COL_CHROMOSOME, CommonConstants.COL_POSITION, "original", "variant");
+
+	/**
+	 * Columns of the datasets written from {@link org.rcsb.geneprot.genevariation.datastructures.Mutation}.
+	 * These datasets have no alleles, only SNPs are reported.
+	 */
+	public static final VariantColumns MUTATION = new VariantColumns(
+			"chromosomeName", CommonConstants.COL_POSITION, null, null);
+
+	private final String chromosome;
+	private final String position;
+	private final String ref;
+	private final String alt;
+
+	/**
+	 * @param chromosome - name of the chromosome column
+	 * @param position - name of the position column
+	 * @param ref - name of the reference allele column, null if there is none
+	 * @param alt - name of the alternative allele column, null if there is none
+	 */
+	public VariantColumns(String chromosome, String position, String ref, String alt) {
+		this.chromosome = chromosome;
+		this.position = position;
+		this.ref = ref;
+		this.alt = alt;
+	}
+
+	public Column chromosome() {
+		return col(chromosome);
+	}
+
+	public Column position() {
+		return col(position);
+	}
+
+	public Column ref() {
+		if (ref == null)
+			throw new UnsupportedOperationException("The dataset has no reference allele column");
+		return col(ref);
+	}
+
+	public Column alt() {
+		if (alt == null)
+			throw new UnsupportedOperationException("The dataset has no alternative allele column");
+		return col(alt);
+	}
+
+	/**
+	 * Gets the expression that checks the type of the variant from the lengths of the alleles,
+	 * the same way as {@link VariationUtils#checkType(String, String)}. On a dataset without
+	 * alleles every variant is an SNP.
+	 */
+	public Column isType(VariantType type) {
+
+		if ( !hasAlleles() )
+			return lit(type == VariantType.SNP);
+
+		Column refLength = length(ref());
+		Column altLength = length(alt());
+		switch (type) {
+			case SNP:
+				return refLength.equalTo(altLength).and(alt().notEqual("."));
+			case MONOMORPHIC:
+				return refLength.equalTo(altLength).and(alt().equalTo("."));
+			case INSERTION:
+				return refLength.lt(altLength);
+			case DELETION:
+				return refLength.gt(altLength);
+			default:
+				throw new IllegalArgumentException("Unknown variant type: " + type);
+		}
+	}
+
+	public boolean hasAlleles() {
+		return ref != null && alt != null;
+	}
+}
@@ -1,5 +1,6 @@
 package org.rcsb.geneprot.genevariation.filters;
 
+import org.apache.spark.sql.Column;
 import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
 
 public class VariantDataFilterChromosome implements IVariantDataFilter {
@@ -16,4 +17,9 @@ public class VariantDataFilterChromosome implements IVariantDataFilter {
 		}
 		return false;
 	}
+
+	@Override
+	public Column toColumn(VariantColumns columns) {
+		return columns.chromosome().equalTo(chr);
+	}
 }
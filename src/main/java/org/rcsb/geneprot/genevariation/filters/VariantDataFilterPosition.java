@@ -0,0 +1,36 @@
+package org.rcsb.geneprot.genevariation.filters;
+
+import org.apache.spark.sql.Column;
+import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
+
+/**
+ * Keeps the variants of a chromosome with the position in a given range (both ends inclusive).
+ * 
+ * @author Yana Valasatava
+ */
+public class VariantDataFilterPosition implements IVariantDataFilter {
+
+	private String chr;
+	private long start;
+	private long end;
+	public VariantDataFilterPosition(String chr, long start, long end) {
+		this.chr = chr;
+		this.start = start;
+		this.end = end;
+	}
+
+	@Override
+	public boolean filter(VariantInterface variant) {
+		if ( variant.getChromosomeName().equals(chr) && variant.getPosition() >= start && variant.getPosition() <= end ) {
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public Column toColumn(VariantColumns columns) {
+		return columns.chromosome().equalTo(chr)
+				.and(columns.position().geq(start))
+				.and(columns.position().leq(end));
+	}
+}
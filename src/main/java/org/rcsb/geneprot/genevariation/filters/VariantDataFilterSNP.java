@@ -1,5 +1,6 @@
 package org.rcsb.geneprot.genevariation.filters;
 
+import org.apache.spark.sql.Column;
 import org.rcsb.geneprot.genevariation.constants.VariantType;
 import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
 
@@ -12,4 +13,9 @@ public class VariantDataFilterSNP implements IVariantDataFilter {
 		}
 		return false;
 	}
+
+	@Override
+	public Column toColumn(VariantColumns columns) {
+		return columns.isType(VariantType.SNP);
+	}
 }
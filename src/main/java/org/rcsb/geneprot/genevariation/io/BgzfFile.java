@@ -0,0 +1,159 @@
+package org.rcsb.geneprot.genevariation.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access to a BGZF (blocked gzip) compressed file, as written by bgzip.
+ *
+ * A BGZF file is a series of gzip members of at most 64 KB each. A position in the
+ * file is a virtual offset: the offset of the compressed block in the file shifted
+ * left by 16 bits, plus the offset in the uncompressed block. Seeking to a virtual
+ * offset only inflates the block that contains it.
+ *
+ * @author Yana Valasatava
+ */
+public class BgzfFile implements Closeable {
+
+	private static final int HEADER_LENGTH = 18;
+	private static final int MAX_BLOCK_SIZE = 65536;
+
+	private final RandomAccessFile file;
+	private final Inflater inflater = new Inflater(true);
+
+	private final byte[] compressed = new byte[MAX_BLOCK_SIZE];
+	private final byte[] block = new byte[MAX_BLOCK_SIZE];
+	private int blockLength;
+	private int blockOffset;
+
+	private long blockAddress = -1;
+	private long nextBlockAddress;
+
+	private final StringBuilder line = new StringBuilder();
+
+	public BgzfFile(Path filepath) throws IOException {
+		file = new RandomAccessFile(filepath.toFile(), "r");
+	}
+
+	/**
+	 * Moves to a virtual offset.
+	 */
+	public void seek(long virtualOffset) throws IOException {
+
+		long address = virtualOffset >>> 16;
+		int offset = (int) (virtualOffset & 0xFFFF);
+		if (address != blockAddress)
+			readBlock(address);
+		if (offset > blockLength)
+			throw new IOException("Invalid virtual offset " + virtualOffset + ": block has " + blockLength + " bytes");
+		blockOffset = offset;
+	}
+
+	/**
+	 * Gets the virtual offset of the next byte to be read.
+	 */
+	public long getVirtualOffset() {
+		if (blockOffset == blockLength)
+			return nextBlockAddress << 16;
+		return blockAddress << 16 | blockOffset;
+	}
+
+	/**
+	 * Reads a line (without the line terminator), decoded as ASCII.
+	 *
+	 * @return the line or null at the end of the file
+	 */
+	public String readLine() throws IOException {
+
+		line.setLength(0);
+		boolean read = false;
+		while (true) {
+			if (blockOffset == blockLength) {
+				if (nextBlockAddress >= file.length() || !readBlock(nextBlockAddress))
+					return read ? line.toString() : null;
+				if (blockLength == 0)
+					continue;
+			}
+			read = true;
+			int start = blockOffset;
+			while (blockOffset < blockLength && block[blockOffset] != '\n') {
+				blockOffset++;
+			}
+			line.append(new String(block, start, blockOffset - start, StandardCharsets.US_ASCII));
+			if (blockOffset < blockLength) {
+				blockOffset++;
+				int length = line.length();
+				if (length > 0 && line.charAt(length - 1) == '\r')
+					line.setLength(length - 1);
+				return line.toString();
+			}
+		}
+	}
+
+	private boolean readBlock(long address) throws IOException {
+
+		file.seek(address);
+		if (file.read(compressed, 0, HEADER_LENGTH) < HEADER_LENGTH)
+			return false;
+
+		if ((compressed[0] & 0xFF) != 31 || (compressed[1] & 0xFF) != 139 || (compressed[3] & 4) == 0)
+			throw new IOException("Not a BGZF block at offset " + address);
+
+		int extraLength = unsignedShort(compressed, 10);
+		int blockSize = -1;
+		byte[] extra = new byte[extraLength];
+		System.arraycopy(compressed, 12, extra, 0, Math.min(extraLength, HEADER_LENGTH - 12));
+		if (extraLength > HEADER_LENGTH - 12)
+			file.readFully(extra, HEADER_LENGTH - 12, extraLength - (HEADER_LENGTH - 12));
+		for (int i = 0; i + 4 <= extraLength; ) {
+			int length = unsignedShort(extra, i + 2);
+			if (extra[i] == 'B' && extra[i + 1] == 'C' && length == 2)
+				blockSize = unsignedShort(extra, i + 4) + 1;
+			i += 4 + length;
+		}
+		if (blockSize < 0)
+			throw new IOException("Missing BGZF block size at offset " + address);
+
+		int dataLength = blockSize - extraLength - 20;
+		file.seek(address + 12 + extraLength);
+		file.readFully(compressed, 0, dataLength + 8);
+		int size = compressed[dataLength + 4] & 0xFF | (compressed[dataLength + 5] & 0xFF) << 8
+				| (compressed[dataLength + 6] & 0xFF) << 16 | (compressed[dataLength + 7] & 0xFF) << 24;
+
+		inflater.reset();
+		inflater.setInput(compressed, 0, dataLength);
+		try {
+			int inflated = 0;
+			while (inflated < size) {
+				int n = inflater.inflate(block, inflated, size - inflated);
+				if (n == 0 && (inflater.finished() || inflater.needsInput()))
+					throw new EOFException("Truncated BGZF block at offset " + address);
+				inflated += n;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt BGZF block at offset " + address, e);
+		}
+
+		blockAddress = address;
+		nextBlockAddress = address + blockSize;
+		blockLength = size;
+		blockOffset = 0;
+		return true;
+	}
+
+	private static int unsignedShort(byte[] b, int i) {
+		return b[i] & 0xFF | (b[i + 1] & 0xFF) << 8;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		file.close();
+	}
+}
@@ -3,108 +3,162 @@ package org.rcsb.geneprot.genevariation.io;
 import org.biojava.nbio.core.util.InputStreamProvider;
 import org.biojava.nbio.genome.parsers.genename.GeneChromosomePosition;
 import org.biojava.nbio.genome.parsers.genename.GeneChromosomePositionParser;
-import org.biojava.nbio.genome.parsers.twobit.TwoBitParser;
 import org.rcsb.geneprot.common.io.DataLocationProvider;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
 import org.rcsb.geneprot.genes.constants.StrandOrientation;
 import org.rcsb.geneprot.genes.datastructures.Exon;
 import org.rcsb.geneprot.genes.datastructures.Gene;
 import org.rcsb.geneprot.genes.datastructures.Transcript;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
  * This class provides methods to retrieve genetic data from files.
- * 
+ *
+ * A provider is safe to share between threads: bases are read from the shared
+ * {@link TwoBitGenome} reader with positional reads, so there is no current chromosome,
+ * and the refFlat file is downloaded and parsed once, on first use, and then kept
+ * grouped by chromosome. The genes of several chromosomes can therefore be built
+ * in parallel (see {@link #getGenesByChromosome(List, ForkJoinPool)}).
+ *
  * @author Yana Valasatava
  */
 public class GenomeDataProvider {
-	
-	static TwoBitParser parser;
-	
-	private final static String DEFAULT_GENOME_URI = DataLocationProvider.getGenomeLocation();
+
+	public static final List<String> CHROMOSOMES = Collections.unmodifiableList(Arrays.asList(
+			"chr1", "chr2", "chr3", "chr4", "chr5", "chr6", "chr7", "chr8", "chr9", "chr10", "chr11",
+			"chr12", "chr13", "chr14", "chr15", "chr16", "chr17", "chr18", "chr19", "chr20", "chr21", "chr22", "chrX", "chrY"));
+
 	private static final String DEFAULT_MAPPING_URL = DataLocationProvider.getHumanGenomeAnnotationResourceFromUCSC();
-	
-	public static void readTwoBitFile(String path) throws Exception {
-		File f = new File(path);
-		parser = new TwoBitParser(f);
+
+	private final String genomePath;
+	private final String mappingUrl;
+
+	private volatile TwoBitGenome genome;
+	private volatile Map<String, List<GeneChromosomePosition>> positions;
+
+	/**
+	 * Creates a provider of the genome set in {@link DataLocationProvider} and the UCSC refFlat annotation.
+	 */
+	public GenomeDataProvider() {
+		this(DataLocationProvider.getGenomeLocation(), DEFAULT_MAPPING_URL);
 	}
-	
+
 	/**
-	 * Reads a genes from a locally stored .2bit file (hard-coded URI).
-	 * 
+	 * @param genomePath - path to a locally stored .2bit file
+	 * @param mappingUrl - URL of a refFlat file (may be gzipped)
 	 */
-	public static void readGenome() throws Exception {
-		File f = new File(DEFAULT_GENOME_URI);
-		parser = new TwoBitParser(f);
+	public GenomeDataProvider(String genomePath, String mappingUrl) {
+		this.genomePath = genomePath;
+		this.mappingUrl = mappingUrl;
 	}
-	
+
 	/**
-	 * Sets a chromosome number for TwoBitParser.
+	 * Creates a provider on an already parsed annotation.
 	 */
-	public static void setChromosome(String chr) throws Exception {
+	public GenomeDataProvider(TwoBitGenome genome, List<GeneChromosomePosition> gcps) {
+		this.genomePath = genome.getFile().getPath();
+		this.mappingUrl = null;
+		this.genome = genome;
+		this.positions = groupByChromosome(gcps);
+	}
 
-		String[] names = parser.getSequenceNames();
-		for(int i=0;i<names.length;i++) {
-			if ( names[i].equals("chr"+chr) ) {
-				parser.setCurrentSequence(names[i]);
-				break;
+	public TwoBitGenome getGenome() throws IOException {
+		if (genome == null)
+			genome = TwoBitGenome.getInstance(genomePath);
+		return genome;
+	}
+
+	/**
+	 * Gets the transcripts of the refFlat file. The file is read only on the first call.
+	 */
+	public List<GeneChromosomePosition> getGeneChromosomePositions() throws IOException {
+		return getPositions().values().stream().flatMap(List::stream).collect(Collectors.toList());
+	}
+
+	/**
+	 * Gets the transcripts of the refFlat file on a chromosome.
+	 *
+	 * @param chr - chromosome name with or without the chr prefix (e.g., 21 or chr21)
+	 */
+	public List<GeneChromosomePosition> getGeneChromosomePositions(String chr) throws IOException {
+		return getPositions().getOrDefault(getChromosomeName(chr), Collections.emptyList());
+	}
+
+	private Map<String, List<GeneChromosomePosition>> getPositions() throws IOException {
+
+		Map<String, List<GeneChromosomePosition>> map = positions;
+		if (map == null) {
+			synchronized (this) {
+				map = positions;
+				if (map == null) {
+					InputStreamProvider prov = new InputStreamProvider();
+					try (InputStream inStream = prov.getInputStream(new URL(mappingUrl))) {
+						map = groupByChromosome(GeneChromosomePositionParser.getChromosomeMappings(inStream));
+					}
+					positions = map;
+				}
 			}
 		}
+		return map;
+	}
+
+	private static Map<String, List<GeneChromosomePosition>> groupByChromosome(List<GeneChromosomePosition> gcps) {
+
+		Map<String, List<GeneChromosomePosition>> map = new LinkedHashMap<>();
+		for (GeneChromosomePosition gcp : gcps) {
+			map.computeIfAbsent(gcp.getChromosome(), k -> new ArrayList<>()).add(gcp);
+		}
+		for (Map.Entry<String, List<GeneChromosomePosition>> entry : map.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(map);
 	}
-	
-	public static List<GeneChromosomePosition> getGeneChromosomePositions() throws IOException {
-		
-		URL url = new URL(DEFAULT_MAPPING_URL);
-
-		InputStreamProvider prov = new InputStreamProvider();
-		InputStream inStream = prov.getInputStream(url);
-		
-		return GeneChromosomePositionParser.getChromosomeMappings(inStream);
+
+	private static String getChromosomeName(String chr) {
+		return chr.startsWith("chr") ? chr : "chr" + chr;
 	}
-	
+
 	/**
-	 * Gets a list of genes on a given chromosome
-	 * 
-	 * @throws Exception
+	 * Gets a list of genes on a given chromosome. The genes are in the order of their first
+	 * transcript in the refFlat file; every call returns new objects.
+	 *
+	 * @param chr - chromosome name with or without the chr prefix (e.g., 21 or chr21)
 	 */
-	public static List<Gene> getGenesFromChromosome(String chr) throws Exception {
-		
-		readGenome();
-		setChromosome(chr);
-
-		List<Gene> genes = new ArrayList<Gene>();
-		
-		List<GeneChromosomePosition> gcps = getGeneChromosomePositions();
-		
-		for (GeneChromosomePosition gcp : gcps) {
-						
-			Gene gene;
-			List<Gene> gList = genes.stream().filter(t -> t.getName().equals(gcp.getGeneName())).collect(Collectors.toList());
-			if ( gList.size() == 0 ) {
+	public List<Gene> getGenesFromChromosome(String chr) throws IOException {
+
+		Map<String, Gene> genes = new LinkedHashMap<>();
+		for (GeneChromosomePosition gcp : getGeneChromosomePositions(chr)) {
+
+			Gene gene = genes.get(gcp.getGeneName());
+			if ( gene == null ) {
 				gene = new Gene();
 				gene.setChromosome(gcp.getChromosome());
 				gene.setName(gcp.getGeneName());
-				genes.add(gene);
-			}
-			else {
-				gene = gList.get(0);
+				genes.put(gcp.getGeneName(), gene);
 			}
-			
+
 			Transcript transcript = new Transcript();
 			transcript.setGeneBankId(gcp.getGenebankId());
-			
+
 			transcript.setCodingStart(gcp.getCdsStart());
 			transcript.setCodingEnd(gcp.getCdsEnd());
-			
+
 			List<Integer> starts = gcp.getExonStarts();
 			List<Integer> ends = gcp.getExonEnds();
-			
+
 			List<Exon> exons = new ArrayList<Exon>();
 			for ( int i=0; i < starts.size(); i++ ) {
 				Exon e = new Exon();
@@ -113,7 +167,7 @@ public class GenomeDataProvider {
 				exons.add(e);
 			}
 			transcript.setExons(exons);
-			
+
 			switch (gcp.getOrientation()) {
 			case '+':
 				transcript.setOrientation(StrandOrientation.FORWARD);
@@ -121,13 +175,62 @@ public class GenomeDataProvider {
 			case '-':
 				transcript.setOrientation(StrandOrientation.REVERSE);
 				break;
-			}	
+			}
 			gene.addTranscript(transcript);
 		}
-		return genes;
+		return new ArrayList<>(genes.values());
+	}
+
+	/**
+	 * Gets the genes of the chromosomes, one task per chromosome on the pool.
+	 *
+	 * @return the genes by chromosome name, in the order of the given chromosomes
+	 */
+	public Map<String, List<Gene>> getGenesByChromosome(List<String> chromosomes, ForkJoinPool pool) throws IOException {
+
+		getPositions(); // read the annotation once, before the tasks start
+
+		Map<String, List<Gene>> genes;
+		try {
+			genes = pool.submit(() -> chromosomes.parallelStream()
+					.distinct()
+					.collect(Collectors.toConcurrentMap(chr -> chr, chr -> {
+						try {
+							return getGenesFromChromosome(chr);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}))).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while building the genes", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			throw new IOException("Could not build the genes", e.getCause());
+		}
+
+		Map<String, List<Gene>> ordered = new LinkedHashMap<>();
+		for (String chr : chromosomes) {
+			ordered.put(chr, genes.get(chr));
+		}
+		return ordered;
 	}
-		
-	public String readBaseFromChromosome(long position) throws Exception {
-		return parser.loadFragment(position-1, 1);
+
+	/**
+	 * Gets the genes of the 24 chromosomes, built in parallel on the common pool.
+	 */
+	public Map<String, List<Gene>> getGenesByChromosome() throws IOException {
+		return getGenesByChromosome(CHROMOSOMES, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Reads a base of a chromosome.
+	 *
+	 * @param chr - chromosome name with or without the chr prefix (e.g., 21 or chr21)
+	 * @param position - 1-based genomic position
+	 */
+	public String readBaseFromChromosome(String chr, long position) throws IOException {
+		return getGenome().getSequence(getChromosomeName(chr), (int) position - 1, (int) position);
 	}
 }
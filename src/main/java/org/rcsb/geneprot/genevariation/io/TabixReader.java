@@ -0,0 +1,252 @@
+package org.rcsb.geneprot.genevariation.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the lines of a bgzip compressed, tabix indexed file that overlap a genomic region.
+ *
+ * The .tbi index is loaded once; every query collects the chunks of the bins that can
+ * hold the region, skips the chunks that end before the first 16 kb window of the region
+ * (linear index) and seeks straight to the remaining ones.
+ *
+ * @author Yana Valasatava
+ */
+public class TabixReader implements Closeable {
+
+	private static final int LINEAR_SHIFT = 14;
+	// bins 0..37448 of the binning scheme; 37450 is the pseudo-bin with the index statistics
+	private static final int MAX_BIN = 37450;
+
+	private final BgzfFile file;
+
+	private int format;
+	private int colSeq;
+	private int colBeg;
+	private int colEnd;
+	private char meta;
+	private final Map<String, Integer> sequences = new HashMap<>();
+	private Map<Integer, long[]>[] bins;
+	private long[][] linearIndex;
+
+	public TabixReader(Path filepath) throws IOException {
+		this(filepath, Paths.get(filepath.toString() + ".tbi"));
+	}
+
+	public TabixReader(Path filepath, Path indexpath) throws IOException {
+		readIndex(indexpath);
+		file = new BgzfFile(filepath);
+	}
+
+	/**
+	 * Gets the names of the sequences in the index.
+	 */
+	public List<String> getSequenceNames() {
+		String[] names = new String[sequences.size()];
+		for (Map.Entry<String, Integer> entry : sequences.entrySet()) {
+			names[entry.getValue()] = entry.getKey();
+		}
+		return Arrays.asList(names);
+	}
+
+	public boolean hasSequence(String name) {
+		return sequences.containsKey(name);
+	}
+
+	/**
+	 * Hands over the lines of the features that overlap a region to the consumer, in the order of the file.
+	 *
+	 * @param sequence - sequence name as used in the file (e.g., 21 or chr21)
+	 * @param start - 1-based start of the region
+	 * @param end - 1-based end of the region (inclusive)
+	 */
+	public void query(String sequence, long start, long end, Consumer<String> consumer) throws IOException {
+
+		Integer tid = sequences.get(sequence);
+		if (tid == null || end < start)
+			return;
+
+		int beg = (int) Math.max(0, start - 1);
+		int stop = (int) Math.min(end, 1 << 29);
+
+		long[] linear = linearIndex[tid];
+		int window = beg >> LINEAR_SHIFT;
+		long minOffset = linear.length == 0 ? 0 : linear[Math.min(window, linear.length - 1)];
+
+		List<long[]> chunks = new ArrayList<>();
+		for (int bin : reg2bins(beg, stop)) {
+			long[] binChunks = bins[tid].get(bin);
+			if (binChunks == null)
+				continue;
+			for (int i = 0; i < binChunks.length; i += 2) {
+				if (binChunks[i + 1] > minOffset)
+					chunks.add(new long[]{Math.max(binChunks[i], minOffset), binChunks[i + 1]});
+			}
+		}
+		if (chunks.isEmpty())
+			return;
+		chunks.sort((a, b) -> Long.compare(a[0], b[0]));
+
+		// merge overlapping chunks, so that no line is read twice
+		List<long[]> merged = new ArrayList<>();
+		long[] current = chunks.get(0);
+		for (int i = 1; i < chunks.size(); i++) {
+			long[] chunk = chunks.get(i);
+			if (chunk[0] <= current[1]) {
+				current[1] = Math.max(current[1], chunk[1]);
+			} else {
+				merged.add(current);
+				current = chunk;
+			}
+		}
+		merged.add(current);
+
+		for (long[] chunk : merged) {
+			file.seek(chunk[0]);
+			while (file.getVirtualOffset() < chunk[1]) {
+				String line = file.readLine();
+				if (line == null)
+					return;
+				if (line.isEmpty() || line.charAt(0) == meta)
+					continue;
+				int overlap = overlaps(line, sequence, beg, stop);
+				if (overlap > 0)
+					return; // sorted file: the rest is past the region
+				if (overlap == 0)
+					consumer.accept(line);
+			}
+		}
+	}
+
+	/**
+	 * @return 0 if the line overlaps the 0-based half-open region, a negative value
+	 * if it is before the region or on another sequence, a positive value if it is after
+	 */
+	private int overlaps(String line, String sequence, int beg, int end) {
+
+		// the VCF reference allele is the 4th column
+		String[] fields = line.split("\t", Math.max(Math.max(colSeq, colBeg), Math.max(colEnd, 4)) + 1);
+		if ( !fields[colSeq - 1].equals(sequence) )
+			return -1;
+
+		int featureBeg = Integer.parseInt(fields[colBeg - 1]);
+		int featureEnd;
+		if ((format & 0xFFFF) == 2) {
+			// VCF: the feature spans the reference allele
+			featureBeg -= 1;
+			featureEnd = featureBeg + fields[3].length();
+		} else {
+			if ((format & 0x10000) == 0)
+				featureBeg -= 1;
+			featureEnd = colEnd > 0 ? Integer.parseInt(fields[colEnd - 1]) : featureBeg + 1;
+		}
+
+		if (featureBeg >= end)
+			return 1;
+		if (featureEnd <= beg)
+			return -1;
+		return 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readIndex(Path indexpath) throws IOException {
+
+		ByteBuffer buffer;
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(indexpath))) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] b = new byte[65536];
+			for (int n; (n = in.read(b)) > 0; ) {
+				out.write(b, 0, n);
+			}
+			buffer = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		byte[] magic = new byte[4];
+		buffer.get(magic);
+		if (magic[0] != 'T' || magic[1] != 'B' || magic[2] != 'I' || magic[3] != 1)
+			throw new IOException("Not a tabix index: " + indexpath);
+
+		int references = buffer.getInt();
+		format = buffer.getInt();
+		colSeq = buffer.getInt();
+		colBeg = buffer.getInt();
+		colEnd = buffer.getInt();
+		meta = (char) buffer.getInt();
+		buffer.getInt(); // lines to skip
+
+		byte[] names = new byte[buffer.getInt()];
+		buffer.get(names);
+		int from = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] == 0) {
+				sequences.put(new String(names, from, i - from, StandardCharsets.US_ASCII), sequences.size());
+				from = i + 1;
+			}
+		}
+
+		bins = new Map[references];
+		linearIndex = new long[references][];
+		for (int tid = 0; tid < references; tid++) {
+
+			int binCount = buffer.getInt();
+			bins[tid] = new HashMap<>(binCount * 2);
+			for (int i = 0; i < binCount; i++) {
+				int bin = buffer.getInt();
+				long[] chunks = new long[2 * buffer.getInt()];
+				for (int j = 0; j < chunks.length; j++) {
+					chunks[j] = buffer.getLong();
+				}
+				if (bin < MAX_BIN)
+					bins[tid].put(bin, chunks);
+			}
+
+			long[] linear = new long[buffer.getInt()];
+			for (int i = 0; i < linear.length; i++) {
+				linear[i] = buffer.getLong();
+			}
+			linearIndex[tid] = linear;
+		}
+	}
+
+	/**
+	 * Gets the bins that may hold features overlapping the 0-based half-open region.
+	 */
+	static int[] reg2bins(int beg, int end) {
+
+		--end;
+		// one bin at level 0, then the bins spanned by the region at each of the five finer levels
+		int count = 1;
+		for (int shift = 26; shift >= 14; shift -= 3)
+			count += Math.max(0, (end >> shift) - (beg >> shift) + 1);
+
+		int[] list = new int[count];
+		int i = 0;
+		list[i++] = 0;
+		for (int k = 1 + (beg >> 26); k <= 1 + (end >> 26); ++k) list[i++] = k;
+		for (int k = 9 + (beg >> 23); k <= 9 + (end >> 23); ++k) list[i++] = k;
+		for (int k = 73 + (beg >> 20); k <= 73 + (end >> 20); ++k) list[i++] = k;
+		for (int k = 585 + (beg >> 17); k <= 585 + (end >> 17); ++k) list[i++] = k;
+		for (int k = 4681 + (beg >> 14); k <= 4681 + (end >> 14); ++k) list[i++] = k;
+		return list;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
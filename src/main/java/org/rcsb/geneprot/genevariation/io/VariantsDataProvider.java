@@ -4,18 +4,22 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
+import org.apache.spark.sql.SparkSession;
+import org.biojava.nbio.genome.parsers.genename.GeneChromosomePosition;
 import org.rcsb.geneprot.genes.constants.StrandOrientation;
 import org.rcsb.geneprot.genes.parsers.GenePredictionsParser;
 import org.rcsb.geneprot.genevariation.constants.VariantType;
 import org.rcsb.geneprot.genevariation.datastructures.Insertion;
 import org.rcsb.geneprot.genevariation.filters.IVariantDataFilter;
+import org.rcsb.geneprot.genevariation.filters.VariantColumns;
 import org.pharmgkb.parser.vcf.VcfParser;
 import org.rcsb.geneprot.common.io.DataLocationProvider;
 import org.rcsb.geneprot.genevariation.datastructures.Deletion;
@@ -23,9 +27,15 @@ import org.rcsb.geneprot.genevariation.datastructures.Monomorphism;
 import org.rcsb.geneprot.genevariation.datastructures.Mutation;
 import org.rcsb.geneprot.genevariation.datastructures.SNP;
 import org.rcsb.geneprot.genes.datastructures.Transcript;
+import org.rcsb.geneprot.genes.datastructures.TranscriptIntervalIndex;
 import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
+import org.rcsb.geneprot.genevariation.datastructures.VariantStore;
+import org.rcsb.geneprot.genevariation.datastructures.VcfContainer;
+import org.rcsb.geneprot.genevariation.mapfunctions.MapToVcfContainer;
+import org.rcsb.geneprot.genevariation.utils.CodingRegionJoin;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
 import org.rcsb.geneprot.genes.expression.RNApolymerase;
-import org.rcsb.geneprot.genes.expression.Ribosome;
+import org.rcsb.geneprot.genes.expression.CodonTable;
 import org.rcsb.geneprot.genevariation.filters.VariantDataFilterSNP;
 import org.rcsb.geneprot.common.utils.SparkUtils;
 import org.rcsb.geneprot.genevariation.utils.VariationUtils;
@@ -82,34 +92,29 @@ public class VariantsDataProvider extends DataLocationProvider {
 	}
 
 
-	public void readVariantsFromVCFWithSpark(String filepath) {
+	/**
+	 * Reads the records of a VCF file that fall into a coding region of the transcripts, one row
+	 * per alternative allele with the columns of {@link VcfContainer}. The records are read and
+	 * filtered on the executors with the binned join of {@link CodingRegionJoin}, nothing is
+	 * collected to the driver.
+	 *
+	 * @param filepath - path to VCF file
+	 * @param transcripts - the transcripts giving the coding regions
+	 */
+	public static Dataset<Row> readVariantsFromVCFWithSpark(String filepath, List<GeneChromosomePosition> transcripts) {
 
-		Dataset<Row> df = SparkUtils.getSparkSession().read()
+		SparkSession sparkSession = SparkUtils.getSparkSession();
+		Dataset<Row> records = sparkSession.read()
 				.format("com.databricks.spark.csv")
 				.option("header", "false")
 				.option("delimiter", "\t")
 				.option("comment", "#")
-				.load(filepath);//.flatMap(new MapToSNPs(), encoder);
-
-        for (Iterator<Row> iter = df.collectAsList().iterator(); iter.hasNext(); ) {
-
-        	Row row = iter.next();
-
-            String chromosome =row.getString(0);
-            long pos = Long.valueOf(row.getString(1));
-
-            String ref = row.getString(3);
-			List<String> alts = Arrays.asList(row.getString(4).split(","));
+				.load(filepath)
+				.flatMap(new MapToVcfContainer(), Encoders.bean(VcfContainer.class))
+				.toDF();
 
-			boolean reverse = false;
-            if (row.getString(7).contains(";RV;")) {
-            	reverse = true;
-            }
-
-			for (String alt : alts) {
-				addVariant(createVariant(chromosome, pos, ref, alt, reverse));
-			}
-        }
+		return CodingRegionJoin.filterCodingRegion(records, CommonConstants.COL_CHROMOSOME, CommonConstants.COL_POSITION,
+				CodingRegionJoin.getCodingIntervals(sparkSession, transcripts), CodingRegionJoin.DEFAULT_BIN_SIZE);
 	}
 
 	public void readVariantsFromVCF() throws IOException {
@@ -127,6 +132,18 @@ public class VariantsDataProvider extends DataLocationProvider {
 	 * @param File path to VCF file as Path.
 	 */
 	public void readVariantsFromVCFWithParser(Path filepath) throws IOException {
+		parseVCF(filepath, variant -> addVariant(variant));
+	}
+
+	/**
+	 * Parses a VCF file record by record and hands every variant over to the consumer.
+	 * Nothing is kept in memory by the parser.
+	 */
+	private static void parseVCF(Path filepath, Consumer<VariantInterface> consumer) throws IOException {
+		parseVCF(filepath, (chromosome, pos, ref, alt, reverse) -> consumer.accept(createVariant(chromosome, pos, ref, alt, reverse)));
+	}
+
+	private static void parseVCF(Path filepath, VcfRecordHandler handler) throws IOException {
 
 		VcfParser parser = new VcfParser.Builder().fromFile(filepath).parseWith((metadata, position, sampleData) -> {
 
@@ -142,13 +159,170 @@ public class VariantsDataProvider extends DataLocationProvider {
 			}
 
 			for (String alt : alts) {
-				System.out.println(chromosome+" "+pos);
-				addVariant(createVariant(chromosome, pos, ref, alt, reverse));
+				handler.handle(chromosome, pos, ref, alt, reverse);
 			}
 		}).build();
 		parser.parse();
 	}
 
+	/**
+	 * Receives the alleles of a VCF record, one alternative allele at a time.
+	 */
+	private interface VcfRecordHandler {
+		void handle(String chromosome, long pos, String ref, String alt, boolean reverse);
+	}
+
+	/**
+	 * Reads a VCF file into a columnar variant store, without creating an object per variant.
+	 *
+	 * @param filepath - path to VCF file
+	 * @return store holding all variants of the file
+	 */
+	public static VariantStore readVariantStoreFromVCF(Path filepath) throws IOException {
+
+		VariantStore store = new VariantStore();
+		parseVCF(filepath, (chromosome, pos, ref, alt, reverse) -> store.add(chromosome, pos, ref, alt, reverse));
+		store.trimToSize();
+		return store;
+	}
+
+	/**
+	 * Reads the variants of a region from a bgzip compressed VCF file with a tabix index
+	 * (the index is expected next to the file, with the .tbi extension). Only the compressed
+	 * blocks that hold the region are read.
+	 *
+	 * @param filepath - path to the .vcf.gz file
+	 * @param chromosome - chromosome name, with or without the chr prefix (e.g., chr21 or 21)
+	 * @param start - 1-based start of the region
+	 * @param end - 1-based end of the region (inclusive)
+	 * @return variants that overlap the region
+	 */
+	public static List<VariantInterface> readVariants(Path filepath, String chromosome, long start, long end) throws IOException {
+		try (TabixReader reader = new TabixReader(filepath)) {
+			return readVariants(reader, chromosome, start, end);
+		}
+	}
+
+	/**
+	 * Reads the variants of a region with an open tabix reader, so that the index is loaded
+	 * only once for many regions (e.g., all transcripts of a gene).
+	 */
+	public static List<VariantInterface> readVariants(TabixReader reader, String chromosome, long start, long end) throws IOException {
+
+		String sequence = chromosome;
+		if ( !reader.hasSequence(sequence) ) {
+			sequence = chromosome.startsWith("chr") ? chromosome.substring(3) : "chr" + chromosome;
+		}
+
+		List<VariantInterface> regionVariants = new ArrayList<>();
+		reader.query(sequence, start, end, line -> {
+
+			String[] fields = line.split("\t", 9);
+			String chr = fields[0].startsWith("chr") ? fields[0] : "chr" + fields[0];
+			long pos = Long.parseLong(fields[1]);
+			String ref = fields[3];
+
+			boolean reverse = false;
+			if (fields.length > 7) {
+				for (String info : fields[7].split(";")) {
+					if (info.equals("RV") || info.startsWith("RV=")) {
+						reverse = true;
+						break;
+					}
+				}
+			}
+
+			for (String alt : fields[4].split(",")) {
+				regionVariants.add(createVariant(chr, pos, ref, alt, reverse));
+			}
+		});
+		return regionVariants;
+	}
+
+	/**
+	 * Streams variants from a VCF file in batches. Only the variants accepted by the filter
+	 * are passed on, and at most one batch is held in memory at a time.
+	 *
+	 * @param filepath - path to VCF file
+	 * @param dataFilter - an implementation class of IVariantDataFilter
+	 * @param batchSize - maximum number of variants in a batch
+	 * @param consumer - receives every batch of filtered variants
+	 */
+	public static void streamVariantsFromVCF(Path filepath, IVariantDataFilter dataFilter, int batchSize,
+											 Consumer<List<VariantInterface>> consumer) throws IOException {
+
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+
+		List<List<VariantInterface>> buffer = new ArrayList<>(1);
+		buffer.add(new ArrayList<>(batchSize));
+
+		parseVCF(filepath, variant -> {
+			if ( !dataFilter.filter(variant) )
+				return;
+			List<VariantInterface> batch = buffer.get(0);
+			batch.add(variant);
+			if (batch.size() == batchSize) {
+				consumer.accept(batch);
+				buffer.set(0, new ArrayList<>(batchSize));
+			}
+		});
+
+		if ( !buffer.get(0).isEmpty() )
+			consumer.accept(buffer.get(0));
+	}
+
+	/**
+	 * Calls mutations for the variants of a VCF file without loading the whole file.
+	 * The variants are read, filtered and annotated batch by batch, and the mutations
+	 * of every batch are handed over to the consumer.
+	 *
+	 * @param filepath - path to VCF file
+	 * @param dataFilter - an implementation class of IVariantDataFilter
+	 * @param batchSize - maximum number of variants in a batch
+	 * @param consumer - receives the mutations called for every batch
+	 */
+	public static void streamMutations(Path filepath, IVariantDataFilter dataFilter, int batchSize,
+									   Consumer<List<Mutation>> consumer) throws Exception {
+
+		streamMutations(filepath, dataFilter, batchSize, new TranscriptIntervalIndex(GenePredictionsParser.getChromosomeMappings()),
+				new RNApolymerase(), consumer);
+	}
+
+	/**
+	 * Calls mutations for the variants of a VCF file batch by batch on the given transcripts.
+	 * Every batch of variants is handed over to the consumer as the list of its mutations,
+	 * which may be empty.
+	 */
+	public static void streamMutations(Path filepath, IVariantDataFilter dataFilter, int batchSize,
+									   TranscriptIntervalIndex transcripts, RNApolymerase polymerase,
+									   Consumer<List<Mutation>> consumer) throws Exception {
+
+		try {
+			streamVariantsFromVCF(filepath, dataFilter, batchSize, batch -> {
+				try {
+					consumer.accept(callMutations(batch.iterator(), transcripts, polymerase));
+				} catch (Exception e) {
+					throw new BatchException(e);
+				}
+			});
+		} catch (BatchException e) {
+			throw (Exception) e.getCause();
+		}
+	}
+
+	/**
+	 * Carries a checked exception out of the VCF parser callback.
+	 */
+	private static class BatchException extends RuntimeException {
+
+		private static final long serialVersionUID = 2214409366318526112L;
+
+		BatchException(Exception cause) {
+			super(cause);
+		}
+	}
+
 	/**
 	 * Gets all variation data.
 	 *
@@ -191,43 +365,53 @@ public class VariantsDataProvider extends DataLocationProvider {
 
 	public List<Mutation> getMutations(IVariantDataFilter dataFilter) throws Exception {
 
-		List<Mutation> mutations = new ArrayList<>();
-		List<Transcript> transcripts = GenePredictionsParser.getChromosomeMappings();
+		TranscriptIntervalIndex transcripts = new TranscriptIntervalIndex(GenePredictionsParser.getChromosomeMappings());
 
 		// Filter SNPs
 		setVariants(getVariantsByFilter(dataFilter));
 		Iterator<VariantInterface> variations = getAllVariants();
 
-		String chrName = "";
 		RNApolymerase polymerase = new RNApolymerase();
+		return callMutations(variations, transcripts, polymerase);
+	}
+
+	/**
+	 * Calls the amino acid changes of the variants in the coding sequences of the transcripts they overlap.
+	 *
+	 * @param variations - the variants
+	 * @param transcripts - an index of the transcripts by coding range
+	 * @param polymerase - the polymerase that assembles the coding sequences
+	 */
+	public static List<Mutation> callMutations(Iterator<VariantInterface> variations, TranscriptIntervalIndex transcripts,
+												RNApolymerase polymerase) throws Exception {
+
+		List<Mutation> mutations = new ArrayList<>();
+
 		while (variations.hasNext()) {
 
 			VariantInterface variant = variations.next();
 
-			for (Transcript transcript : transcripts) {
-
-				if ( ( variant.getPosition() >= transcript.getCodingStart() ) && (variant.getPosition() <= transcript.getCodingEnd()) ) {
+			for (Transcript transcript : transcripts.getOverlapping(variant.getChromosomeName(), variant.getPosition())) {
 
-					int mRNApos = polymerase.getmRNAPositionForGeneticCoordinate((int) variant.getPosition(), transcript);
-					if (mRNApos == -1)
-						continue;
+				int mRNApos = polymerase.getmRNAPositionForGeneticCoordinate((int) variant.getPosition(), transcript);
+				if (mRNApos == -1)
+					continue;
 
-					String codingSequence = polymerase.getCodingSequence(transcript);
-					String codon = polymerase.getCodon(mRNApos, codingSequence);
+				byte[] codingSequence = polymerase.getCodingSequenceBytes(transcript);
+				String codon = polymerase.getCodon(mRNApos, codingSequence);
 
-					String mutBase = variant.getAltBase();
-					String mutCodon="";
-					if (transcript.getOrientation().equals(StrandOrientation.FORWARD)) { mutCodon = VariationUtils.mutateCodonForward(mRNApos, codon, mutBase); }
-					else { mutCodon = VariationUtils.mutateCodonReverse(mRNApos, codon, mutBase); }
+				String mutBase = variant.getAltBase();
+				String mutCodon="";
+				if (transcript.getOrientation().equals(StrandOrientation.FORWARD)) { mutCodon = VariationUtils.mutateCodonForward(mRNApos, codon, mutBase); }
+				else { mutCodon = VariationUtils.mutateCodonReverse(mRNApos, codon, mutBase); }
 
-					Mutation mutation = new Mutation();
-					mutation.setChromosomeName(chrName);
-					mutation.setGeneBankId(transcript.getGeneBankId());
-					mutation.setPosition(variant.getPosition());
-					mutation.setRefAminoAcid(Ribosome.getProteinSequence(codon));
-					mutation.setMutAminoAcid(Ribosome.getProteinSequence(mutCodon));
-					mutations.add(mutation);
-				}
+				Mutation mutation = new Mutation();
+				mutation.setChromosomeName(variant.getChromosomeName());
+				mutation.setGeneBankId(transcript.getGeneBankId());
+				mutation.setPosition(variant.getPosition());
+				mutation.setRefAminoAcid(CodonTable.getAminoAcid(codon));
+				mutation.setMutAminoAcid(CodonTable.getAminoAcid(mutCodon));
+				mutations.add(mutation);
 			}
 		}
 		return mutations;
@@ -246,9 +430,37 @@ public class VariantsDataProvider extends DataLocationProvider {
 		mydf.write().mode(SaveMode.Overwrite).parquet(getDataHome() + filename);
 	}
 
+	/**
+	 * Reads a Parquet dataset of variants keeping only the variants accepted by the filter.
+	 * The filter is applied as a column expression, so that the chromosome and position
+	 * conditions are pushed down into the Parquet scan and row groups are skipped.
+	 *
+	 * @param path - path to the Parquet dataset
+	 * @param dataFilter - an implementation class of IVariantDataFilter
+	 * @param columns - names of the variant columns of the dataset
+	 */
+	public static Dataset<Row> readVariantsFromParquet(String path, IVariantDataFilter dataFilter, VariantColumns columns) {
+
+		Dataset<Row> df = SparkUtils.getSparkSession().read().parquet(path);
+		return df.filter(dataFilter.toColumn(columns));
+	}
+
 	public Dataset<Row> getMissenseVariationDF(String path) {
+		return getMissenseVariationDF(SparkUtils.getSparkSession().read().parquet(path));
+	}
+
+	/**
+	 * Gets the missense mutations accepted by the filter.
+	 *
+	 * @param path - path to the Parquet dataset of mutations
+	 * @param dataFilter - an implementation class of IVariantDataFilter
+	 */
+	public Dataset<Row> getMissenseVariationDF(String path, IVariantDataFilter dataFilter) {
+		return getMissenseVariationDF(readVariantsFromParquet(path, dataFilter, VariantColumns.MUTATION));
+	}
+
+	private Dataset<Row> getMissenseVariationDF(Dataset<Row> mutations) {
 
-        Dataset<Row> mutations = SparkUtils.getSparkSession().read().parquet(path);
         mutations.createOrReplaceTempView("mutations");
 
         Dataset<Row> missense = mutations.filter(mutations.col("refAminoAcid").notEqual(mutations.col("mutAminoAcid")));
@@ -0,0 +1,42 @@
+package org.rcsb.geneprot.genevariation.mapfunctions;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Replicates a coding interval into every fixed-width genomic bin it touches.
+ * The bin index is appended as the last field of the row.
+ */
+public class MapToCodingBins implements FlatMapFunction<Row, Row> {
+
+	private static final long serialVersionUID = 6395370297740745893L;
+
+	private final int binSize;
+
+	public MapToCodingBins(int binSize) {
+		this.binSize = binSize;
+	}
+
+	@Override
+	public Iterator<Row> call(Row interval) throws Exception {
+
+		int start = interval.getInt(interval.fieldIndex(CommonConstants.COL_START));
+		int end = interval.getInt(interval.fieldIndex(CommonConstants.COL_END));
+
+		List<Row> bins = new ArrayList<>();
+		for (long bin = start / binSize; bin <= end / binSize; bin++) {
+			Object[] values = new Object[interval.length() + 1];
+			for (int i = 0; i < interval.length(); i++)
+				values[i] = interval.get(i);
+			values[interval.length()] = bin;
+			bins.add(RowFactory.create(values));
+		}
+		return bins.iterator();
+	}
+}
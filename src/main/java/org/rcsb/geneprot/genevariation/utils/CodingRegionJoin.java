@@ -0,0 +1,138 @@
+package org.rcsb.geneprot.genevariation.utils;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SparkSession;
+import org.biojava.nbio.genome.parsers.genename.GeneChromosomePosition;
+import org.rcsb.geneprot.genes.datastructures.CodingRegionIndex;
+import org.rcsb.geneprot.genevariation.datastructures.VcfContainer;
+import org.rcsb.geneprot.genevariation.mapfunctions.FilterCodingRegion;
+import org.rcsb.geneprot.genevariation.mapfunctions.MapToCodingBins;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+import org.rcsb.geneprot.genomemapping.constants.DatasetSchemas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.floor;
+import static org.apache.spark.sql.functions.lit;
+
+/**
+ * Joins genomic positions (e.g. VCF records) to coding intervals with a binned range join.
+ *
+ * Both sides are keyed by chromosome and a fixed-width genomic bin: a position falls into
+ * exactly one bin, a coding interval is replicated into every bin it touches. The datasets
+ * are joined on the bin key and the exact overlap is checked on the joined pairs, so the
+ * work is spread over the executors and nothing is collected to the driver.
+ *
+ * Coding intervals are 1-based and closed, as are VCF positions.
+ *
+ * @author Yana Valasatava
+ */
+public class CodingRegionJoin {
+
+	public static final int DEFAULT_BIN_SIZE = 10000;
+
+	/**
+	 * Gets coding intervals (the coding part of every exon) of the transcripts as rows of
+	 * {@link DatasetSchemas#CODING_INTERVAL_SCHEMA}.
+	 */
+	public static List<Row> getCodingIntervals(List<GeneChromosomePosition> transcripts) {
+
+		List<Row> intervals = new ArrayList<>();
+		CodingRegionIndex.forEachCodingInterval(transcripts, (gcp, start, end) ->
+				intervals.add(RowFactory.create(gcp.getChromosome(), start, end, gcp.getGeneName(),
+						gcp.getGenebankId(), String.valueOf(gcp.getOrientation()))));
+		return intervals;
+	}
+
+	public static Dataset<Row> getCodingIntervals(SparkSession sparkSession, List<GeneChromosomePosition> transcripts) {
+		return sparkSession.createDataFrame(getCodingIntervals(transcripts), DatasetSchemas.CODING_INTERVAL_SCHEMA);
+	}
+
+	/**
+	 * Replicates every coding interval into the bins it touches.
+	 */
+	public static Dataset<Row> binIntervals(Dataset<Row> intervals, int binSize) {
+
+		SparkSession sparkSession = intervals.sparkSession();
+		JavaRDD<Row> rdd = intervals
+				.toJavaRDD()
+				.flatMap(new MapToCodingBins(binSize));
+		return sparkSession.createDataFrame(rdd, DatasetSchemas.CODING_INTERVAL_BIN_SCHEMA);
+	}
+
+	/**
+	 * Adds the bin column to a dataset of positions.
+	 */
+	public static Dataset<Row> binPositions(Dataset<Row> positions, String positionColumn, int binSize) {
+		return positions.withColumn(CommonConstants.COL_BIN, floor(col(positionColumn).divide(lit(binSize))));
+	}
+
+	private static Column overlap(Dataset<Row> positions, Dataset<Row> bins, String chromosomeColumn, String positionColumn) {
+		return positions.col(chromosomeColumn).equalTo(bins.col(CommonConstants.COL_CHROMOSOME))
+				.and(positions.col(CommonConstants.COL_BIN).equalTo(bins.col(CommonConstants.COL_BIN)))
+				.and(positions.col(positionColumn).geq(bins.col(CommonConstants.COL_START)))
+				.and(positions.col(positionColumn).leq(bins.col(CommonConstants.COL_END)));
+	}
+
+	/**
+	 * Keeps the positions that fall into at least one coding interval. Every position
+	 * is reported once and keeps its original columns.
+	 */
+	public static Dataset<Row> filterCodingRegion(Dataset<Row> positions, String chromosomeColumn, String positionColumn,
+												  Dataset<Row> intervals, int binSize) {
+
+		Dataset<Row> binned = binPositions(positions, positionColumn, binSize);
+		Dataset<Row> bins = binIntervals(intervals, binSize);
+		return binned
+				.join(bins, overlap(binned, bins, chromosomeColumn, positionColumn), "leftsemi")
+				.drop(CommonConstants.COL_BIN);
+	}
+
+	/**
+	 * Keeps the VCF records that fall into a coding region of the transcripts. If the transcripts
+	 * have at most maxBroadcastIntervals merged coding intervals (e.g. a panel of genes), the intervals
+	 * are broadcast in a {@link CodingRegionIndex} and every record is looked up without a shuffle;
+	 * otherwise the records are filtered with the binned join. The merged coding intervals of a whole
+	 * genome number a few hundred thousand, so a genome-wide filter takes the binned join unless the
+	 * caller allows a broadcast of that size.
+	 *
+	 * @param maxBroadcastIntervals - the largest number of merged coding intervals to broadcast, -1 to always join
+	 */
+	public static Dataset<Row> filterCodingRegion(Dataset<VcfContainer> records, List<GeneChromosomePosition> transcripts,
+												  int binSize, int maxBroadcastIntervals) {
+
+		CodingRegionIndex index = new CodingRegionIndex(transcripts);
+		if (index.getIntervalsCount() <= maxBroadcastIntervals) {
+			Broadcast<CodingRegionIndex> broadcast = new JavaSparkContext(records.sparkSession().sparkContext())
+					.broadcast(index);
+			return records.filter(new FilterCodingRegion(broadcast)).toDF();
+		}
+		return filterCodingRegion(records.toDF(), CommonConstants.COL_CHROMOSOME, CommonConstants.COL_POSITION,
+				getCodingIntervals(records.sparkSession(), transcripts), binSize);
+	}
+
+	/**
+	 * Pairs every position with each coding interval it falls into. The columns of the
+	 * interval (gene name, transcript accession, orientation, start and end) are appended
+	 * to the columns of the position.
+	 */
+	public static Dataset<Row> joinCodingRegion(Dataset<Row> positions, String chromosomeColumn, String positionColumn,
+												Dataset<Row> intervals, int binSize) {
+
+		Dataset<Row> binned = binPositions(positions, positionColumn, binSize);
+		Dataset<Row> bins = binIntervals(intervals, binSize);
+		return binned
+				.join(bins, overlap(binned, bins, chromosomeColumn, positionColumn), "inner")
+				.drop(binned.col(CommonConstants.COL_BIN))
+				.drop(bins.col(CommonConstants.COL_BIN))
+				.drop(bins.col(CommonConstants.COL_CHROMOSOME));
+	}
+}
@@ -74,6 +74,9 @@ public class CommonConstants {
     public static final String COL_SEQUENCE = "sequence";
     public static final String COL_SEQUENCE_STATUS = "sequenceStatus";
     public static final String COL_PROTEIN_SEQUENCE = "proteinSequence";
+    public static final String COL_TRANSLATION = "translation";
+    public static final String COL_CODING_LENGTH = "codingLength";
+    public static final String COL_SEQUENCE_DIGEST = "sequenceDigest";
     public static final String COL_SEQUENCE_TYPE = "sequenceType";
     public static final String COL_FEATURE_ID = "featureId";
     public static final String COL_FEATURE_TYPE = "featureType";
@@ -93,6 +96,7 @@ public class CommonConstants {
     public static final String COL_SINGLE_AMINO_ACID = "singleAminoAcid";
     public static final String COL_SINGLE_AMINO_ACID_VARIATION = "singleAminoAcidVariation";
     public static final String COL_POSITION = "position";
+    public static final String COL_BIN = "bin";
 
     public static final String KEY_SEPARATOR = "=";
     public static final String DASH = Pattern.quote("-");
@@ -103,6 +107,8 @@ public class CommonConstants {
     public static final String COL_ENTRY_ID = "entryId";
     public static final String COL_ENTITY_ID = "entityId";
     public static final String COL_CHAIN_ID = "chainId";
+    public static final String COL_RESPONSE = "response";
+    public static final String COL_ERROR = "error";
 
     public static final String COL_CODING_COORDINATES = "codingCoordinates";
     public static final String COL_ISOFORM_COORDINATES = "isoformCoordinates";
@@ -25,6 +25,19 @@ public class DatasetSchemas {
                     , DataTypes.createStructField(CommonConstants.COL_EXONS_END, DataTypes.createArrayType(DataTypes.IntegerType), false)
             });
 
+    public static final StructType CODING_INTERVAL_SCHEMA = DataTypes
+            .createStructType(new StructField[] {
+                      DataTypes.createStructField(CommonConstants.COL_CHROMOSOME, DataTypes.StringType, false)
+                    , DataTypes.createStructField(CommonConstants.COL_START, DataTypes.IntegerType, false)
+                    , DataTypes.createStructField(CommonConstants.COL_END, DataTypes.IntegerType, false)
+                    , DataTypes.createStructField(CommonConstants.COL_GENE_NAME, DataTypes.StringType, true)
+                    , DataTypes.createStructField(CommonConstants.COL_NCBI_RNA_SEQUENCE_ACCESSION, DataTypes.StringType, true)
+                    , DataTypes.createStructField(CommonConstants.COL_ORIENTATION, DataTypes.StringType, true)
+            });
+
+    public static final StructType CODING_INTERVAL_BIN_SCHEMA = CODING_INTERVAL_SCHEMA
+            .add(CommonConstants.COL_BIN, DataTypes.LongType, false);
+
     public static final StructType RANGE_SCHEMA = DataTypes
             .createStructType(new StructField[] {
                       DataTypes.createStructField(CommonConstants.COL_START, DataTypes.IntegerType, false)
@@ -56,6 +69,14 @@ public class DatasetSchemas {
                     , DataTypes.createStructField(CommonConstants.COL_EXONS, DataTypes.createArrayType(RANGE_SCHEMA_WITH_ID), false, Metadata.empty())
             });
 
+    public static final StructType TRANSCRIPT_TRANSLATION_SCHEMA = DataTypes
+            .createStructType(new StructField[] {
+                      DataTypes.createStructField(CommonConstants.COL_TRANSCRIPT_ID, DataTypes.StringType, false)
+                    , DataTypes.createStructField(CommonConstants.COL_CODING_LENGTH, DataTypes.IntegerType, false)
+                    , DataTypes.createStructField(CommonConstants.COL_TRANSLATION, DataTypes.StringType, false)
+                    , DataTypes.createStructField(CommonConstants.COL_SEQUENCE_DIGEST, DataTypes.StringType, false)
+            });
+
     public static final StructType UNIPROT_TO_TRANSCRIPT_SCHEMA = DataTypes
             .createStructType(new StructField[]{
                     DataTypes.createStructField(CommonConstants.COL_UNIPROT_ACCESSION, DataTypes.StringType, true)
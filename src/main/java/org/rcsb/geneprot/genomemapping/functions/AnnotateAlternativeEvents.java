@@ -1,58 +1,64 @@
 package org.rcsb.geneprot.genomemapping.functions;
 
-import com.google.common.collect.Range;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.rcsb.geneprot.common.utils.RowBuilder;
 import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
-import org.rcsb.geneprot.genomemapping.utils.RowUpdater;
+import org.rcsb.geneprot.genomemapping.utils.LongIntHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
-/**
+/** Annotates the coding regions of the transcripts of a gene that are not shared by all its transcripts.
+ *
+ * A coding region is keyed by its start and end packed in a long, and the number of transcripts having
+ * each region is counted in a primitive map. The flags of the alternativeExons column follow the order
+ * of the coding regions of the transcript.
+ *
  * Created by Yana Valasatava on 11/1/17.
  */
 public class AnnotateAlternativeEvents implements FlatMapFunction<Iterable<Row>, Row> {
 
     private static final Logger logger = LoggerFactory.getLogger(AnnotateAlternativeEvents.class);
 
-    private static List<Range<Integer>> range(Row transcript) {
+    private static final StructField[] FIELDS = {
+            DataTypes.createStructField(CommonConstants.COL_ALTERNATIVE_EXONS, DataTypes.createArrayType(DataTypes.BooleanType), true),
+            DataTypes.createStructField(CommonConstants.COL_HAS_ALTERNATIVE_EXONS, DataTypes.BooleanType, true)};
 
-        List<Row> cds = transcript.getList(transcript.fieldIndex(CommonConstants.COL_CODING));
+    // the builder of the output rows for the schema of the input rows of the partition
+    private transient RowBuilder builder;
 
-        List<Range<Integer>> regions = new ArrayList();
-        for(Row r : cds) {
-            regions.add(Range.closed(r.getInt(r.fieldIndex(CommonConstants.COL_START))
-                                   , r.getInt(r.fieldIndex(CommonConstants.COL_END))));
-        }
-        return regions;
+    /**
+     * Gets the schema of the rows returned for transcripts of the given schema.
+     */
+    public static StructType getOutputSchema(StructType inputSchema) {
+        return new RowBuilder(inputSchema, FIELDS).getSchema();
     }
 
-    private static List<Range<Integer>> getRanges(List<Row> transcripts) {
-
-        List list = new ArrayList();
-        Iterator<Row> it = transcripts.iterator();
-        while (it.hasNext()) {
-            Row transcript = it.next();
-            list.addAll(range(transcript));
-        }
-        return list;
+    public static long key(int start, int end) {
+        return (long) start << 32 | (end & 0xffffffffL);
     }
 
-    private static Map<Integer, Integer> getHashKeys(List<Range<Integer>> ranges) {
+    private static long[] keys(Row transcript) {
 
-        Map<Integer, Integer> map = new HashMap<>();
-        for (Range<Integer> range : ranges) {
-            if (map.containsKey(range.hashCode())) {
-                int i = map.get(range.hashCode());
-                map.put(range.hashCode(), i+1);
-            }
-            else 
-                map.put(range.hashCode(), 1);
+        List<Row> cds = transcript.getList(transcript.fieldIndex(CommonConstants.COL_CODING));
+        if (cds == null || cds.isEmpty())
+            return new long[0];
+
+        Row first = cds.get(0);
+        int startIndex = first.fieldIndex(CommonConstants.COL_START);
+        int endIndex = first.fieldIndex(CommonConstants.COL_END);
+
+        long[] keys = new long[cds.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Row r = cds.get(i);
+            keys[i] = key(r.getInt(startIndex), r.getInt(endIndex));
         }
-        return map;
+        return keys;
     }
 
     @Override
@@ -61,34 +67,42 @@ public class AnnotateAlternativeEvents implements FlatMapFunction<Iterable<Row>,
         List<Row> list = new ArrayList<>();
         it.iterator().forEachRemaining(e -> list.add(e));
         int n = list.size();
-        
-        List<Row> updated = new ArrayList<>();
+        if (n == 0)
+            return Collections.emptyIterator();
+
+        List<Row> updated = new ArrayList<>(n);
         logger.info("Calculate alternative events for {}", list.get(0).getString(list.get(0).fieldIndex(CommonConstants.COL_GENE_NAME)));
         try {
-            if (list.size() == 1) {
-                Row row = list.get(0);
-                row = RowUpdater.addArray(row, CommonConstants.COL_ALTERNATIVE_EXONS, new ArrayList<>(), DataTypes.BooleanType);
-                updated.add(RowUpdater.addField(row, CommonConstants.COL_HAS_ALTERNATIVE_EXONS, false, DataTypes.BooleanType));
-
-            } else {
-                Map<Integer, Integer> hashKeys = getHashKeys(getRanges(list));
-                for (Row transcript : list) {
-                    boolean hasAlternativeExons = false;
-                    List<Boolean> map = new ArrayList<>();
-                    Set<Integer> txKeys = getHashKeys(range(transcript)).keySet();
-                    for (Integer key : txKeys) {
-                        boolean flag = false;
-                        if (hashKeys.get(key) != n) {
-                            if (!hasAlternativeExons)
-                                hasAlternativeExons = true;
-                            flag = true;
-                        }
-                        map.add(flag);
-                    }
-                    Row row = RowUpdater.addArray(transcript, CommonConstants.COL_ALTERNATIVE_EXONS, map, DataTypes.BooleanType);
-                    updated.add(RowUpdater.addField(row, CommonConstants.COL_HAS_ALTERNATIVE_EXONS, hasAlternativeExons, DataTypes.BooleanType));
+            // the number of transcripts having each coding region
+            long[][] transcriptKeys = new long[n][];
+            LongIntHashMap counts = new LongIntHashMap(4 * n);
+            for (int t = 0; t < n; t++) {
+                long[] keys = keys(list.get(t));
+                transcriptKeys[t] = keys;
+
+                long[] sorted = keys.clone();
+                Arrays.sort(sorted);
+                for (int i = 0; i < sorted.length; i++) {
+                    if (i == 0 || sorted[i] != sorted[i - 1])
+                        counts.increment(sorted[i]);
                 }
             }
+
+            for (int t = 0; t < n; t++) {
+                Row transcript = list.get(t);
+                long[] keys = transcriptKeys[t];
+
+                boolean hasAlternativeExons = false;
+                List<Boolean> flags = new ArrayList<>(keys.length);
+                for (long key : keys) {
+                    boolean flag = counts.get(key) != n;
+                    hasAlternativeExons |= flag;
+                    flags.add(flag);
+                }
+
+                builder = RowBuilder.forSchema(builder, transcript.schema(), FIELDS);
+                updated.add(builder.append(transcript, flags, hasAlternativeExons));
+            }
         } catch (Exception e) {
             logger.error("Error has occurred while calculating alternative events {} : {}", e.getCause(), e.getMessage());
         }
@@ -0,0 +1,147 @@
+package org.rcsb.geneprot.genomemapping.functions;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function2;
+import org.rcsb.geneprot.gencode.gtf.GencodeFeature;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/** Groups the features of a GTF file by transcript within each partition, without a shuffle.
+ *
+ * The features of a transcript are contiguous in Ensembl and GENCODE files, so a transcript is
+ * complete as soon as the next one starts. Only the transcripts that cross a split boundary need
+ * the features of the next partitions: the leading features of every partition (its head) are read
+ * in a first, short pass, and each partition completes its last transcript with the heads of the next
+ * partitions and skips its own head. A transcript whose features are not contiguous within a partition
+ * is reported with an IllegalStateException; such files have to be grouped with groupByKey.
+ *
+ * Created by Yana Valasatava on 12/4/17.
+ */
+public class GroupTranscriptFeatures implements Function2<Integer, Iterator<GencodeFeature>, Iterator<Iterable<GencodeFeature>>> {
+
+    private final List<PartitionHead> heads;
+
+    public GroupTranscriptFeatures(List<PartitionHead> heads) {
+        this.heads = heads;
+    }
+
+    /**
+     * Groups the features of the transcripts. The features must be in the order of the file.
+     */
+    public static JavaRDD<Iterable<GencodeFeature>> groupTranscripts(JavaRDD<GencodeFeature> features) {
+
+        List<PartitionHead> heads = features
+                .mapPartitions(it -> Collections.singletonList(readHead(it)).iterator())
+                .collect();
+
+        return features.mapPartitionsWithIndex(new GroupTranscriptFeatures(heads), true);
+    }
+
+    /**
+     * Reads the features of the first transcript of a partition.
+     */
+    public static PartitionHead readHead(Iterator<GencodeFeature> it) {
+
+        List<GencodeFeature> features = new ArrayList<>();
+        if (!it.hasNext())
+            return new PartitionHead(features, true);
+
+        GencodeFeature first = it.next();
+        features.add(first);
+        while (it.hasNext()) {
+            GencodeFeature feature = it.next();
+            if (!Objects.equals(getTranscriptId(first), getTranscriptId(feature)))
+                return new PartitionHead(features, false);
+            features.add(feature);
+        }
+        return new PartitionHead(features, true);
+    }
+
+    @Override
+    public Iterator<Iterable<GencodeFeature>> call(Integer index, Iterator<GencodeFeature> it) throws Exception {
+
+        PeekingIterator<GencodeFeature> features = Iterators.peekingIterator(it);
+        if (index > 0) {
+            // the head belongs to the transcript of the previous partition
+            if (features.hasNext()) {
+                String id = getTranscriptId(features.peek());
+                while (features.hasNext() && Objects.equals(id, getTranscriptId(features.peek())))
+                    features.next();
+            }
+            if (!features.hasNext())
+                return Collections.emptyIterator();
+        }
+
+        List<Iterator<GencodeFeature>> parts = new ArrayList<>();
+        parts.add(features);
+        for (int i = index + 1; i < heads.size(); i++) {
+            parts.add(heads.get(i).getFeatures().iterator());
+            if (!heads.get(i).isWhole())
+                break;
+        }
+
+        return group(Iterators.peekingIterator(Iterators.concat(parts.iterator())));
+    }
+
+    private static Iterator<Iterable<GencodeFeature>> group(PeekingIterator<GencodeFeature> features) {
+
+        Set<String> grouped = new HashSet<>();
+        return new AbstractIterator<Iterable<GencodeFeature>>() {
+            @Override
+            protected Iterable<GencodeFeature> computeNext() {
+
+                if (!features.hasNext())
+                    return endOfData();
+
+                GencodeFeature first = features.next();
+                String id = getTranscriptId(first);
+                if (!grouped.add(id))
+                    throw new IllegalStateException("The features of the transcript " + id + " are not contiguous");
+
+                List<GencodeFeature> transcript = new ArrayList<>();
+                transcript.add(first);
+                while (features.hasNext() && Objects.equals(id, getTranscriptId(features.peek())))
+                    transcript.add(features.next());
+                return transcript;
+            }
+        };
+    }
+
+    private static String getTranscriptId(GencodeFeature feature) {
+        return feature.getAttributes().get("transcript_id");
+    }
+
+    /**
+     * The features of the first transcript of a partition; whole if the partition has no other feature.
+     */
+    public static class PartitionHead implements Serializable {
+
+        private static final long serialVersionUID = 6227148125630946615L;
+
+        private final List<GencodeFeature> features;
+        private final boolean whole;
+
+        public PartitionHead(List<GencodeFeature> features, boolean whole) {
+            this.features = features;
+            this.whole = whole;
+        }
+
+        public List<GencodeFeature> getFeatures() {
+            return features;
+        }
+
+        public boolean isWhole() {
+            return whole;
+        }
+    }
+}
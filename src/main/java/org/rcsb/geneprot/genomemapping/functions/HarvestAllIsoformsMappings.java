@@ -0,0 +1,96 @@
+package org.rcsb.geneprot.genomemapping.functions;
+
+import com.google.common.collect.AbstractIterator;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+import org.rcsb.geneprot.genomemapping.utils.PDBeApiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.Tuple2;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/** Retrieves the mappings of the PDB entries of a partition to all UniProt isoforms from the PDBe API.
+ *
+ * The requests for the next entries of the partition are issued ahead, up to the prefetch size, while
+ * the response of the first one is not ready, and the responses are returned in the order of the entries.
+ * All the requests of an executor, retries included, are sent at the rate of its client. An entry
+ * whose request has failed is returned with the error instead of failing the task, so that it can be
+ * retried later.
+ *
+ * Created by Yana Valasatava on 12/14/17.
+ */
+public class HarvestAllIsoformsMappings implements FlatMapFunction<Iterator<Row>, Row> {
+
+    private static final Logger logger = LoggerFactory.getLogger(HarvestAllIsoformsMappings.class);
+
+    public static final StructType SCHEMA = DataTypes.createStructType(new StructField[]{
+            DataTypes.createStructField(CommonConstants.COL_ENTRY_ID, DataTypes.StringType, false),
+            DataTypes.createStructField(CommonConstants.COL_RESPONSE, DataTypes.StringType, true),
+            DataTypes.createStructField(CommonConstants.COL_ERROR, DataTypes.StringType, true)});
+
+    public static final int DEFAULT_PREFETCH = 64;
+
+    private final double requestsPerSecond;
+    private final int maxConcurrency;
+    private final int prefetch;
+
+    /**
+     * @param requestsPerSecond - the rate of the requests of an executor
+     * @param maxConcurrency - the maximum number of requests in flight on an executor
+     * @param prefetch - the number of entries of a partition to request the mappings for ahead
+     */
+    public HarvestAllIsoformsMappings(double requestsPerSecond, int maxConcurrency, int prefetch) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxConcurrency = maxConcurrency;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public Iterator<Row> call(Iterator<Row> entries) throws Exception {
+
+        PDBeApiClient client = PDBeApiClient.getInstance(maxConcurrency, requestsPerSecond);
+        Deque<Tuple2<String, CompletableFuture<String>>> pending = new ArrayDeque<>();
+
+        return new AbstractIterator<Row>() {
+
+            @Override
+            protected Row computeNext() {
+
+                // issues the requests ahead until the first response is ready
+                try {
+                    while (pending.size() < prefetch && entries.hasNext()
+                            && (pending.isEmpty() || !pending.peek()._2.isDone())) {
+                        Row row = entries.next();
+                        String entryId = row.getString(row.fieldIndex(CommonConstants.COL_ENTRY_ID));
+                        pending.add(new Tuple2<>(entryId, client.getAllIsoforms(entryId)));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+
+                if (pending.isEmpty())
+                    return endOfData();
+
+                Tuple2<String, CompletableFuture<String>> t = pending.poll();
+                try {
+                    return RowFactory.create(t._1, t._2.join(), null);
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.error("Could not retrieve the isoforms mapping for {} : {}", t._1, cause.getMessage());
+                    return RowFactory.create(t._1, null, cause.toString());
+                }
+            }
+        };
+    }
+}
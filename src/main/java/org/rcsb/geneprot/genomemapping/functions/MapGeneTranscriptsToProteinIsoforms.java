@@ -1,37 +1,59 @@
 package org.rcsb.geneprot.genomemapping.functions;
 
-import com.google.common.collect.Range;
-import com.mashape.unirest.http.HttpResponse;
-import com.mashape.unirest.http.JsonNode;
-import com.mashape.unirest.http.Unirest;
+import com.google.common.collect.AbstractIterator;
 import org.apache.spark.api.java.function.FlatMapFunction;
-import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.DataTypes;
-import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
-import org.biojava.nbio.core.exceptions.TranslationException;
+import org.apache.spark.sql.types.StructField;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.rcsb.geneprot.common.utils.RowBuilder;
 import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
-import org.rcsb.geneprot.genomemapping.utils.GenomeUtils;
-import org.rcsb.geneprot.genomemapping.utils.RowUpdater;
+import org.rcsb.geneprot.genomemapping.utils.ProteinsApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import scala.Tuple2;
 
 import java.util.*;
-
-/**
+import java.util.concurrent.CompletableFuture;
+
+/** Maps the transcripts of the genes of a partition to the isoforms of their UniProt entries.
+ *
+ * The isoforms are retrieved with the executor's ProteinsApiClient: the requests for the next genes
+ * of the partition are issued ahead, up to the prefetch size, while the transcripts of the current
+ * gene are mapped. Each UniProt entry is requested once for the genes in the window.
+ *
  * Created by Yana Valasatava on 10/20/17.
  */
-public class MapGeneTranscriptsToProteinIsoforms implements FlatMapFunction<Tuple2<String, Iterable<Row>>, Row> {
+public class MapGeneTranscriptsToProteinIsoforms implements FlatMapFunction<Iterator<Tuple2<String, Iterable<Row>>>, Row> {
+
+    public static final int DEFAULT_PREFETCH = 256;
 
     private static final Logger logger = LoggerFactory.getLogger(MapGeneTranscriptsToProteinIsoforms.class);
 
-    public static String organism;
+    private static final StructField[] ISOFORM_FIELDS = {
+            DataTypes.createStructField(CommonConstants.COL_MOLECULE_ID, DataTypes.StringType, true),
+            DataTypes.createStructField(CommonConstants.COL_PROTEIN_SEQUENCE, DataTypes.StringType, true),
+            DataTypes.createStructField(CommonConstants.COL_SEQUENCE_STATUS, DataTypes.StringType, true),
+            DataTypes.createStructField(CommonConstants.COL_CANONICAL, DataTypes.BooleanType, true)};
+
+    private final int maxConcurrency;
+    private final int prefetch;
+
+    // the builder of the output rows for the schema of the input rows of the partition
+    private transient RowBuilder builder;
+
+    public MapGeneTranscriptsToProteinIsoforms() {
+        this(ProteinsApiClient.DEFAULT_MAX_CONCURRENCY, DEFAULT_PREFETCH);
+    }
 
-    public MapGeneTranscriptsToProteinIsoforms(Broadcast<String> bc) {
-        organism = bc.getValue();
+    /**
+     * @param maxConcurrency - the maximum number of requests in flight on an executor
+     * @param prefetch - the number of genes of a partition to request the isoforms for ahead
+     */
+    public MapGeneTranscriptsToProteinIsoforms(int maxConcurrency, int prefetch) {
+        this.maxConcurrency = maxConcurrency;
+        this.prefetch = prefetch;
     }
 
     public static Map<String, JSONObject> getTranscriptsMap(JSONArray isoforms) {
@@ -125,40 +147,103 @@ public class MapGeneTranscriptsToProteinIsoforms implements FlatMapFunction<Tupl
 
     public static JSONArray getSequenceIsoforms(String uniProtId) throws Exception {
 
-        HttpResponse<JsonNode> response = Unirest
-                .get("https://www.ebi.ac.uk/proteins/api/proteins/{id}/isoforms.json")
-                .routeParam("id", uniProtId)
-                .asJson();
-
-        if (response.getStatus() == 404)
-            response = Unirest
-                    .get("https://www.ebi.ac.uk/proteins/api/proteins/{id}.json")
-                    .routeParam("id", uniProtId)
-                    .asJson();
+        String body = ProteinsApiClient.getInstance(ProteinsApiClient.DEFAULT_MAX_CONCURRENCY)
+                .getIsoforms(uniProtId).get();
+        return parseIsoforms(body);
+    }
 
-        if (response.getStatus() == 400)
-            return new JSONArray();
+    /**
+     * Parses the isoforms returned by the Proteins API, an empty array if there are none.
+     */
+    public static JSONArray parseIsoforms(String body) {
 
         JSONArray iso = new JSONArray();
-        if ( response.getBody().isArray() ) {
-            for (Object o : response.getBody().getArray())
-                iso.put(parseIsoformObject((JSONObject) o));
+        if (body == null)
+            return iso;
+
+        if ( body.trim().startsWith("[") ) {
+            JSONArray array = new JSONArray(body);
+            for (int i=0; i<array.length(); i++)
+                iso.put(parseIsoformObject(array.getJSONObject(i)));
         } else {
-            iso.put(parseIsoformObject(response.getBody().getObject()));
+            iso.put(parseIsoformObject(new JSONObject(body)));
         }
         return iso;
     }
 
+    private static String getUniProtId(Tuple2<String, Iterable<Row>> t) {
+        return t._1.split(CommonConstants.KEY_SEPARATOR)[3];
+    }
+
+    private Row addIsoform(Row txpt, JSONObject isoform) {
+
+        builder = RowBuilder.forSchema(builder, txpt.schema(), ISOFORM_FIELDS);
+        return builder.append(txpt, isoform.getString("id"), isoform.getString("sequence")
+                , isoform.getString("sequenceStatus"), isoform.getBoolean(CommonConstants.COL_CANONICAL));
+    }
+
     @Override
-    public Iterator<Row> call(Tuple2<String, Iterable<Row>> t) throws Exception {
+    public Iterator<Row> call(Iterator<Tuple2<String, Iterable<Row>>> genes) throws Exception {
+
+        ProteinsApiClient client = ProteinsApiClient.getInstance(maxConcurrency);
 
-        String uniProtId = t._1.split(CommonConstants.KEY_SEPARATOR)[3];
-        Iterable<Row> it = t._2;
+        // the genes the isoforms are requested for, and the requests by UniProt entry with the number of those genes
+        Deque<Tuple2<String, Iterable<Row>>> pending = new ArrayDeque<>();
+        Map<String, CompletableFuture<String>> requests = new HashMap<>();
+        Map<String, Integer> references = new HashMap<>();
+
+        return new AbstractIterator<Row>() {
+
+            private Iterator<Row> rows = Collections.emptyIterator();
+
+            @Override
+            protected Row computeNext() {
+
+                while (!rows.hasNext()) {
+                    try {
+                        while (pending.size() < prefetch && genes.hasNext()) {
+                            Tuple2<String, Iterable<Row>> t = genes.next();
+                            String uniProtId = getUniProtId(t);
+                            if (!requests.containsKey(uniProtId))
+                                requests.put(uniProtId, client.getIsoforms(uniProtId));
+                            references.merge(uniProtId, 1, Integer::sum);
+                            pending.add(t);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+
+                    if (pending.isEmpty())
+                        return endOfData();
+
+                    Tuple2<String, Iterable<Row>> t = pending.poll();
+                    String uniProtId = getUniProtId(t);
+                    CompletableFuture<String> request = requests.get(uniProtId);
+                    if (references.merge(uniProtId, -1, Integer::sum) == 0) {
+                        references.remove(uniProtId);
+                        requests.remove(uniProtId);
+                    }
+
+                    JSONArray isoforms;
+                    try {
+                        isoforms = parseIsoforms(request.join());
+                    } catch (Exception e) {
+                        logger.error("Error has occurred while retrieving data for {} : {}", uniProtId, e.getMessage());
+                        isoforms = new JSONArray();
+                    }
+                    rows = mapTranscripts(uniProtId, t._2, isoforms).iterator();
+                }
+                return rows.next();
+            }
+        };
+    }
+
+    private List<Row> mapTranscripts(String uniProtId, Iterable<Row> it, JSONArray isoforms) {
 
-        JSONArray isoforms = getSequenceIsoforms(uniProtId);
         if (isoforms.length() == 0) {
             logger.error("Could not retrieve data for {}", uniProtId);
-            return new ArrayList<Row>().iterator();
+            return new ArrayList<>();
         }
 
         Map<String, JSONObject> txptsMap = getTranscriptsMap(isoforms);
@@ -174,11 +259,7 @@ public class MapGeneTranscriptsToProteinIsoforms implements FlatMapFunction<Tupl
 
             if (txptsMap.keySet().contains(txptId)) {
                 JSONObject isoform = txptsMap.get(txptId);
-                txpt = RowUpdater.addField(txpt, CommonConstants.COL_MOLECULE_ID, isoform.getString("id"), DataTypes.StringType);
-                txpt = RowUpdater.addField(txpt, CommonConstants.COL_PROTEIN_SEQUENCE, isoform.getString("sequence"), DataTypes.StringType);
-                txpt = RowUpdater.addField(txpt, CommonConstants.COL_SEQUENCE_STATUS, isoform.getString("sequenceStatus"), DataTypes.StringType);
-                txpt = RowUpdater.addField(txpt, CommonConstants.COL_CANONICAL, isoform.getBoolean(CommonConstants.COL_CANONICAL), DataTypes.BooleanType);
-                transcripts.add(txpt);
+                transcripts.add(addIsoform(txpt, isoform));
                 logger.info("The sequence of transcript {} is mapped to isoform sequence {}", txptId, isoform.getString("id"));
                 
             } else {
@@ -200,43 +281,20 @@ public class MapGeneTranscriptsToProteinIsoforms implements FlatMapFunction<Tupl
                 if ( lengthMap.get(proteinLength).size() == 1 ) {
 
                     JSONObject isoform = lengthMap.get(proteinLength).get(0);
-                    txpt = RowUpdater.addField(txpt, CommonConstants.COL_MOLECULE_ID, isoform.getString("id"), DataTypes.StringType);
-                    txpt = RowUpdater.addField(txpt, CommonConstants.COL_PROTEIN_SEQUENCE, isoform.getString("sequence"), DataTypes.StringType);
-                    txpt = RowUpdater.addField(txpt, CommonConstants.COL_SEQUENCE_STATUS, isoform.getString("sequenceStatus"), DataTypes.StringType);
-                    txpt = RowUpdater.addField(txpt, CommonConstants.COL_CANONICAL, isoform.getBoolean(CommonConstants.COL_CANONICAL), DataTypes.BooleanType);
-                    transcripts.add(txpt);
+                    transcripts.add(addIsoform(txpt, isoform));
                     logger.info("The sequence of transcript {} is mapped to isoform sequence {}", txptId, isoform.getString("id"));
 
                 } else {
-                    String chr = txpt.getString(txpt.fieldIndex(CommonConstants.COL_CHROMOSOME));
-                    String strand = txpt.getString(txpt.fieldIndex(CommonConstants.COL_ORIENTATION));
-                    List<Range<Integer>> cds = new ArrayList<>();
-                    for (Row range : coding) {
-                        cds.add(Range.closed(
-                                  range.getInt(range.fieldIndex(CommonConstants.COL_START))
-                                , range.getInt(range.fieldIndex(CommonConstants.COL_END))));
-                    }
-
-                    String sequence;
-                    try {
-                        GenomeUtils.setGenome(organism);
-                        sequence = GenomeUtils.getProteinSequence(strand, GenomeUtils.getTranscriptSequence(chr, cds));
-                    } catch (CompoundNotFoundException e) {
-                        logger.error("Could not construct DNA sequence for {}: {}", txptId, e.getCause());
-                        continue;
-                    }
-                    catch (TranslationException e) {
-                        logger.error("Could not construct protein sequence for {}: {}", txptId, e.getCause());
+                    int index = txpt.fieldIndex(CommonConstants.COL_TRANSLATION);
+                    if (txpt.isNullAt(index)) {
+                        logger.info("The sequence of transcript {} is not in the translations store", txptId);
                         continue;
                     }
+                    String sequence = txpt.getString(index);
 
                     for (JSONObject isoform : lengthMap.get(proteinLength)) {
                         if (isoform.getString("sequence").equals(sequence)) {
-                            txpt = RowUpdater.addField(txpt, CommonConstants.COL_MOLECULE_ID, isoform.getString("id"), DataTypes.StringType);
-                            txpt = RowUpdater.addField(txpt, CommonConstants.COL_PROTEIN_SEQUENCE, isoform.getString("sequence"), DataTypes.StringType);
-                            txpt = RowUpdater.addField(txpt, CommonConstants.COL_SEQUENCE_STATUS, isoform.getString("sequenceStatus"), DataTypes.StringType);
-                            txpt = RowUpdater.addField(txpt, CommonConstants.COL_CANONICAL, isoform.getBoolean(CommonConstants.COL_CANONICAL), DataTypes.BooleanType);
-                            transcripts.add(txpt);
+                            transcripts.add(addIsoform(txpt, isoform));
                             logger.info("The sequence of transcript {} is mapped to isoform sequence {}", txptId, isoform.getString("id"));
                             continue;
                         }
@@ -245,6 +303,6 @@ public class MapGeneTranscriptsToProteinIsoforms implements FlatMapFunction<Tupl
                 }
             }
         }
-        return transcripts.iterator();
+        return transcripts;
     }
-}
\ No newline at end of file
+}
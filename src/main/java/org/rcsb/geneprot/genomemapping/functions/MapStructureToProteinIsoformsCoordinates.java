@@ -1,13 +1,11 @@
 package org.rcsb.geneprot.genomemapping.functions;
 
-import com.mashape.unirest.http.HttpResponse;
-import com.mashape.unirest.http.JsonNode;
-import com.mashape.unirest.http.Unirest;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.sql.Row;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+import org.rcsb.geneprot.genomemapping.utils.PDBeApiClient;
 import org.rcsb.mojave.genomemapping.SequenceToStructureFeaturesMap;
 import org.rcsb.mojave.mappers.PositionMapping;
 import org.rcsb.mojave.mappers.SegmentMapping;
@@ -38,16 +36,23 @@ public class MapStructureToProteinIsoformsCoordinates implements FlatMapFunction
 
     public static Iterator<SequenceToStructureFeaturesMap> getCoordinatesForAllIsoforms(String entryId) throws Exception {
 
-        HttpResponse<JsonNode> response = Unirest
-                .get("https://www.ebi.ac.uk/pdbe/api/mappings/all_isoforms/{id}")
-                .routeParam("id", entryId)
-                .asJson();
+        String response = PDBeApiClient.getInstance(PDBeApiClient.DEFAULT_MAX_CONCURRENCY,
+                PDBeApiClient.DEFAULT_REQUESTS_PER_SECOND)
+                .getAllIsoforms(entryId).get();
+        return getCoordinatesForAllIsoforms(entryId, response);
+    }
+
+    /**
+     * Parses the mappings of a PDB entry to all UniProt isoforms returned by the PDBe API.
+     *
+     * @param response - the JSON text of the response, null if the entry has no mappings
+     */
+    public static Iterator<SequenceToStructureFeaturesMap> getCoordinatesForAllIsoforms(String entryId, String response) {
 
-        if (response.getStatus() != 200)
+        if (response == null)
             return new ArrayList<SequenceToStructureFeaturesMap>().iterator();
 
-        JsonNode body = response.getBody();
-        JSONObject obj = body.getObject()
+        JSONObject obj = new JSONObject(response)
                     .getJSONObject(entryId.toLowerCase())
                     .getJSONObject("UniProt");
 
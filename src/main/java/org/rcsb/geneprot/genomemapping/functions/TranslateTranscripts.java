@@ -0,0 +1,106 @@
+package org.rcsb.geneprot.genomemapping.functions;
+
+import com.google.common.collect.Range;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.rcsb.geneprot.common.io.DataLocationProvider;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+import org.rcsb.geneprot.genomemapping.utils.GenomeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/** Translates the coding sequences of the transcripts of a partition to protein sequences.
+ *
+ * The transcripts are grouped by chromosome and the sequences of each chromosome are read
+ * from the genome in one sweep. Coding ranges are 1-based and closed, as in GTF files, and
+ * are sorted by start, whatever the order of the exons. The rows follow
+ * {@link org.rcsb.geneprot.genomemapping.constants.DatasetSchemas#TRANSCRIPT_TRANSLATION_SCHEMA}.
+ *
+ * Created by Yana Valasatava on 11/28/17.
+ */
+public class TranslateTranscripts implements FlatMapFunction<Iterator<Row>, Row> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranslateTranscripts.class);
+
+    private final String organism;
+
+    public TranslateTranscripts(Broadcast<String> bc) {
+        organism = bc.getValue();
+    }
+
+    @Override
+    public Iterator<Row> call(Iterator<Row> it) throws Exception {
+
+        Map<String, List<Row>> chromosomes = new LinkedHashMap<>();
+        while (it.hasNext()) {
+            Row txpt = it.next();
+            List<Row> coding = txpt.getList(txpt.fieldIndex(CommonConstants.COL_CODING));
+            if (coding == null || coding.isEmpty())
+                continue;
+            chromosomes.computeIfAbsent(txpt.getString(txpt.fieldIndex(CommonConstants.COL_CHROMOSOME)), k -> new ArrayList<>())
+                    .add(txpt);
+        }
+
+        List<Row> translations = new ArrayList<>();
+        if (chromosomes.isEmpty())
+            return translations.iterator();
+
+        GenomeUtils.setGenome(organism);
+        TwoBitGenome genome = TwoBitGenome.getInstance(DataLocationProvider.getGenomeLocation());
+
+        for (Map.Entry<String, List<Row>> entry : chromosomes.entrySet()) {
+
+            String chr = entry.getKey();
+            if (!genome.hasSequence(chr)) {
+                logger.info("Chromosome {} is not in the genome, {} transcripts are not translated", chr, entry.getValue().size());
+                continue;
+            }
+
+            List<String> orientations = new ArrayList<>();
+            List<List<Range<Integer>>> cds = new ArrayList<>();
+            for (Row txpt : entry.getValue()) {
+                orientations.add(txpt.getString(txpt.fieldIndex(CommonConstants.COL_ORIENTATION)));
+                cds.add(getCodingRanges(txpt.getList(txpt.fieldIndex(CommonConstants.COL_CODING))));
+            }
+
+            String[] proteins = GenomeUtils.getProteinSequences(genome, chr, orientations, cds);
+            for (int i = 0; i < proteins.length; i++) {
+                Row txpt = entry.getValue().get(i);
+                translations.add(RowFactory.create(
+                          txpt.getString(txpt.fieldIndex(CommonConstants.COL_TRANSCRIPT_ID))
+                        , getCodingLength(cds.get(i))
+                        , proteins[i]
+                        , GenomeUtils.getSequenceDigest(proteins[i])));
+            }
+        }
+        return translations.iterator();
+    }
+
+    /**
+     * Gets the coding ranges of a transcript sorted by start, as 0-based half-open ranges.
+     */
+    public static List<Range<Integer>> getCodingRanges(List<Row> coding) {
+
+        List<Range<Integer>> ranges = new ArrayList<>(coding.size());
+        for (Row range : coding) {
+            int start = range.getInt(range.fieldIndex(CommonConstants.COL_START));
+            int end = range.getInt(range.fieldIndex(CommonConstants.COL_END));
+            ranges.add(Range.closed(start - 1, end));
+        }
+        ranges.sort(Comparator.comparing(Range::lowerEndpoint));
+        return ranges;
+    }
+
+    private static int getCodingLength(List<Range<Integer>> ranges) {
+        int length = 0;
+        for (Range<Integer> range : ranges) {
+            length += range.upperEndpoint() - range.lowerEndpoint();
+        }
+        return length;
+    }
+}
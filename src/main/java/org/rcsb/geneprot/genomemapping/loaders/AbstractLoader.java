@@ -49,6 +49,8 @@ public abstract class AbstractLoader {
     public static String getOrganism() {
         if (taxonomyId==9606)
             return "human";
+        if (taxonomyId==10090)
+            return "mouse";
         return "";
     }
 
@@ -1,19 +1,21 @@
 package org.rcsb.geneprot.genomemapping.loaders;
 
 import org.apache.commons.lang3.time.DurationFormatUtils;
-import org.apache.spark.SparkFiles;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
 import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.StructType;
 import org.rcsb.geneprot.common.io.DataLocationProvider;
 import org.rcsb.geneprot.common.utils.SparkUtils;
-import org.rcsb.geneprot.gencode.gtf.GTFParser;
+import org.rcsb.geneprot.gencode.gtf.GTFDataSource;
+import org.rcsb.geneprot.gencode.gtf.GencodeFeature;
 import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
 import org.rcsb.geneprot.genomemapping.constants.DatasetSchemas;
 import org.rcsb.geneprot.genomemapping.constants.MongoCollections;
 import org.rcsb.geneprot.genomemapping.functions.AnnotateAlternativeEvents;
+import org.rcsb.geneprot.genomemapping.functions.GroupTranscriptFeatures;
 import org.rcsb.geneprot.genomemapping.parsers.ParseGTFRecords;
 import org.rcsb.redwood.util.DerivedDataLoadUtils;
 import org.slf4j.Logger;
@@ -21,7 +23,8 @@ import org.slf4j.LoggerFactory;
 import scala.Tuple2;
 
 import java.util.IllegalFormatException;
-import java.util.List;
+
+import static org.apache.spark.sql.functions.col;
 
 /** This loader process genome annotation file (in GTF format).
  *  This includes annotating alternative transcripts.
@@ -33,26 +36,55 @@ public class LoadCoreGenomicTranscripts extends AbstractLoader {
     private static SparkSession sparkSession = SparkUtils.getSparkSession();
     private static final Logger logger = LoggerFactory.getLogger(LoadCoreGenomicTranscripts.class);
 
-    public static Dataset<Row> parseAnnotationFile(String filePath) throws IllegalFormatException {
+    // the features read by ParseGTFRecords, with every spelling of the UTRs accepted by FeatureType.fromString:
+    // the filter is pushed down into the scan and compares the names exactly
+    private static final Object[] TRANSCRIPT_FEATURES = {"transcript", "exon", "CDS", "start_codon", "stop_codon"
+            , "UTR", "five_prime_utr", "three_prime_utr", "5UTR", "3UTR", "5utr", "3utr"};
 
-        sparkSession.sparkContext().addFile(filePath);
-        int n = filePath.split("/").length;
-        String filename = SparkFiles.get(filePath.split("/")[n - 1]);
+    /**
+     * How the features of a transcript are brought together: LOCAL groups the contiguous features
+     * of the transcripts within each partition (see {@link GroupTranscriptFeatures}), SHUFFLE groups
+     * them by transcript ID and works for files in any order.
+     */
+    public enum GroupingMode { LOCAL, SHUFFLE }
 
-        JavaRDD<String> records = sparkSession.sparkContext()
-                .textFile(filename, 200)
-                .toJavaRDD();
+    private static GroupingMode groupingMode = GroupingMode.LOCAL;
+
+    public static GroupingMode getGroupingMode() {
+        return groupingMode;
+    }
+
+    public static void setGroupingMode(GroupingMode mode) {
+        groupingMode = mode;
+    }
+
+    public static Dataset<Row> parseAnnotationFile(String filePath) throws IllegalFormatException {
 
         if (getFormat().equals("gtf")) {
-            GTFParser parser = new GTFParser();
-            JavaRDD<Row> rdd = records
-                    .map(line -> parser.parseLine(line))
-                    .filter(e -> e!= null)
-                    .filter(e -> (e.getAttributes().containsKey("transcript_biotype")
-                              && (e.getAttributes().get("transcript_biotype").equals("protein_coding"))))
-                    .mapToPair(e -> new Tuple2<>(e.getAttributes().get("transcript_id"), e))
-                    .groupByKey().map(t -> t._2)
-                    .map(new ParseGTFRecords());
+            // the biotype and feature filters are checked on the raw lines by the data source
+            JavaRDD<GencodeFeature> features = sparkSession.read()
+                    .format(GTFDataSource.FORMAT)
+                    .option("partitions", 200)
+                    .load(filePath)
+                    .filter(col(GTFDataSource.COL_TRANSCRIPT_BIOTYPE).equalTo("protein_coding")
+                            .and(col(GTFDataSource.COL_FEATURE).isin(TRANSCRIPT_FEATURES)))
+                    .select(col(GTFDataSource.COL_SEQNAME), col(GTFDataSource.COL_FEATURE)
+                            , col(GTFDataSource.COL_START), col(GTFDataSource.COL_END), col(GTFDataSource.COL_STRAND)
+                            , col(GTFDataSource.COL_GENE_ID), col(GTFDataSource.COL_GENE_NAME)
+                            , col(GTFDataSource.COL_TRANSCRIPT_ID), col(GTFDataSource.COL_TRANSCRIPT_NAME)
+                            , col(GTFDataSource.COL_CCDS_ID), col(GTFDataSource.COL_EXON_NUMBER))
+                    .toJavaRDD()
+                    .map(GTFDataSource::toFeature);
+
+            JavaRDD<Iterable<GencodeFeature>> transcripts;
+            if (groupingMode == GroupingMode.SHUFFLE) {
+                transcripts = features
+                        .mapToPair(e -> new Tuple2<>(e.getAttributes().get("transcript_id"), e))
+                        .groupByKey().map(t -> t._2);
+            } else {
+                transcripts = GroupTranscriptFeatures.groupTranscripts(features);
+            }
+            JavaRDD<Row> rdd = transcripts.map(new ParseGTFRecords());
 
             Dataset<Row> df = sparkSession.createDataFrame(rdd, DatasetSchemas.GENCODE_TRANSCRIPT_SCHEMA);
             return df;
@@ -78,9 +110,14 @@ public class LoadCoreGenomicTranscripts extends AbstractLoader {
         return null;
     }
 
+    /**
+     * Annotates the alternative events of the transcripts of each gene. The output schema is known
+     * up front, so the dataset is built from the distributed rows and nothing is collected on the driver.
+     */
     public static Dataset<Row> processTranscripts(Dataset<Row> transcripts) {
 
         try {
+            StructType schema = AnnotateAlternativeEvents.getOutputSchema(transcripts.schema());
             JavaRDD<Row> rdd = transcripts
                     .toJavaRDD()
                     .mapToPair(e -> new Tuple2<>( e.getString(e.fieldIndex(CommonConstants.COL_CHROMOSOME)) + CommonConstants.KEY_SEPARATOR
@@ -89,8 +126,7 @@ public class LoadCoreGenomicTranscripts extends AbstractLoader {
                     .groupByKey().map(e -> e._2)
                     .flatMap(new AnnotateAlternativeEvents());
 
-            List<Row> list = rdd.collect();
-            return sparkSession.createDataFrame(list, list.get(0).schema());
+            return sparkSession.createDataFrame(rdd, schema);
 
         } catch (Exception e) {
             logger.error("Exiting: fatal error has occurred while processing isoforms {} : {} {}", e.getCause(), e.getMessage(), e.fillInStackTrace());
@@ -104,6 +140,8 @@ public class LoadCoreGenomicTranscripts extends AbstractLoader {
         long timeS = System.currentTimeMillis();
 
         setArguments(args);
+        if (args.length > 2)
+            setGroupingMode(GroupingMode.valueOf(args[2].toUpperCase()));
 
         Dataset<Row> transcripts = buildTranscripts();
         if (transcripts == null) {
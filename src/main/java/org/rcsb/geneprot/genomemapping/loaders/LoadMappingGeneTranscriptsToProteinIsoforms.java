@@ -7,7 +7,6 @@ import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
-import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
@@ -118,12 +117,21 @@ public class LoadMappingGeneTranscriptsToProteinIsoforms extends AbstractLoader
         return annotation;
     }
 
-    public static Dataset<Row> processTranscripts(Dataset<Row> transcripts) {
+    public static Dataset<Row> addTranslations(Dataset<Row> transcripts) {
+
+        Dataset<Row> translations = LoadTranscriptTranslations.getTranslations()
+                .select(col(CommonConstants.COL_TRANSCRIPT_ID), col(CommonConstants.COL_TRANSLATION));
+        transcripts = transcripts.join(translations
+                , transcripts.col(CommonConstants.COL_TRANSCRIPT_ID)
+                        .equalTo(translations.col(CommonConstants.COL_TRANSCRIPT_ID))
+                , "left_outer")
+                .drop(translations.col(CommonConstants.COL_TRANSCRIPT_ID));
+        return transcripts;
+    }
 
-        JavaSparkContext jsc = new JavaSparkContext(sparkSession.sparkContext());
-        Broadcast<String> bc = jsc.broadcast(getOrganism());
+    public static Dataset<Row> processTranscripts(Dataset<Row> transcripts) {
 
-        JavaRDD<Row> rdd = transcripts
+        JavaRDD<Row> rdd = addTranslations(transcripts)
                 .toJavaRDD()
                 .repartition(8000)
                 .mapToPair(e -> new Tuple2<>(e.getString(e.fieldIndex(CommonConstants.COL_CHROMOSOME))  + CommonConstants.KEY_SEPARATOR +
@@ -131,7 +139,7 @@ public class LoadMappingGeneTranscriptsToProteinIsoforms extends AbstractLoader
                                                  e.getString(e.fieldIndex(CommonConstants.COL_ORIENTATION)) + CommonConstants.KEY_SEPARATOR +
                                                  e.getString(e.fieldIndex(CommonConstants.COL_UNIPROT_ACCESSION)), e))
                 .groupByKey()
-                .flatMap(new MapGeneTranscriptsToProteinIsoforms(bc));
+                .mapPartitions(new MapGeneTranscriptsToProteinIsoforms());
 
         List<Row> list = rdd.filter( e -> e !=null ).collect();
         StructType schema = list.get(0).schema();
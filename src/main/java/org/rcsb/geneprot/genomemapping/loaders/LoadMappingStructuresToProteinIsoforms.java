@@ -6,23 +6,38 @@ import com.mongodb.spark.rdd.api.java.JavaMongoRDD;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SaveMode;
 import org.apache.spark.sql.SparkSession;
 import org.bson.Document;
+import org.rcsb.geneprot.common.io.DataLocationProvider;
 import org.rcsb.geneprot.common.utils.ExternalDBUtils;
 import org.rcsb.geneprot.common.utils.SparkUtils;
 import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
 import org.rcsb.geneprot.genomemapping.constants.MongoCollections;
+import org.rcsb.geneprot.genomemapping.functions.HarvestAllIsoformsMappings;
 import org.rcsb.geneprot.genomemapping.functions.MapStructureToProteinIsoformsCoordinates;
+import org.rcsb.geneprot.genomemapping.utils.PDBeApiClient;
 import org.rcsb.mojave.genomemapping.SequenceToStructureFeaturesMap;
 import org.rcsb.redwood.util.DBConnectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.apache.spark.sql.functions.col;
 
@@ -36,6 +51,14 @@ public class LoadMappingStructuresToProteinIsoforms extends AbstractLoader {
     private static SparkSession sparkSession = SparkUtils.getSparkSession();
     private static Map<String, String> mongoDBOptions = DBConnectionUtils.getMongoDBOptions();
 
+    // the entries harvested by a job, each job writing a checkpoint
+    private static final int CHUNK_SIZE = 20000;
+    // the partitions of a chunk
+    private static final int PARTITIONS = 32;
+
+    public static final String CHECKPOINT_PREFIX = "chunk-";
+    public static final String FAILED_ENTRIES = "failed";
+
     public static Dataset<Row> getCurrentEntryIds() {
 
         mongoDBOptions.put("spark.mongodb.input.collection", org.rcsb.mojave.util.MongoCollections.COLL_ENTRY_ID_CURRENT);
@@ -50,13 +73,126 @@ public class LoadMappingStructuresToProteinIsoforms extends AbstractLoader {
         return df;
     }
 
-    public static List<SequenceToStructureFeaturesMap> getStructureToProteinIsoformsMapping() {
+    /**
+     * Gets the paths of the checkpoints written by completed jobs.
+     */
+    private static List<String> getCheckpoints(String location) throws IOException {
+
+        Path dir = Paths.get(location);
+        if (!Files.isDirectory(dir))
+            return new ArrayList<>();
+
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths
+                    .filter(p -> p.getFileName().toString().startsWith(CHECKPOINT_PREFIX))
+                    .filter(p -> Files.exists(p.resolve("_SUCCESS")))
+                    .map(Path::toString)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the responses of the PDBe API harvested so far, with the errors of the failed requests.
+     */
+    public static Dataset<Row> readCheckpoints(String location) throws IOException {
+
+        List<String> paths = getCheckpoints(location);
+        if (paths.isEmpty())
+            return sparkSession.createDataFrame(new ArrayList<Row>(), HarvestAllIsoformsMappings.SCHEMA);
+        return sparkSession.read().parquet(paths.toArray(new String[paths.size()]));
+    }
+
+    /**
+     * Harvests the mappings to all UniProt isoforms of the entries that have not been harvested yet.
+     *
+     * The entries are harvested in chunks, each by a job writing a new Parquet checkpoint, so that a failed
+     * run loses the current chunk only. The entries with a successful response in a checkpoint are skipped,
+     * the failed ones are requested again. The executors share the rate of the requests.
+     */
+    public static void harvest(Dataset<Row> entries, String location) throws IOException {
+
+        // the memory status lists the driver with the executors, except in local mode
+        int executors = Math.max(1, sparkSession.sparkContext().getExecutorMemoryStatus().size() - 1);
+        harvest(entries, location, new HarvestAllIsoformsMappings(PDBeApiClient.DEFAULT_REQUESTS_PER_SECOND / executors,
+                PDBeApiClient.DEFAULT_MAX_CONCURRENCY, HarvestAllIsoformsMappings.DEFAULT_PREFETCH));
+    }
+
+    /**
+     * Harvests the entries that have not been harvested yet with the given function, returning rows of
+     * {@link HarvestAllIsoformsMappings#SCHEMA} for the entries of a partition.
+     */
+    public static void harvest(Dataset<Row> entries, String location, FlatMapFunction<Iterator<Row>, Row> function)
+            throws IOException {
+
+        Dataset<Row> harvested = readCheckpoints(location)
+                .filter(col(CommonConstants.COL_ERROR).isNull())
+                .select(CommonConstants.COL_ENTRY_ID);
+        Dataset<Row> remaining = entries
+                .select(CommonConstants.COL_ENTRY_ID)
+                .distinct();
+        remaining = remaining.join(harvested,
+                remaining.col(CommonConstants.COL_ENTRY_ID).equalTo(harvested.col(CommonConstants.COL_ENTRY_ID)), "left_anti");
+
+        List<String> ids = new ArrayList<>(remaining.as(Encoders.STRING()).collectAsList());
+        Collections.sort(ids);
+        logger.info("Harvesting isoforms mappings for {} entries", ids.size());
+
+        long run = System.currentTimeMillis();
+
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+
+            List<String> chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size()));
+            JavaRDD<Row> rdd = sparkSession.createDataset(chunk, Encoders.STRING())
+                    .toDF(CommonConstants.COL_ENTRY_ID)
+                    .repartition(PARTITIONS)
+                    .toJavaRDD()
+                    .mapPartitions(function);
+
+            String path = location + CHECKPOINT_PREFIX + run + "-" + String.format("%05d", i / CHUNK_SIZE);
+            sparkSession.createDataFrame(rdd, HarvestAllIsoformsMappings.SCHEMA)
+                    .write().parquet(path);
+            logger.info("Harvested {} of {} entries", i + chunk.size(), ids.size());
+        }
+    }
+
+    /**
+     * Writes the entries whose requests have all failed, to be harvested again.
+     */
+    public static Dataset<Row> writeFailedEntries(Dataset<Row> checkpoints, String location) {
+
+        Dataset<Row> failed = checkpoints
+                .filter(col(CommonConstants.COL_ERROR).isNotNull())
+                .select(CommonConstants.COL_ENTRY_ID)
+                .except(checkpoints
+                        .filter(col(CommonConstants.COL_ERROR).isNull())
+                        .select(CommonConstants.COL_ENTRY_ID));
+        failed.write().mode(SaveMode.Overwrite).parquet(location + FAILED_ENTRIES);
+        return failed;
+    }
+
+    public static List<SequenceToStructureFeaturesMap> getStructureToProteinIsoformsMapping() throws IOException {
+
+        String location = DataLocationProvider.getAllIsoformsMappingsLocation();
+        Dataset<Row> entries = getCurrentEntryIds();
+        harvest(entries, location);
+
+        Dataset<Row> checkpoints = readCheckpoints(location);
+        long failed = writeFailedEntries(checkpoints, location).count();
+        if (failed > 0)
+            logger.error("Could not retrieve isoforms mappings for {} entries, see {}", failed, location + FAILED_ENTRIES);
+
+        Dataset<Row> harvested = checkpoints
+                .filter(col(CommonConstants.COL_ERROR).isNull())
+                .dropDuplicates(new String[]{CommonConstants.COL_ENTRY_ID});
+        harvested = harvested.join(entries,
+                harvested.col(CommonConstants.COL_ENTRY_ID).equalTo(entries.col(CommonConstants.COL_ENTRY_ID)), "left_semi");
 
-        Dataset<Row> df = getCurrentEntryIds();
-        JavaRDD<SequenceToStructureFeaturesMap> rdd = df
+        JavaRDD<SequenceToStructureFeaturesMap> rdd = harvested
                 .toJavaRDD()
-                .repartition(8000)
-                .flatMap(new MapStructureToProteinIsoformsCoordinates());
+                .flatMap(row -> MapStructureToProteinIsoformsCoordinates.getCoordinatesForAllIsoforms(
+                        row.getString(row.fieldIndex(CommonConstants.COL_ENTRY_ID)),
+                        row.getString(row.fieldIndex(CommonConstants.COL_RESPONSE))));
         List<SequenceToStructureFeaturesMap> list = rdd.collect();
 
         return list;
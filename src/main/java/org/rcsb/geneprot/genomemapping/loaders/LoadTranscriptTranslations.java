@@ -0,0 +1,106 @@
+package org.rcsb.geneprot.genomemapping.loaders;
+
+import org.apache.commons.lang3.time.DurationFormatUtils;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SaveMode;
+import org.apache.spark.sql.SparkSession;
+import org.rcsb.geneprot.common.io.DataLocationProvider;
+import org.rcsb.geneprot.common.utils.SparkUtils;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+import org.rcsb.geneprot.genomemapping.constants.DatasetSchemas;
+import org.rcsb.geneprot.genomemapping.constants.MongoCollections;
+import org.rcsb.geneprot.genomemapping.functions.TranslateTranscripts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+import static org.apache.spark.sql.functions.col;
+
+/** This loader translates the coding sequences of the transcripts built by {@link LoadCoreGenomicTranscripts}
+ *  and stores the protein sequences in a Parquet table per genome assembly and annotation release.
+ *  The table is built once: reruns for the same release read it back without touching the genome.
+ *
+ * Created by Yana Valasatava on 11/28/17.
+ */
+public class LoadTranscriptTranslations extends AbstractLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTranscriptTranslations.class);
+
+    private static SparkSession sparkSession = SparkUtils.getSparkSession();
+
+    /**
+     * Gets the name of the annotation release, taken from the name of the annotation file
+     * (e.g., Homo_sapiens.GRCh38.90 for Homo_sapiens.GRCh38.90.gtf.gz).
+     */
+    public static String getAnnotationRelease() {
+
+        String resource = DataLocationProvider.getGenomeAnnotationResource(getTaxonomyId(), getFormat());
+        String release = resource.substring(resource.lastIndexOf('/') + 1);
+        if (release.endsWith(".gz"))
+            release = release.substring(0, release.length() - 3);
+        int extension = release.lastIndexOf('.');
+        return extension > 0 ? release.substring(0, extension) : release;
+    }
+
+    public static String getTranslationsLocation() {
+        DataLocationProvider.setGenome(getOrganism());
+        return DataLocationProvider.getTranscriptTranslationsLocation(DataLocationProvider.getGenomeAssembly(), getAnnotationRelease());
+    }
+
+    public static boolean hasTranslations() {
+        return new File(getTranslationsLocation(), "_SUCCESS").exists();
+    }
+
+    public static Dataset<Row> translateTranscripts(Dataset<Row> transcripts) {
+
+        JavaSparkContext jsc = new JavaSparkContext(sparkSession.sparkContext());
+        Broadcast<String> bc = jsc.broadcast(getOrganism());
+
+        JavaRDD<Row> rdd = transcripts
+                .select(col(CommonConstants.COL_CHROMOSOME), col(CommonConstants.COL_ORIENTATION)
+                        , col(CommonConstants.COL_TRANSCRIPT_ID), col(CommonConstants.COL_CODING))
+                .repartition(col(CommonConstants.COL_CHROMOSOME))
+                .toJavaRDD()
+                .mapPartitions(new TranslateTranscripts(bc));
+
+        return sparkSession.createDataFrame(rdd, DatasetSchemas.TRANSCRIPT_TRANSLATION_SCHEMA);
+    }
+
+    /**
+     * Gets the translations of the current annotation release, translating the transcripts
+     * of the core collection first if the release has not been translated yet.
+     */
+    public static Dataset<Row> getTranslations() {
+
+        String location = getTranslationsLocation();
+        if ( !hasTranslations() ) {
+            logger.info("Translating transcripts to {}", location);
+            String collectionName = MongoCollections.COLL_CORE_TRANSCRIPTS + "_" + getTaxonomyId();
+            translateTranscripts(LoadMappingGeneTranscriptsToProteinIsoforms.getTranscripts(collectionName))
+                    .write().mode(SaveMode.Overwrite).parquet(location);
+        }
+        return sparkSession.read().parquet(location);
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        logger.info("Started translating transcripts...");
+        long timeS = System.currentTimeMillis();
+
+        setArguments(args);
+
+        if (hasTranslations()) {
+            logger.info("Translations of {} are up to date, skipping", getAnnotationRelease());
+        } else {
+            getTranslations();
+        }
+
+        long timeE = System.currentTimeMillis();
+        logger.info("Completed. Time taken: " + DurationFormatUtils.formatPeriod(timeS, timeE, "HH:mm:ss:SS"));
+    }
+}
@@ -5,12 +5,13 @@ import org.apache.spark.api.java.function.PairFlatMapFunction;
 import org.biojava.nbio.core.sequence.DNASequence;
 import org.biojava.nbio.core.sequence.ProteinSequence;
 import org.biojava.nbio.core.util.SequenceTools;
-import org.biojava.nbio.genome.parsers.twobit.TwoBitFacade;
 import org.biojava.nbio.genome.util.ChromosomeMappingTools;
 import org.biojava.nbio.genome.util.ProteinMappingTools;
 import org.rcsb.geneprot.common.io.DataLocationProvider;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
 import org.rcsb.geneprot.common.utils.CommonUtils;
 import org.rcsb.geneprot.gencode.dao.MetadataDAO;
+import org.rcsb.geneprot.genes.expression.RNApolymerase;
 import org.rcsb.humangenome.function.SparkGeneChromosomePosition;
 import org.rcsb.uniprot.auto.Uniprot;
 import org.rcsb.uniprot.auto.dao.UniprotDAO;
@@ -155,11 +156,11 @@ public class GetUniprotGeneMapping implements PairFlatMapFunction<Tuple2<String,
                 DataLocationProvider.setGenome("mouse");
                 File twoBitFileLocalLocation = new File(DataLocationProvider.getGenomeLocation());
 
-                TwoBitFacade twoBitFacade = new TwoBitFacade(twoBitFileLocalLocation);
+                TwoBitGenome genome = TwoBitGenome.getInstance(twoBitFileLocalLocation);
 
-                DNASequence transcriptDNASequence = ChromosomeMappingTools.getTranscriptDNASequence(twoBitFacade,
+                DNASequence transcriptDNASequence = new DNASequence(RNApolymerase.getCodingSequence(genome,
                         chromosomePosition.getChromosome(), chromosomePosition.getExonStarts(), chromosomePosition.getExonEnds(),
-                        chromosomePosition.getCdsStart(), chromosomePosition.getCdsEnd(), chromosomePosition.getOrientation().charAt(0));
+                        chromosomePosition.getCdsStart(), chromosomePosition.getCdsEnd(), chromosomePosition.getOrientation().charAt(0)));
 
                 ProteinSequence sequence = null;
                 try {
@@ -5,7 +5,6 @@ import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.types.StructType;
 import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
-import org.rcsb.geneprot.gencode.gtf.FeatureType;
 import org.rcsb.geneprot.gencode.gtf.GencodeFeature;
 import org.rcsb.geneprot.genomemapping.constants.DatasetSchemas;
 
@@ -23,55 +22,62 @@ public class ParseGTFRecords implements Function<Iterable<GencodeFeature>, Row>
         StructType schema = DatasetSchemas.GENCODE_TRANSCRIPT_SCHEMA;
         Object[] t = new Object[schema.fields().length];
 
+        List<Row> utr = new ArrayList<>();
+        List<Row> cds = new ArrayList<>();
+        List<Row> exons = new ArrayList<>();
+
+        // a single pass over the features of the transcript
         for (GencodeFeature feature : features) {
 
-            if (feature.getFeatureType().equals(FeatureType.TRANSCRIPT)) {
+            switch (feature.getFeatureType()) {
+
+                case TRANSCRIPT:
+                    t[schema.fieldIndex(CommonConstants.COL_CHROMOSOME)] = "chr"+feature.getChrom();
+                    t[schema.fieldIndex(CommonConstants.COL_GENE_NAME)] = feature.getGeneName();
+                    t[schema.fieldIndex(CommonConstants.COL_GENE_ID)] = feature.getAttributes().get("gene_id");
+                    t[schema.fieldIndex(CommonConstants.COL_ORIENTATION)] = feature.getStrand().toString();
+                    t[schema.fieldIndex(CommonConstants.COL_TRANSCRIPT_NAME)] = feature.getTranscriptName();
+                    t[schema.fieldIndex(CommonConstants.COL_TRANSCRIPT_ID)] = feature.getAttributes().get("transcript_id");
+
+                    t[schema.fieldIndex(CommonConstants.COL_CCDS_ID)] = feature.getAttributes().get("ccds_id");
+
+                    t[schema.fieldIndex(CommonConstants.COL_TRANSCRIPTION)] = RowFactory.create(feature.getStart(), feature.getEnd());
+                    break;
 
-                t[schema.fieldIndex(CommonConstants.COL_CHROMOSOME)] = "chr"+feature.getChrom();
-                t[schema.fieldIndex(CommonConstants.COL_GENE_NAME)] = feature.getGeneName();
-                t[schema.fieldIndex(CommonConstants.COL_GENE_ID)] = feature.getAttributes().get("gene_id");
-                t[schema.fieldIndex(CommonConstants.COL_ORIENTATION)] = feature.getStrand().toString();
-                t[schema.fieldIndex(CommonConstants.COL_TRANSCRIPT_NAME)] = feature.getTranscriptName();
-                t[schema.fieldIndex(CommonConstants.COL_TRANSCRIPT_ID)] = feature.getAttributes().get("transcript_id");
+                case START_CODON:
+                    t[schema.fieldIndex(CommonConstants.COL_START_CODON)] = RowFactory.create(feature.getStart(), feature.getEnd());
+                    break;
 
-                t[schema.fieldIndex(CommonConstants.COL_CCDS_ID)] = feature.getAttributes().get("ccds_id");
+                case STOP_CODON:
+                    t[schema.fieldIndex(CommonConstants.COL_STOP_CODON)] = RowFactory.create(feature.getStart(), feature.getEnd());
+                    break;
 
-                Object[] array = {feature.getStart(), feature.getEnd()};
-                t[schema.fieldIndex(CommonConstants.COL_TRANSCRIPTION)] = RowFactory.create(array);
+                case UTR:
+                case UTR5:
+                case UTR3:
+                    utr.add(RowFactory.create(feature.getStart(), feature.getEnd()));
+                    break;
 
-            } else if (feature.getFeatureType().equals(FeatureType.START_CODON)) {
-                Object[] array = {feature.getStart(), feature.getEnd()};
-                t[schema.fieldIndex(CommonConstants.COL_START_CODON)] = RowFactory.create(array);
+                case CDS:
+                    cds.add(RowFactory.create(Integer.valueOf(feature.getAttributes().get("exon_number"))
+                            , feature.getStart(), feature.getEnd()));
+                    break;
 
-            } else if (feature.getFeatureType().equals(FeatureType.STOP_CODON)) {
-                Object[] array = {feature.getStart(), feature.getEnd()};
-                t[schema.fieldIndex(CommonConstants.COL_STOP_CODON)] = RowFactory.create(array);
+                case EXON:
+                    exons.add(RowFactory.create(Integer.valueOf(feature.getAttributes().get("exon_number"))
+                            , feature.getStart(), feature.getEnd()));
+                    break;
+
+                default:
+                    break;
             }
         }
 
-        List<Row> utr = new ArrayList<>();
-        features.forEach(f -> { if ( f.getFeatureType().equals(FeatureType.UTR)
-                                  || f.getFeatureType().equals(FeatureType.UTR5)
-                                  || f.getFeatureType().equals(FeatureType.UTR3))
-        {utr.add(RowFactory.create(new Object[]{f.getStart(), f.getEnd()}));}
-        });
         t[schema.fieldIndex(CommonConstants.COL_UTR)] = utr.toArray();
-
-        List<Row> cds = new ArrayList<>();
-        features.forEach(f -> { if (f.getFeatureType().equals(FeatureType.CDS))
-                {cds.add(RowFactory.create(new Object[]{Integer.valueOf(f.getAttributes().get("exon_number"))
-                        , f.getStart(), f.getEnd()}));}
-        });
         t[schema.fieldIndex(CommonConstants.COL_CODING)] = cds.toArray();
-
-        List<Row> exons = new ArrayList<>();
-        features.forEach(f -> {if(f.getFeatureType().equals(FeatureType.EXON)) {
-            exons.add(RowFactory.create(new Object[]{Integer.valueOf(f.getAttributes().get("exon_number"))
-                    , f.getStart(), f.getEnd()}));}
-        });
         t[schema.fieldIndex(CommonConstants.COL_EXONS_COUNT)] = exons.size();
         t[schema.fieldIndex(CommonConstants.COL_EXONS)] = exons.toArray();
 
         return RowFactory.create(t);
     }
-}
\ No newline at end of file
+}
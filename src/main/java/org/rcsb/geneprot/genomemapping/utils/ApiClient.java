@@ -0,0 +1,268 @@
+package org.rcsb.geneprot.genomemapping.utils;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/** An asynchronous client of a JSON web API.
+ *
+ * The requests go through a pool of keep-alive connections and at most maxConcurrency of them are
+ * in flight: a caller issuing more requests waits for a permit, so that a task can issue the requests
+ * of a whole partition and consume the results afterwards. Connection errors and the 429 and 5xx
+ * responses are retried after an exponential backoff with random jitter. If the client has a rate
+ * limiter, every attempt of a request, retries included, is sent at the rate it allows.
+ *
+ * Created by Yana Valasatava on 12/13/17.
+ */
+public class ApiClient implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiClient.class);
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 16;
+    public static final int DEFAULT_MAX_RETRIES = 4;
+    public static final long DEFAULT_BACKOFF_MILLIS = 500;
+
+    private static final int TIMEOUT_MILLIS = 60000;
+
+    private final String url;
+    private final int maxRetries;
+    private final long backoffMillis;
+    private final RateLimiter rateLimiter;
+
+    private final Semaphore permits;
+    private final CloseableHttpAsyncClient client;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param url - the base URL of the API
+     * @param maxConcurrency - the maximum number of requests in flight
+     * @param maxRetries - the number of retries of a failed request
+     * @param backoffMillis - the mean delay before the first retry, doubled for each next one
+     */
+    public ApiClient(String url, int maxConcurrency, int maxRetries, long backoffMillis) throws IOReactorException {
+        this(url, maxConcurrency, maxRetries, backoffMillis, null);
+    }
+
+    /**
+     * @param url - the base URL of the API
+     * @param maxConcurrency - the maximum number of requests in flight
+     * @param maxRetries - the number of retries of a failed request
+     * @param backoffMillis - the mean delay before the first retry, doubled for each next one
+     * @param rateLimiter - the rate of the attempts of all requests, null if not limited
+     */
+    public ApiClient(String url, int maxConcurrency, int maxRetries, long backoffMillis, RateLimiter rateLimiter)
+            throws IOReactorException {
+
+        this.url = url;
+        this.maxRetries = maxRetries;
+        this.backoffMillis = backoffMillis;
+        this.rateLimiter = rateLimiter;
+        this.permits = new Semaphore(maxConcurrency);
+
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(TIMEOUT_MILLIS)
+                .setSoTimeout(TIMEOUT_MILLIS)
+                .setSoKeepAlive(true)
+                .build();
+        PoolingNHttpClientConnectionManager connections = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(reactorConfig));
+        connections.setMaxTotal(maxConcurrency);
+        connections.setDefaultMaxPerRoute(maxConcurrency);
+
+        client = HttpAsyncClients.custom()
+                .setConnectionManager(connections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(TIMEOUT_MILLIS)
+                        .setSocketTimeout(TIMEOUT_MILLIS)
+                        .build())
+                .build();
+        client.start();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "api-client-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Closes the client when the JVM shuts down.
+     */
+    protected static <T extends ApiClient> T closeOnShutdown(T client) {
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                client.close();
+            } catch (IOException e) {
+                logger.warn("Could not close the client of {}: {}", client.getUrl(), e.getMessage());
+            }
+        }));
+        return client;
+    }
+
+    /**
+     * Issues the requests of the supplier holding a permit until they are completed. Waits for a permit
+     * if maxConcurrency requests are in flight.
+     */
+    protected <T> CompletableFuture<T> withPermit(Supplier<CompletableFuture<T>> requests) throws InterruptedException {
+
+        permits.acquire();
+        CompletableFuture<T> result;
+        try {
+            result = requests.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        result.whenComplete((value, e) -> permits.release());
+        return result;
+    }
+
+    /**
+     * Sends a GET request to the API, retrying connection errors and the responses that can be retried.
+     */
+    public CompletableFuture<Response> get(String path) {
+
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        send(path, 0, result);
+        return result;
+    }
+
+    private void send(String path, int attempt, CompletableFuture<Response> result) {
+
+        // an attempt over the rate is sent later instead of blocking the caller or the retries of other requests
+        if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+            long interval = (long) Math.ceil(1000 / rateLimiter.getRate());
+            scheduler.schedule(() -> send(path, attempt, result), interval, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        HttpGet request = new HttpGet(url + path);
+        request.setHeader("Accept", "application/json");
+
+        client.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse httpResponse) {
+
+                Response response;
+                try {
+                    int status = httpResponse.getStatusLine().getStatusCode();
+                    String body = httpResponse.getEntity() == null ? null
+                            : EntityUtils.toString(httpResponse.getEntity(), StandardCharsets.UTF_8);
+                    response = new Response(status, body);
+                } catch (IOException e) {
+                    failed(e);
+                    return;
+                }
+
+                if (isRetryable(response.status) && attempt < maxRetries) {
+                    long delay = Math.max(getDelay(attempt), getRetryAfter(httpResponse));
+                    logger.debug("Retrying {} after status {} in {} ms", path, response.status, delay);
+                    retry(path, attempt, delay, result);
+                } else {
+                    result.complete(response);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+
+                if (attempt < maxRetries) {
+                    long delay = getDelay(attempt);
+                    logger.debug("Retrying {} after {} in {} ms", path, e.getMessage(), delay);
+                    retry(path, attempt, delay, result);
+                } else {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+    }
+
+    private void retry(String path, int attempt, long delay, CompletableFuture<Response> result) {
+        scheduler.schedule(() -> send(path, attempt + 1, result), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Gets a random delay between half and one and a half times the backoff of the attempt.
+     */
+    private long getDelay(int attempt) {
+        long backoff = backoffMillis << Math.min(attempt, 16);
+        return backoff / 2 + (long) (ThreadLocalRandom.current().nextDouble() * backoff);
+    }
+
+    private static long getRetryAfter(HttpResponse response) {
+
+        Header header = response.getFirstHeader("Retry-After");
+        if (header == null)
+            return 0;
+        try {
+            return 1000 * Long.parseLong(header.getValue().trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        client.close();
+    }
+
+    /**
+     * The status and body of a response.
+     */
+    public static class Response {
+
+        private final int status;
+        private final String body;
+
+        public Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+}
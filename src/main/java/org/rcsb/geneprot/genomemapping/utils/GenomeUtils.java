@@ -1,19 +1,16 @@
 package org.rcsb.geneprot.genomemapping.utils;
 
 import com.google.common.collect.Range;
-import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
-import org.biojava.nbio.core.exceptions.TranslationException;
-import org.biojava.nbio.core.sequence.DNASequence;
-import org.biojava.nbio.core.sequence.ProteinSequence;
-import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
-import org.biojava.nbio.core.sequence.template.SequenceView;
-import org.biojava.nbio.genome.parsers.twobit.TwoBitFacade;
-import org.biojava.nbio.genome.util.ProteinMappingTools;
 import org.rcsb.geneprot.common.io.DataLocationProvider;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
+import org.rcsb.geneprot.genes.expression.CodonTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -27,28 +24,160 @@ public class GenomeUtils {
         DataLocationProvider.setGenome(organism);
     }
 
-    public static String getProteinSequence(String orientation, String transcriptSequence) throws CompoundNotFoundException, TranslationException {
+    public static String getProteinSequence(String orientation, String transcriptSequence) {
+        return getProteinSequence(orientation, transcriptSequence.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Translates a transcript sequence given on the forward strand. The codons of a transcript on
+     * the minus strand are reverse complemented while they are translated, so the only array
+     * allocated is the one for the protein.
+     */
+    public static String getProteinSequence(String orientation, byte[] transcriptSequence) {
 
-        if (orientation.equals('-')) {
-            transcriptSequence = (new StringBuilder(transcriptSequence)).reverse().toString();
-            DNASequence dna = new DNASequence(transcriptSequence);
-            SequenceView<NucleotideCompound> compliment = dna.getComplement();
-            transcriptSequence = compliment.getSequenceAsString();
+        if (orientation.equals("-")) {
+            return CodonTable.translateReverse(transcriptSequence, true);
         }
-        ProteinSequence sequence = ProteinMappingTools.convertDNAtoProteinSequence(transcriptSequence);
-        return sequence.getSequenceAsString();
+        return CodonTable.translate(transcriptSequence, true);
     }
 
     public static String getTranscriptSequence(String chr, List<Range<Integer>> cds) throws Exception
     {
-        File f = new File(DataLocationProvider.getGenomeLocation());
-        TwoBitFacade twoBitFacade = new TwoBitFacade(f);
+        return new String(getTranscriptSequenceBytes(chr, cds), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gets the spliced sequence of a transcript as ASCII bytes, read straight into an array of its exact length.
+     */
+    public static byte[] getTranscriptSequenceBytes(String chr, List<Range<Integer>> cds) throws Exception
+    {
+        TwoBitGenome genome = TwoBitGenome.getInstance(DataLocationProvider.getGenomeLocation());
 
-        String dnaSequence = "";
+        int length = 0;
+        for (Range<Integer> range : cds) {
+            length += range.upperEndpoint() - range.lowerEndpoint();
+        }
+        byte[] dnaSequence = new byte[length];
+        int offset = 0;
         for (Range<Integer> range : cds) {
-            String exonSequence = twoBitFacade.getSequence(chr, range.lowerEndpoint(), range.upperEndpoint());
-            dnaSequence += exonSequence;
+            offset += genome.getSequence(chr, range.lowerEndpoint(), range.upperEndpoint(), dnaSequence, offset);
         }
         return dnaSequence;
     }
+
+    /**
+     * Gets the spliced sequences of many transcripts of a chromosome in one sweep.
+     *
+     * The ranges of all transcripts are sorted by start and overlapping ranges are merged,
+     * so every stretch of the chromosome is decoded once, however many transcripts share it.
+     * Each transcript gets a byte array of its exact length (one ASCII byte per base, forward
+     * strand) that is filled in place. Ranges are read as by {@link #getTranscriptSequence(String, List)}.
+     *
+     * @param chr - chromosome name
+     * @param cds - the ranges of every transcript in transcript order
+     * @return the sequences in the order of the transcripts
+     */
+    public static byte[][] getTranscriptSequences(String chr, List<List<Range<Integer>>> cds) throws Exception {
+        return getTranscriptSequences(TwoBitGenome.getInstance(DataLocationProvider.getGenomeLocation()), chr, cds);
+    }
+
+    public static byte[][] getTranscriptSequences(TwoBitGenome genome, String chr, List<List<Range<Integer>>> cds) throws Exception {
+
+        int rangesCount = 0;
+        for (List<Range<Integer>> ranges : cds) {
+            rangesCount += ranges.size();
+        }
+
+        // every range as (start, end, transcript, offset in the transcript sequence)
+        int[] starts = new int[rangesCount];
+        int[] ends = new int[rangesCount];
+        int[] owners = new int[rangesCount];
+        int[] offsets = new int[rangesCount];
+        byte[][] sequences = new byte[cds.size()][];
+
+        int r = 0;
+        for (int t = 0; t < cds.size(); t++) {
+            int length = 0;
+            for (Range<Integer> range : cds.get(t)) {
+                starts[r] = range.lowerEndpoint();
+                ends[r] = range.upperEndpoint();
+                owners[r] = t;
+                offsets[r] = length;
+                length += ends[r] - starts[r];
+                r++;
+            }
+            sequences[t] = new byte[length];
+        }
+
+        Integer[] order = new Integer[rangesCount];
+        for (int i = 0; i < rangesCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(starts[a], starts[b]));
+
+        byte[] window = new byte[0];
+        int i = 0;
+        while (i < rangesCount) {
+
+            // merge the ranges that overlap into one window of the chromosome
+            int windowStart = starts[order[i]];
+            int windowEnd = ends[order[i]];
+            int j = i + 1;
+            while (j < rangesCount && starts[order[j]] <= windowEnd) {
+                windowEnd = Math.max(windowEnd, ends[order[j]]);
+                j++;
+            }
+
+            if (window.length < windowEnd - windowStart) {
+                window = new byte[Math.max(windowEnd - windowStart, 2 * window.length)];
+            }
+            genome.getSequence(chr, windowStart, windowEnd, window, 0);
+
+            for (int k = i; k < j; k++) {
+                int range = order[k];
+                System.arraycopy(window, starts[range] - windowStart, sequences[owners[range]], offsets[range],
+                        ends[range] - starts[range]);
+            }
+            i = j;
+        }
+        return sequences;
+    }
+
+    /**
+     * Translates many transcripts of a chromosome, reading their sequences with
+     * {@link #getTranscriptSequences(TwoBitGenome, String, List)}.
+     *
+     * @param orientations - strand of every transcript (+ or -)
+     * @param cds - the ranges of every transcript in genomic order
+     * @return the protein sequences in the order of the transcripts
+     */
+    public static String[] getProteinSequences(TwoBitGenome genome, String chr, List<String> orientations,
+                                               List<List<Range<Integer>>> cds) throws Exception {
+
+        byte[][] sequences = getTranscriptSequences(genome, chr, cds);
+        String[] proteins = new String[sequences.length];
+        for (int i = 0; i < sequences.length; i++) {
+            proteins[i] = getProteinSequence(orientations.get(i), sequences[i]);
+        }
+        return proteins;
+    }
+
+    /**
+     * Gets the MD5 digest of a sequence as a lower case hex string.
+     */
+    public static String getSequenceDigest(String sequence) {
+
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] digest = md5.digest(sequence.getBytes(StandardCharsets.US_ASCII));
+        StringBuilder hex = new StringBuilder(2 * digest.length);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
 }
@@ -0,0 +1,93 @@
+package org.rcsb.geneprot.genomemapping.utils;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to int values with open addressing, so that counting keys
+ * allocates no objects. Absent keys have the value 0.
+ *
+ * Created by Yana Valasatava on 12/11/17.
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    // the value of the key EMPTY, which cannot be stored in the table
+    private int emptyValue;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private static int hash(long key) {
+        // the finalizer of MurmurHash3, the keys are often close to each other
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (key ^ (key >>> 33));
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    public int get(long key) {
+        if (key == EMPTY)
+            return emptyValue;
+        int i = slot(key);
+        return keys[i] == EMPTY ? 0 : values[i];
+    }
+
+    /**
+     * Adds a value to the value of a key and returns the new value.
+     */
+    public int add(long key, int delta) {
+
+        if (key == EMPTY)
+            return emptyValue += delta;
+
+        int i = slot(key);
+        if (keys[i] == EMPTY) {
+            if (2 * (size + 1) > keys.length) {
+                rehash(2 * keys.length);
+                i = slot(key);
+            }
+            keys[i] = key;
+            size++;
+        }
+        return values[i] += delta;
+    }
+
+    public int increment(long key) {
+        return add(key, 1);
+    }
+
+    private void rehash(int capacity) {
+
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = slot(oldKeys[j]);
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.rcsb.geneprot.genomemapping.utils;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.http.nio.reactor.IOReactorException;
+
+import java.util.concurrent.CompletableFuture;
+
+/** An asynchronous client of the PDBe REST API.
+ *
+ * One client is shared by all the tasks of an executor, see {@link #getInstance(int, double)}.
+ *
+ * Created by Yana Valasatava on 12/14/17.
+ */
+public class PDBeApiClient extends ApiClient {
+
+    public static final String DEFAULT_URL = "https://www.ebi.ac.uk/pdbe/api";
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 20;
+
+    private static PDBeApiClient instance;
+
+    public PDBeApiClient(String url, int maxConcurrency, int maxRetries, long backoffMillis) throws IOReactorException {
+        super(url, maxConcurrency, maxRetries, backoffMillis);
+    }
+
+    public PDBeApiClient(String url, int maxConcurrency, int maxRetries, long backoffMillis, RateLimiter rateLimiter)
+            throws IOReactorException {
+        super(url, maxConcurrency, maxRetries, backoffMillis, rateLimiter);
+    }
+
+    /**
+     * Gets the client of the executor, created at the first call with the given concurrency limit and
+     * the given rate of the requests of the executor.
+     */
+    public static synchronized PDBeApiClient getInstance(int maxConcurrency, double requestsPerSecond)
+            throws IOReactorException {
+
+        if (instance == null)
+            instance = closeOnShutdown(new PDBeApiClient(DEFAULT_URL, maxConcurrency, DEFAULT_MAX_RETRIES,
+                    DEFAULT_BACKOFF_MILLIS, RateLimiter.create(requestsPerSecond)));
+        return instance;
+    }
+
+    /**
+     * Gets the mappings of a PDB entry to all UniProt isoforms. Waits for a permit if maxConcurrency
+     * requests are in flight.
+     *
+     * @return the future JSON text, null if the entry has no mappings
+     */
+    public CompletableFuture<String> getAllIsoforms(String entryId) throws InterruptedException {
+
+        return withPermit(() -> get("/mappings/all_isoforms/" + entryId)
+                .thenApply(response -> {
+                    if (response.getStatus() == 404)
+                        return null;
+                    if (response.getStatus() != 200)
+                        throw new IllegalStateException("Unexpected status " + response.getStatus() + " for " + entryId);
+                    return response.getBody();
+                }));
+    }
+}
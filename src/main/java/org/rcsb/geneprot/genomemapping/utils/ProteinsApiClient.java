@@ -0,0 +1,53 @@
+package org.rcsb.geneprot.genomemapping.utils;
+
+import org.apache.http.nio.reactor.IOReactorException;
+
+import java.util.concurrent.CompletableFuture;
+
+/** An asynchronous client of the EBI Proteins API.
+ *
+ * One client is shared by all the tasks of an executor, see {@link #getInstance(int)}.
+ *
+ * Created by Yana Valasatava on 12/13/17.
+ */
+public class ProteinsApiClient extends ApiClient {
+
+    public static final String DEFAULT_URL = "https://www.ebi.ac.uk/proteins/api";
+
+    private static ProteinsApiClient instance;
+
+    public ProteinsApiClient(String url, int maxConcurrency, int maxRetries, long backoffMillis) throws IOReactorException {
+        super(url, maxConcurrency, maxRetries, backoffMillis);
+    }
+
+    /**
+     * Gets the client of the executor, created at the first call with the given concurrency limit.
+     */
+    public static synchronized ProteinsApiClient getInstance(int maxConcurrency) throws IOReactorException {
+
+        if (instance == null)
+            instance = closeOnShutdown(new ProteinsApiClient(DEFAULT_URL, maxConcurrency, DEFAULT_MAX_RETRIES, DEFAULT_BACKOFF_MILLIS));
+        return instance;
+    }
+
+    /**
+     * Gets the isoforms of a UniProt entry as a JSON array, or the entry itself as a JSON object if it
+     * has no isoforms. Waits for a permit if maxConcurrency requests are in flight.
+     *
+     * @return the future JSON text, null if the entry is not found
+     */
+    public CompletableFuture<String> getIsoforms(String uniProtId) throws InterruptedException {
+
+        return withPermit(() -> get("/proteins/" + uniProtId + "/isoforms.json")
+                .thenCompose(response -> response.getStatus() == 404
+                        ? get("/proteins/" + uniProtId + ".json")
+                        : CompletableFuture.completedFuture(response))
+                .thenApply(response -> {
+                    if (response.getStatus() == 400 || response.getStatus() == 404)
+                        return null;
+                    if (response.getStatus() / 100 != 2)
+                        throw new IllegalStateException("Unexpected status " + response.getStatus() + " for " + uniProtId);
+                    return response.getBody();
+                }));
+    }
+}
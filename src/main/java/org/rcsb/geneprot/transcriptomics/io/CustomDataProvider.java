@@ -4,7 +4,6 @@ import com.google.common.collect.Range;
 import org.biojava.nbio.core.sequence.DNASequence;
 import org.biojava.nbio.core.sequence.ProteinSequence;
 import org.biojava.nbio.genome.parsers.twobit.SimpleTwoBitFileProvider;
-import org.biojava.nbio.genome.parsers.twobit.TwoBitFacade;
 import org.rcsb.geneprot.genes.constants.StrandOrientation;
 import org.rcsb.geneprot.genes.datastructures.Exon;
 import org.rcsb.geneprot.genes.datastructures.Gene;
@@ -12,6 +11,7 @@ import org.rcsb.geneprot.genes.datastructures.Transcript;
 import org.rcsb.geneprot.genes.expression.RNApolymerase;
 import org.rcsb.geneprot.genes.expression.Ribosome;
 import org.rcsb.geneprot.common.io.DataLocationProvider;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
 import org.rcsb.geneprot.transcriptomics.datastructures.ExonBoundariesPair;
 
 import java.io.File;
@@ -40,7 +40,7 @@ public class CustomDataProvider {
 
         File twoBitFileLocalLocation = new File(DataLocationProvider.getGenomeLocation());
         SimpleTwoBitFileProvider.downloadIfNoTwoBitFileExists(twoBitFileLocalLocation, "hg38");
-        TwoBitFacade twoBitFacade = new TwoBitFacade(twoBitFileLocalLocation);
+        TwoBitGenome genome = TwoBitGenome.getInstance(twoBitFileLocalLocation);
         
         GencodeDataProvider genecode = new GencodeDataProvider();
         genecode.getAnnotation();
@@ -93,9 +93,9 @@ public class CustomDataProvider {
                     id2 = ind2-ind1+1;
                 }
 
-                // Both are included
-                List<Exon> exons = t.getExons().subList(i1, i2);
-                DNASequence dnaSequenceBothIn = RNApolymerase.getCodingSequence(twoBitFacade, gene.getChromosome(),
+                // Both are included, on a copy as the exons of the transcript are read-only
+                List<Exon> exons = new ArrayList<>(t.getExons().subList(i1, i2));
+                DNASequence dnaSequenceBothIn = RNApolymerase.getCodingSequence(genome, gene.getChromosome(),
                             gene.getOrientation(), exons);
 
                 ProteinSequence sequenceBothIn;
@@ -114,7 +114,7 @@ public class CustomDataProvider {
                 // Both are excluded
                 exons.remove(1);
                 exons.remove(exons.size()-2);
-                DNASequence dnaSequenceBothOut = RNApolymerase.getCodingSequence(twoBitFacade, gene.getChromosome(),
+                DNASequence dnaSequenceBothOut = RNApolymerase.getCodingSequence(genome, gene.getChromosome(),
                             gene.getOrientation(), exons);
 
                 ProteinSequence sequenceBothOut;
@@ -2,9 +2,9 @@ package org.rcsb.geneprot.transcriptomics.utils;
 
 import com.google.common.collect.Range;
 import org.apache.spark.sql.Row;
-import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.types.StructType;
 import org.rcsb.geneprot.common.mappers.UniprotToModelCoordinatesMapper;
+import org.rcsb.geneprot.common.utils.RowBuilder;
 import org.rcsb.uniprot.auto.FeatureType;
 
 import java.util.ArrayList;
@@ -235,14 +235,7 @@ public class RowUtils {
     }
 
     public static Row addField(Row row, Object field) {
-
-        Object[] fields = new Object[row.length()+1];
-        for (int c=0; c < row.length(); c++)
-            fields[c] = row.get(c);
-        fields[row.length()] = field;
-
-        return RowFactory.create(fields);
-
+        return RowBuilder.appendValues(row, field);
     }
 
     public static void setUTMmapperFromRow(UniprotToModelCoordinatesMapper mapper, Row row) throws Exception {
@@ -300,18 +293,14 @@ public class RowUtils {
 
     public static Row mapToFeatureRange(FeatureType ft, Range<Integer> coveredRange, Row row) {
 
-        if (ft.getType().equals("transmembrane region")) {row = RowUtils.addField(row, "transmembrane;"+ft.getDescription().split(";")[0]); }
-        else { row = RowUtils.addField(row, ft.getDescription()); }
+        String description = ft.getDescription();
+        if (ft.getType().equals("transmembrane region")) { description = "transmembrane;"+ft.getDescription().split(";")[0]; }
 
-        row = RowUtils.addField(row, coveredRange.lowerEndpoint());
-        row = RowUtils.addField(row, coveredRange.upperEndpoint());
-        return row;
+        return RowBuilder.appendValues(row, description, coveredRange.lowerEndpoint(), coveredRange.upperEndpoint());
     }
 
     public static Row mapToFeatureResidue(FeatureType ft, int i, Row row) {
-        row = RowUtils.addField(row, ft.getDescription());
-        row = RowUtils.addField(row, i);
-        return row;
+        return RowBuilder.appendValues(row, ft.getDescription(), i);
     }
 
     public static List<Row> getPDBStructure(Iterable<Row> data, String[] key) {
@@ -0,0 +1,132 @@
+package org.rcsb.common.io;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Class to test the TwoBitGenome class on a small .2bit file written by the test
+ *
+ * @author Yana Valasatava
+ */
+public class TestTwoBitGenome {
+
+	private static final String BASES = "TCAG";
+
+	private File file;
+	private String chrA;
+	private String chrB;
+
+	/**
+	 * Gets the sequence as stored in a .2bit file: N in the N-blocks, lower case in the mask blocks.
+	 */
+	private static String expected(String bases, int[][] nBlocks, int[][] maskBlocks) {
+		char[] sequence = bases.toCharArray();
+		for (int[] block : maskBlocks)
+			for (int i = block[0]; i < block[0] + block[1]; i++)
+				sequence[i] = Character.toLowerCase(sequence[i]);
+		for (int[] block : nBlocks)
+			Arrays.fill(sequence, block[0], block[0] + block[1], 'N');
+		return new String(sequence);
+	}
+
+	private static byte[] record(String bases, int[][] nBlocks, int[][] maskBlocks) {
+
+		ByteBuffer buffer = ByteBuffer.allocate(16 + 8 * (nBlocks.length + maskBlocks.length) + (bases.length() + 3) / 4)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(bases.length());
+		buffer.putInt(nBlocks.length);
+		for (int[] block : nBlocks) buffer.putInt(block[0]);
+		for (int[] block : nBlocks) buffer.putInt(block[1]);
+		buffer.putInt(maskBlocks.length);
+		for (int[] block : maskBlocks) buffer.putInt(block[0]);
+		for (int[] block : maskBlocks) buffer.putInt(block[1]);
+		buffer.putInt(0);
+		for (int i = 0; i < bases.length(); i += 4) {
+			int b = 0;
+			for (int j = 0; j < 4; j++) {
+				int code = i + j < bases.length() ? BASES.indexOf(bases.charAt(i + j)) : 0;
+				b = b << 2 | code;
+			}
+			buffer.put((byte) b);
+		}
+		return buffer.array();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+
+		Random random = new Random(2);
+		char[] a = new char[1003];
+		for (int i = 0; i < a.length; i++) a[i] = BASES.charAt(random.nextInt(4));
+		char[] b = new char[58];
+		for (int i = 0; i < b.length; i++) b[i] = BASES.charAt(random.nextInt(4));
+
+		int[][] nBlocksA = {{0, 10}, {500, 7}};
+		int[][] maskBlocksA = {{5, 20}, {998, 5}};
+		chrA = expected(new String(a), nBlocksA, maskBlocksA);
+		chrB = new String(b);
+
+		byte[] recordA = record(new String(a), nBlocksA, maskBlocksA);
+		byte[] recordB = record(chrB, new int[0][], new int[0][]);
+
+		byte[][] names = {"chrA".getBytes(StandardCharsets.US_ASCII), "chrB".getBytes(StandardCharsets.US_ASCII)};
+		int indexSize = 16 + 2 * (1 + 4 + 4);
+		ByteBuffer header = ByteBuffer.allocate(indexSize).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0x1A412743).putInt(0).putInt(2).putInt(0);
+		header.put((byte) 4).put(names[0]).putInt(indexSize);
+		header.put((byte) 4).put(names[1]).putInt(indexSize + recordA.length);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(header.array());
+		out.write(recordA);
+		out.write(recordB);
+
+		file = File.createTempFile("genome", ".2bit");
+		file.deleteOnExit();
+		Files.write(file.toPath(), out.toByteArray());
+	}
+
+	/**
+	 * Test that slices are decoded with the N-blocks and the soft-masking.
+	 */
+	@Test
+	public void testGetSequence() throws Exception {
+
+		TwoBitGenome genome = TwoBitGenome.getInstance(file);
+
+		assertEquals(Arrays.asList("chrA", "chrB"), genome.getSequenceNames());
+		assertEquals(1003, genome.getSequenceLength("chrA"));
+		assertEquals(58, genome.getSequenceLength("chrB"));
+
+		assertEquals(chrA, genome.getSequence("chrA", 0, 1003));
+		assertEquals(chrB, genome.getSequence("chrB", 0, 58));
+		for (int[] region : new int[][]{{3, 12}, {7, 30}, {495, 520}, {999, 1003}, {1, 2}, {600, 600}}) {
+			assertEquals(chrA.substring(region[0], region[1]), genome.getSequence("chrA", region[0], region[1]));
+		}
+
+		byte[] buffer = new byte[10];
+		genome.getSequence("chrB", 13, 18, buffer, 2);
+		assertEquals(chrB.substring(13, 18), new String(buffer, 2, 5, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Test that the reader is shared.
+	 */
+	@Test
+	public void testSharedInstance() throws Exception {
+		assertSame(TwoBitGenome.getInstance(file), TwoBitGenome.getInstance(file.getPath()));
+	}
+}
@@ -0,0 +1,69 @@
+package org.rcsb.common.utils;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.catalyst.expressions.GenericRowWithSchema;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Test;
+import org.rcsb.geneprot.common.utils.RowBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Class to test the RowBuilder class
+ *
+ * @author Yana Valasatava
+ */
+public class TestRowBuilder {
+
+	private static final StructType SCHEMA = DataTypes.createStructType(new StructField[]{
+			DataTypes.createStructField("id", DataTypes.StringType, false),
+			DataTypes.createStructField("length", DataTypes.IntegerType, true)});
+
+	private static final StructField[] FIELDS = {
+			DataTypes.createStructField("sequence", DataTypes.StringType, true),
+			DataTypes.createStructField("canonical", DataTypes.BooleanType, true)};
+
+	@Test
+	public void testAppend() {
+
+		RowBuilder builder = new RowBuilder(SCHEMA, FIELDS);
+		Row row = builder.append(new GenericRowWithSchema(new Object[]{"P1", null}, SCHEMA), "MKV", true);
+
+		assertEquals(4, row.size());
+		assertEquals("P1", row.getString(0));
+		assertEquals(true, row.isNullAt(1));
+		assertEquals("MKV", row.getString(row.fieldIndex("sequence")));
+		assertEquals(true, row.getBoolean(row.fieldIndex("canonical")));
+		assertSame(builder.getSchema(), row.schema());
+		assertEquals(2, SCHEMA.size());
+	}
+
+	/**
+	 * Test that a builder is reused for rows of its input schema only.
+	 */
+	@Test
+	public void testForSchema() {
+
+		RowBuilder builder = RowBuilder.forSchema(null, SCHEMA, FIELDS);
+		assertSame(builder, RowBuilder.forSchema(builder, SCHEMA, FIELDS));
+
+		RowBuilder other = RowBuilder.forSchema(builder, builder.getSchema(), FIELDS);
+		assertNotSame(builder, other);
+		assertEquals(6, other.getSchema().size());
+	}
+
+	@Test
+	public void testAppendValues() {
+
+		Row row = RowBuilder.appendValues(RowFactory.create("chr1", 10), "helix", 1, 5);
+
+		assertEquals(5, row.size());
+		assertEquals("chr1", row.getString(0));
+		assertEquals(5, row.getInt(4));
+	}
+}
@@ -0,0 +1,110 @@
+package org.rcsb.gencode.gtf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.rcsb.geneprot.gencode.gtf.GTFParseException;
+import org.rcsb.geneprot.gencode.gtf.GTFParser;
+import org.rcsb.geneprot.gencode.gtf.GTFTokenizer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of GTFTokenizer against GTFParser on Ensembl-like lines,
+ * keeping all attributes and only the attributes read by LoadCoreGenomicTranscripts.
+ *
+ * Run with the main method from the test classpath.
+ *
+ * @author Yana Valasatava
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GTFTokenizerBenchmark {
+
+    private static final String[] FEATURES = {"exon", "CDS", "start_codon", "stop_codon", "five_prime_utr", "three_prime_utr"};
+    private static final String[] BIOTYPES = {"protein_coding", "processed_transcript", "retained_intron", "nonsense_mediated_decay"};
+
+    private String[] lines;
+
+    private GTFParser parser;
+    private GTFTokenizer tokenizer;
+    private GTFTokenizer restrictedTokenizer;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42);
+
+        lines = new String[1024];
+        for (int i = 0; i < lines.length; i++) {
+            int start = 1 + random.nextInt(200_000_000);
+            int gene = random.nextInt(60_000);
+            int transcript = random.nextInt(200_000);
+            String biotype = BIOTYPES[random.nextInt(BIOTYPES.length)];
+            lines[i] = String.format("%d\tensembl_havana\t%s\t%d\t%d\t.\t%s\t%s\t"
+                            + "gene_id \"ENSG%011d\"; gene_version \"%d\"; transcript_id \"ENST%011d\"; transcript_version \"%d\"; "
+                            + "exon_number \"%d\"; gene_name \"GENE%d\"; gene_source \"ensembl_havana\"; gene_biotype \"protein_coding\"; "
+                            + "transcript_name \"GENE%d-%03d\"; transcript_source \"havana\"; transcript_biotype \"%s\"; "
+                            + "tag \"CCDS\"; ccds_id \"CCDS%d\"; exon_id \"ENSE%011d\"; exon_version \"1\"; tag \"basic\"; transcript_support_level \"1\";"
+                    , 1 + random.nextInt(22), FEATURES[random.nextInt(FEATURES.length)], start, start + random.nextInt(500)
+                    , random.nextBoolean() ? "+" : "-", random.nextInt(3)
+                    , gene, 1 + random.nextInt(9), transcript, 1 + random.nextInt(9)
+                    , 1 + random.nextInt(20), gene, gene, 201 + random.nextInt(10), biotype
+                    , random.nextInt(90_000), random.nextInt(1_500_000));
+        }
+
+        parser = new GTFParser();
+        tokenizer = new GTFTokenizer();
+        restrictedTokenizer = new GTFTokenizer("transcript_biotype", "transcript_id", "gene_id", "gene_name"
+                , "transcript_name", "ccds_id", "exon_number");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void parser(Blackhole bh) throws GTFParseException {
+        for (String line : lines) {
+            bh.consume(parser.parseLine(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void tokenizer(Blackhole bh) throws GTFParseException {
+        for (String line : lines) {
+            bh.consume(tokenizer.parseLine(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void tokenizerRequestedAttributes(Blackhole bh) throws GTFParseException {
+        for (String line : lines) {
+            bh.consume(restrictedTokenizer.parseLine(line));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(GTFTokenizerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
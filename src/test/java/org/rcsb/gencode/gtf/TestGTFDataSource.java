@@ -0,0 +1,108 @@
+package org.rcsb.gencode.gtf;
+
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.common.utils.SparkUtils;
+import org.rcsb.geneprot.gencode.gtf.FeatureType;
+import org.rcsb.geneprot.gencode.gtf.GTFDataSource;
+import org.rcsb.geneprot.gencode.gtf.GencodeFeature;
+import org.rcsb.geneprot.gencode.gtf.Strand;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.spark.sql.functions.col;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Class to test the GTFDataSource class on a small GTF file written by the test
+ *
+ * @author Yana Valasatava
+ */
+public class TestGTFDataSource {
+
+    private static final List<String> LINES = Arrays.asList(
+            "#!genome-build GRCh38.p10",
+            "21\thavana\tgene\t100\t500\t.\t+\t.\tgene_id \"G1\"; gene_name \"A\"; gene_biotype \"protein_coding\";",
+            "21\thavana\ttranscript\t100\t500\t.\t+\t.\tgene_id \"G1\"; transcript_id \"T1\"; gene_name \"A\"; transcript_name \"A-001\"; transcript_biotype \"protein_coding\"; ccds_id \"CCDS1\";",
+            "21\thavana\texon\t100\t200\t.\t+\t.\tgene_id \"G1\"; transcript_id \"T1\"; exon_number \"1\"; gene_name \"A\"; transcript_name \"A-001\"; transcript_biotype \"protein_coding\";",
+            "21\thavana\tCDS\t150\t200\t0.5\t+\t0\tgene_id \"G1\"; transcript_id \"T1\"; exon_number \"1\"; gene_name \"A\"; transcript_name \"A-001\"; transcript_biotype \"protein_coding\"; tag \"basic\";",
+            "21\thavana\texon\t300\t500\t.\t+\t.\tgene_id \"G1\"; transcript_id \"T2\"; exon_number \"1\"; gene_name \"A\"; transcript_name \"A-002\"; transcript_biotype \"retained_intron\";",
+            "chr22\tHAVANA\texon\t10\t20\t.\t-\t.\tgene_id \"G2.1\"; transcript_id \"T3.1\"; gene_type \"protein_coding\"; transcript_type \"protein_coding\"; exon_number 2; level 2;");
+
+    private Dataset<Row> features;
+
+    @Before
+    public void setup() throws Exception {
+
+        File file = File.createTempFile("annotation", ".gtf");
+        file.deleteOnExit();
+        Files.write(file.toPath(), LINES, StandardCharsets.US_ASCII);
+
+        features = SparkUtils.getSparkSession().read()
+                .format(GTFDataSource.FORMAT)
+                .load(file.getPath());
+    }
+
+    @Test
+    public void testSchema() throws Exception {
+
+        Row row = features.filter(col(GTFDataSource.COL_FEATURE).equalTo("CDS")).first();
+
+        assertEquals("21", row.getString(row.fieldIndex(GTFDataSource.COL_SEQNAME)));
+        assertEquals(150, row.getInt(row.fieldIndex(GTFDataSource.COL_START)));
+        assertEquals(200, row.getInt(row.fieldIndex(GTFDataSource.COL_END)));
+        assertEquals(0.5, row.getDouble(row.fieldIndex(GTFDataSource.COL_SCORE)), 1e-9);
+        assertEquals(0, row.getInt(row.fieldIndex(GTFDataSource.COL_FRAME)));
+        assertEquals("+", row.getString(row.fieldIndex(GTFDataSource.COL_STRAND)));
+        assertEquals("T1", row.getString(row.fieldIndex(GTFDataSource.COL_TRANSCRIPT_ID)));
+        assertEquals(1, row.getInt(row.fieldIndex(GTFDataSource.COL_EXON_NUMBER)));
+        assertNull(row.get(row.fieldIndex(GTFDataSource.COL_PROTEIN_ID)));
+
+        Map<String, String> attributes = row.getJavaMap(row.fieldIndex(GTFDataSource.COL_ATTRIBUTES));
+        assertEquals(7, attributes.size());
+        assertEquals("basic", attributes.get("tag"));
+    }
+
+    /**
+     * Test that the filters pushed down to the lines select the same rows as Spark would.
+     */
+    @Test
+    public void testFilters() throws Exception {
+
+        Dataset<Row> coding = features.filter(col(GTFDataSource.COL_TRANSCRIPT_BIOTYPE).equalTo("protein_coding"));
+        assertEquals(4, coding.count());
+        assertEquals(3, coding.filter(col(GTFDataSource.COL_FEATURE).isin("exon", "CDS")).count());
+        assertEquals(1, coding.filter(col(GTFDataSource.COL_SEQNAME).equalTo("chr22")).count());
+
+        assertEquals(2, features.filter(col(GTFDataSource.COL_GENE_BIOTYPE).isNotNull()).count());
+        assertEquals(1, features.filter(col(GTFDataSource.COL_START).gt(250)).count());
+    }
+
+    @Test
+    public void testToFeature() throws Exception {
+
+        Row row = features
+                .filter(col(GTFDataSource.COL_SEQNAME).equalTo("chr22"))
+                .select(col(GTFDataSource.COL_SEQNAME), col(GTFDataSource.COL_FEATURE), col(GTFDataSource.COL_START)
+                        , col(GTFDataSource.COL_END), col(GTFDataSource.COL_STRAND), col(GTFDataSource.COL_TRANSCRIPT_ID)
+                        , col(GTFDataSource.COL_EXON_NUMBER), col(GTFDataSource.COL_TRANSCRIPT_BIOTYPE))
+                .first();
+
+        GencodeFeature feature = GTFDataSource.toFeature(row);
+        assertEquals("chr22", feature.getChrom());
+        assertEquals(FeatureType.EXON, feature.getFeatureType());
+        assertEquals(Strand.REVERSE, feature.getStrand());
+        assertEquals(10, feature.getStart());
+        assertEquals("T3.1", feature.getAttribute("transcript_id"));
+        assertEquals("2", feature.getAttribute("exon_number"));
+        assertEquals("protein_coding", feature.getTranscriptType());
+    }
+}
@@ -0,0 +1,132 @@
+package org.rcsb.gencode.gtf;
+
+import org.junit.Test;
+import org.rcsb.geneprot.gencode.gtf.GTFParseException;
+import org.rcsb.geneprot.gencode.gtf.GTFParser;
+import org.rcsb.geneprot.gencode.gtf.GTFTokenizer;
+import org.rcsb.geneprot.gencode.gtf.GencodeFeature;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Class to test the GTFTokenizer class against the GTFParser class
+ *
+ * @author Yana Valasatava
+ */
+public class TestGTFTokenizer {
+
+    private static final String[] LINES = {
+            // Ensembl
+            "1\thavana\ttranscript\t11869\t14409\t.\t+\t.\tgene_id \"ENSG00000223972\"; gene_version \"5\"; transcript_id \"ENST00000456328\"; transcript_version \"2\"; gene_name \"DDX11L1\"; gene_source \"havana\"; gene_biotype \"transcribed_unprocessed_pseudogene\"; transcript_name \"DDX11L1-002\"; transcript_source \"havana\"; transcript_biotype \"processed_transcript\"; tag \"basic\"; transcript_support_level \"1\";",
+            "21\tensembl_havana\tCDS\t5116004\t5116147\t.\t-\t0\tgene_id \"ENSG00000277117\"; transcript_id \"ENST00000612610\"; exon_number \"2\"; gene_name \"FP565260.3\"; transcript_biotype \"protein_coding\"; protein_id \"ENSP00000484376\"; tag \"CCDS\"; tag \"basic\"; ccds_id \"CCDS13579\";",
+            "X\tensembl\tfive_prime_utr\t100\t120\t.\t+\t.\tgene_id \"G\"; transcript_id \"T\";",
+            "X\tensembl\tstop_codon\t200\t202\t.\t-\t0\tgene_id \"G\"; transcript_id \"T\"",
+            // GENCODE
+            "chr1\tHAVANA\tgene\t11869\t14409\t.\t+\t.\tgene_id \"ENSG00000223972.5\"; gene_type \"transcribed_unprocessed_pseudogene\"; gene_status \"KNOWN\"; gene_name \"DDX11L1\"; level 2; havana_gene \"OTTHUMG00000000961.2\";",
+            "chr1\tHAVANA\texon\t12010\t12057\t.\t+\t.\tgene_id \"ENSG00000223972.5\"; transcript_id \"ENST00000450305.2\"; gene_type \"transcribed_unprocessed_pseudogene\"; transcript_type \"transcribed_unprocessed_pseudogene\"; transcript_status \"KNOWN\"; transcript_name \"DDX11L1-001\"; exon_number 1; level 2; tag \"basic\";",
+            // numeric score and frame, extra whitespace, odd quoting, empty and value-less attributes
+            "chr2\tsrc\tCDS\t10\t20\t0.5\t-\t2\t  gene_id   \"A\" ;gene_name \"x\"y\";note \"\"; flag; transcript_name two words;level x;",
+            "chr2\tsrc\tUTR\t+10\t020\t7\t+\t.\tgene_id \"A\"",
+            "chr2\tsrc\texon\t1\t2\t.\t+\t.",
+    };
+
+    private static void assertSameFeature(GencodeFeature expected, GencodeFeature actual) {
+
+        assertEquals(expected.getSeqname(), actual.getSeqname());
+        assertEquals(expected.getSource(), actual.getSource());
+        assertEquals(expected.getFeatureType(), actual.getFeatureType());
+        assertEquals(expected.getStart(), actual.getStart());
+        assertEquals(expected.getEnd(), actual.getEnd());
+        assertEquals(expected.getScore(), actual.getScore());
+        assertEquals(expected.getStrand(), actual.getStrand());
+        assertEquals(expected.getFrame(), actual.getFrame());
+        assertEquals(expected.getAttributes(), actual.getAttributes());
+        assertEquals(expected.getGeneId(), actual.getGeneId());
+        assertEquals(expected.getGeneType(), actual.getGeneType());
+        assertEquals(expected.getGeneStatus(), actual.getGeneStatus());
+        assertEquals(expected.getGeneName(), actual.getGeneName());
+        assertEquals(expected.getTranscriptType(), actual.getTranscriptType());
+        assertEquals(expected.getTranscriptStatus(), actual.getTranscriptStatus());
+        assertEquals(expected.getTranscriptName(), actual.getTranscriptName());
+        assertEquals(expected.getLevel(), actual.getLevel());
+    }
+
+    /**
+     * Test that the records are the same as the ones of GTFParser.
+     */
+    @Test
+    public void testSameAsGTFParser() throws Exception {
+
+        GTFParser parser = new GTFParser();
+        GTFTokenizer tokenizer = new GTFTokenizer();
+        for (String line : LINES) {
+            if (line.split("\t").length < 9)
+                continue; // GTFParser fails on a missing attributes column
+            assertSameFeature(parser.parseLine(line), tokenizer.parseLine(line));
+        }
+        assertNull(tokenizer.parseLine("#!genome-build GRCh38.p10"));
+        assertNull(tokenizer.parseLine(null));
+    }
+
+    /**
+     * Test that only the requested attributes are kept.
+     */
+    @Test
+    public void testRequestedAttributes() throws Exception {
+
+        GTFTokenizer tokenizer = new GTFTokenizer("transcript_id", "transcript_biotype", "gene_name");
+        GencodeFeature feature = tokenizer.parseLine(LINES[1]);
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("transcript_id", "ENST00000612610");
+        expected.put("transcript_biotype", "protein_coding");
+        expected.put("gene_name", "FP565260.3");
+        assertEquals(expected, feature.getAttributes());
+        assertEquals("FP565260.3", feature.getGeneName());
+        assertNull(feature.getGeneId());
+
+        assertEquals(0, tokenizer.parseLine(LINES[8]).getAttributes().size());
+    }
+
+    /**
+     * Test that the strings of common columns and attributes are shared between records.
+     */
+    @Test
+    public void testInterning() throws Exception {
+
+        GTFTokenizer tokenizer = new GTFTokenizer();
+        GencodeFeature f1 = tokenizer.parseLine(LINES[1]);
+        GencodeFeature f2 = tokenizer.parseLine(new String(LINES[1].toCharArray()));
+
+        assertSame(f1.getSeqname(), f2.getSeqname());
+        assertSame(f1.getSource(), f2.getSource());
+        assertSame(f1.getAttribute("transcript_biotype"), f2.getAttribute("transcript_biotype"));
+        assertSame(f1.getAttribute("tag"), f2.getAttribute("tag"));
+    }
+
+    @Test
+    public void testInvalidLines() throws Exception {
+
+        GTFTokenizer tokenizer = new GTFTokenizer();
+        String[] invalid = {
+                "chr1\tsrc\texon\tx\t2\t.\t+\t.\tgene_id \"A\";",
+                "chr1\tsrc\tfoo\t1\t2\t.\t+\t.\tgene_id \"A\";",
+                "chr1\tsrc\texon\t1\t2\t.\t.\t.\tgene_id \"A\";",
+                "chr1\tsrc\texon\t1",
+        };
+        for (String line : invalid) {
+            try {
+                tokenizer.parseLine(line);
+                fail("Expected a parse error for " + line);
+            } catch (GTFParseException e) {
+                // expected
+            }
+        }
+    }
+}
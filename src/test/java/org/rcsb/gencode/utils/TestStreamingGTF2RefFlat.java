@@ -0,0 +1,144 @@
+package org.rcsb.gencode.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.gencode.utils.GTF2RefFlat;
+import org.rcsb.geneprot.gencode.utils.StreamingGTF2RefFlat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Class to test the StreamingGTF2RefFlat class against the output of GTF2RefFlat on a generated GTF file
+ *
+ * @author Yana Valasatava
+ */
+public class TestStreamingGTF2RefFlat {
+
+    private static final String[] TYPES = {"protein_coding", "protein_coding", "protein_coding", "retained_intron", "lincRNA"};
+
+    private File gtfFile;
+    private byte[] expected;
+
+    /**
+     * Writes genes with coding and non coding transcripts on both strands, with overlapping exons,
+     * split stop codons and coding transcripts without exons.
+     */
+    private static List<String> getLines(int genes, long seed) {
+
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>();
+        lines.add("##description: generated annotation");
+        for (int g = 0; g < genes; g++) {
+
+            String chrom = "chr" + (1 + g / 20);
+            String strand = random.nextBoolean() ? "+" : "-";
+            String gene = "gene_id \"ENSG" + g + "\"; gene_type \"protein_coding\"; gene_name \"GENE" + g + "\";";
+            int geneStart = 1000 * g + 1;
+            lines.add(chrom + "\tHAVANA\tgene\t" + geneStart + "\t" + (geneStart + 900) + "\t.\t" + strand + "\t.\t" + gene + " level 2;");
+
+            int transcripts = 1 + random.nextInt(4);
+            for (int t = 0; t < transcripts; t++) {
+
+                String type = TYPES[random.nextInt(TYPES.length)];
+                String attributes = gene + " transcript_id \"ENST" + g + "." + t + "\"; transcript_type \"" + type + "\";";
+                String prefix = chrom + "\tHAVANA\t";
+                String suffix = "\t.\t" + strand + "\t.\t" + attributes;
+
+                int exons = random.nextInt(5);
+                int start = geneStart + random.nextInt(50);
+                lines.add(prefix + "transcript\t" + start + "\t" + (start + 800) + suffix);
+
+                List<String> features = new ArrayList<>();
+                int position = start;
+                for (int e = 0; e < exons; e++) {
+                    // the exons can overlap or be adjacent
+                    int exonStart = position + random.nextInt(40) - 10;
+                    int exonEnd = exonStart + 20 + random.nextInt(100);
+                    features.add(prefix + "exon\t" + exonStart + "\t" + exonEnd + suffix);
+                    if (random.nextInt(3) > 0)
+                        features.add(prefix + "CDS\t" + (exonStart + random.nextInt(10)) + "\t" + exonEnd + suffix);
+                    position = exonEnd + 1;
+                }
+                if (random.nextBoolean()) {
+                    features.add(prefix + "stop_codon\t" + position + "\t" + (position + 1) + suffix);
+                    features.add(prefix + "stop_codon\t" + (position + 5) + "\t" + (position + 5) + suffix);
+                }
+                if (random.nextBoolean())
+                    features.add(prefix + "start_codon\t" + start + "\t" + (start + 2) + suffix);
+                if (strand.equals("-"))
+                    Collections.reverse(features);
+                lines.addAll(features);
+            }
+        }
+        return lines;
+    }
+
+    @Before
+    public void setup() throws Exception {
+
+        gtfFile = File.createTempFile("annotation", ".gtf");
+        gtfFile.deleteOnExit();
+        Files.write(gtfFile.toPath(), getLines(300, 17), StandardCharsets.UTF_8);
+
+        File outFile = File.createTempFile("refFlat", ".txt");
+        outFile.deleteOnExit();
+        new GTF2RefFlat().convert(gtfFile, outFile);
+        expected = Files.readAllBytes(outFile.toPath());
+    }
+
+    private byte[] convert(File file, int threads, int batchSize) throws Exception {
+
+        File outFile = File.createTempFile("refFlat", ".txt");
+        outFile.deleteOnExit();
+        new StreamingGTF2RefFlat(threads, batchSize).convert(file, outFile);
+        return Files.readAllBytes(outFile.toPath());
+    }
+
+    /**
+     * Test that the output is the same as GTF2RefFlat whatever the batches and the number of threads.
+     */
+    @Test
+    public void testSameOutput() throws Exception {
+
+        assertTrue(expected.length > 0);
+        for (int threads : new int[]{1, 4}) {
+            for (int batchSize : new int[]{1, 2, 3, 7, 64, 100000}) {
+                assertArrayEquals("threads " + threads + " batch " + batchSize, expected, convert(gtfFile, threads, batchSize));
+            }
+        }
+    }
+
+    @Test
+    public void testNotContiguous() throws Exception {
+
+        List<String> lines = new ArrayList<>();
+        for (String id : new String[]{"T1", "T2", "T1"}) {
+            lines.add("1\tHAVANA\texon\t100\t200\t.\t+\t.\tgene_id \"G1\"; transcript_id \"" + id
+                    + "\"; transcript_type \"protein_coding\"; gene_name \"A\";");
+        }
+
+        File file = File.createTempFile("annotation", ".gtf");
+        file.deleteOnExit();
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+        for (int batchSize : new int[]{1, 4, 100000}) {
+            try {
+                convert(file, 2, batchSize);
+                fail("Expected an error for the features of T1");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.rcsb.genes.datastructures;
+
+import org.biojava.nbio.genome.parsers.genename.GeneChromosomePosition;
+import org.biojava.nbio.genome.util.ChromosomeMappingTools;
+import org.junit.Test;
+import org.rcsb.geneprot.genes.datastructures.CodingRegionIndex;
+import org.rcsb.geneprot.genes.parsers.GenePredictionsParser;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class to test the CodingRegionIndex class
+ *
+ * @author Yana Valasatava
+ */
+public class TestCodingRegionIndex {
+
+	private static boolean isCoding(List<GeneChromosomePosition> transcripts, int position) {
+		for (GeneChromosomePosition gcp : transcripts) {
+			if (ChromosomeMappingTools.getCDSPosForChromosomeCoordinate(position, gcp) != -1)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Test that the index gives the same answer as mapping the position on every
+	 * transcript of chr21, at the exon and CDS boundaries and at random positions.
+	 */
+	@Test
+	public void testSameAsChromosomeMappingOnChr21() throws Exception {
+
+		String chromosome = "chr21";
+		List<GeneChromosomePosition> transcripts = GenePredictionsParser.getGeneChromosomePositions().stream()
+				.filter(t -> t.getChromosome().equals(chromosome))
+				.collect(Collectors.toList());
+		CodingRegionIndex index = new CodingRegionIndex(transcripts);
+
+		TreeSet<Integer> positions = new TreeSet<>();
+		int max = 0;
+		for (GeneChromosomePosition gcp : transcripts) {
+			for (int p : new int[]{gcp.getCdsStart(), gcp.getCdsEnd()}) {
+				for (int d = -1; d <= 2; d++)
+					positions.add(p + d);
+			}
+			for (int i = 0; i < gcp.getExonStarts().size(); i++) {
+				for (int d = -1; d <= 2; d++) {
+					positions.add(gcp.getExonStarts().get(i) + d);
+					positions.add(gcp.getExonEnds().get(i) + d);
+				}
+			}
+			max = Math.max(max, gcp.getTranscriptionEnd());
+		}
+		Random random = new Random(21);
+		for (int i = 0; i < 5000; i++) {
+			positions.add(random.nextInt(max + 1));
+		}
+
+		for (int position : positions) {
+			assertEquals(chromosome + ":" + position, isCoding(transcripts, position), index.contains(chromosome, position));
+		}
+	}
+
+	/**
+	 * Test that positions on chromosomes without transcripts are not coding.
+	 */
+	@Test
+	public void testUnknownChromosome() throws Exception {
+
+		CodingRegionIndex index = new CodingRegionIndex(GenePredictionsParser.getGeneChromosomePositions().stream()
+				.filter(t -> t.getChromosome().equals("chr21"))
+				.collect(Collectors.toList()));
+		assertEquals(false, index.contains("chr22", 20000000));
+	}
+}
@@ -0,0 +1,77 @@
+package org.rcsb.genes.datastructures;
+
+import org.junit.Test;
+import org.rcsb.geneprot.genes.datastructures.Transcript;
+import org.rcsb.geneprot.genes.datastructures.TranscriptIntervalIndex;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class to test the TranscriptIntervalIndex class
+ *
+ * @author Yana Valasatava
+ */
+public class TestTranscriptIntervalIndex {
+
+	private static Transcript transcript(String chromosome, String geneBankId, int codingStart, int codingEnd) {
+		Transcript t = new Transcript();
+		t.setChromosomeName(chromosome);
+		t.setGeneBankId(geneBankId);
+		t.setCodingStart(codingStart);
+		t.setCodingEnd(codingEnd);
+		return t;
+	}
+
+	private static final List<Transcript> transcripts = Arrays.asList(
+			transcript("chr21", "NM_1", 100, 900),
+			transcript("chr21", "NM_2", 200, 300),
+			transcript("chr22", "NM_3", 100, 900),
+			transcript("chr21", "NM_4", 250, 260),
+			transcript("chr21", "NM_5", 1000, 2000));
+
+	/**
+	 * Test that only transcripts on the chromosome of the position are reported.
+	 */
+	@Test
+	public void testOverlappingOnChromosome() {
+
+		TranscriptIntervalIndex index = new TranscriptIntervalIndex(transcripts);
+		List<Transcript> hits = index.getOverlapping("chr21", 255);
+
+		assertEquals(3, hits.size());
+		assertEquals("NM_1", hits.get(0).getGeneBankId());
+		assertEquals("NM_2", hits.get(1).getGeneBankId());
+		assertEquals("NM_4", hits.get(2).getGeneBankId());
+	}
+
+	/**
+	 * Test that both ends of a coding range are inclusive.
+	 */
+	@Test
+	public void testOverlappingBoundaries() {
+
+		TranscriptIntervalIndex index = new TranscriptIntervalIndex(transcripts);
+
+		assertEquals(2, index.getOverlapping("chr21", 300).size());
+		assertEquals("NM_5", index.getOverlapping("chr21", 1000).get(0).getGeneBankId());
+		assertEquals("NM_1", index.getOverlapping("chr21", 900).get(0).getGeneBankId());
+		assertTrue(index.getOverlapping("chr21", 901).isEmpty());
+	}
+
+	/**
+	 * Test that positions outside of any coding range give no hits.
+	 */
+	@Test
+	public void testNoOverlap() {
+
+		TranscriptIntervalIndex index = new TranscriptIntervalIndex(transcripts);
+
+		assertTrue(index.getOverlapping("chr21", 950).isEmpty());
+		assertTrue(index.getOverlapping("chr21", 50).isEmpty());
+		assertTrue(index.getOverlapping("chrX", 500).isEmpty());
+	}
+}
@@ -0,0 +1,168 @@
+package org.rcsb.genes.datastructures;
+
+import org.junit.Test;
+import org.rcsb.geneprot.genes.constants.ExonFrameOffset;
+import org.rcsb.geneprot.genes.constants.StrandOrientation;
+import org.rcsb.geneprot.genes.datastructures.Exon;
+import org.rcsb.geneprot.genes.datastructures.Transcript;
+import org.rcsb.geneprot.genes.datastructures.TranscriptStructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Class to test the TranscriptStructure class against a base by base walk over the exons
+ *
+ * @author Yana Valasatava
+ */
+public class TestTranscriptStructure {
+
+	private static Exon exon(int start, int end, int phase) {
+		Exon exon = new Exon();
+		exon.setStart(start);
+		exon.setEnd(end);
+		exon.setPhase(phase);
+		return exon;
+	}
+
+	private static List<Exon> randomExons(Random random) {
+
+		List<Exon> exons = new ArrayList<>();
+		int position = random.nextInt(100);
+		int n = 1 + random.nextInt(8);
+		for (int i = 0; i < n; i++) {
+			// exons can be adjacent
+			int start = position + random.nextInt(3) * random.nextInt(30);
+			int end = start + 1 + random.nextInt(40);
+			exons.add(exon(start, end, random.nextInt(4) - 1));
+			position = end;
+		}
+		return exons;
+	}
+
+	/**
+	 * Test the CDS positions and exon indexes of every position around random transcripts,
+	 * with the exons in genomic and in random order.
+	 */
+	@Test
+	public void testSameAsWalk() {
+
+		Random random = new Random(20);
+		for (int t = 0; t < 500; t++) {
+
+			List<Exon> exons = randomExons(random);
+			if (t % 2 == 1)
+				Collections.shuffle(exons, random);
+
+			int min = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for (Exon exon : exons) {
+				min = Math.min(min, exon.getStart());
+				max = Math.max(max, exon.getEnd());
+			}
+			int codingStart = min + random.nextInt(max - min);
+			int codingEnd = codingStart + random.nextInt(max - codingStart + 1);
+
+			// the 1-based coding positions in genomic order and the exon of every position
+			List<Integer> coding = new ArrayList<>();
+			int[] exonIndex = new int[max + 2];
+			Arrays.fill(exonIndex, -1);
+			for (int position = 1; position <= max + 1; position++) {
+				for (int i = 0; i < exons.size(); i++) {
+					if (exons.get(i).getStart() < position && position <= exons.get(i).getEnd()) {
+						exonIndex[position] = i;
+						if (codingStart < position && position <= codingEnd)
+							coding.add(position);
+					}
+				}
+			}
+
+			TranscriptStructure structure = TranscriptStructure.of(exons, codingStart, codingEnd);
+			assertEquals(coding.size(), structure.getCodingLength());
+
+			for (int position = 0; position <= max + 1; position++) {
+				int cds = coding.indexOf(position);
+				String message = "transcript " + t + " position " + position;
+				assertEquals(message, cds < 0 ? -1 : cds + 1, structure.getCDSPosition(position, true));
+				assertEquals(message, cds < 0 ? -1 : coding.size() - cds, structure.getCDSPosition(position, false));
+				assertEquals(message, position == 0 ? -1 : exonIndex[position], structure.getExonIndex(position));
+			}
+			for (int start = min - 1; start <= max; start++) {
+				assertEquals(structure.getExonStarts().indexOf(start), structure.getExonIndexByStart(start));
+			}
+		}
+	}
+
+	/**
+	 * Test that the list getters of a transcript give the exons as they were set.
+	 */
+	@Test
+	public void testTranscriptAdapters() {
+
+		List<Exon> exons = Arrays.asList(exon(10, 20, -1), exon(30, 40, 0), exon(50, 60, 2));
+
+		Transcript transcript = new Transcript();
+		transcript.setOrientation(StrandOrientation.REVERSE);
+		transcript.setExons(exons);
+		transcript.setCodingStart(15);
+		transcript.setCodingEnd(55);
+
+		assertEquals(Arrays.asList(10, 30, 50), transcript.getExonStarts());
+		assertEquals(Arrays.asList(20, 40, 60), transcript.getExonEnds());
+		assertEquals(Arrays.asList(11, 60), transcript.getBounderies());
+		assertEquals(3, transcript.getNumberOfExons());
+		assertEquals(1, transcript.getExonIndexByStartPos(30));
+		assertEquals(-1, transcript.getExonIndexByStartPos(31));
+
+		assertEquals(3, transcript.getExons().size());
+		assertEquals(ExonFrameOffset.PHASE_TWO, transcript.getExons().get(2).getPhase());
+		assertEquals(40, transcript.getExonsInRange(0, 1).get(1).getEnd());
+		assertNull(transcript.getExons().get(0).getFrame());
+
+		// the coding range set after the exons is used, counted from the coding end on the reverse strand
+		assertEquals(1, transcript.getCDSPosition(55));
+		assertEquals(5, transcript.getCDSPosition(51));
+		assertEquals(6, transcript.getCDSPosition(40));
+		assertEquals(-1, transcript.getCDSPosition(45));
+		assertEquals(2, transcript.getExonIndexByPosition(51));
+	}
+
+	/**
+	 * Test that the exons of a transcript are a read-only view, and that a copy of a range of them
+	 * can be changed without changing the transcript.
+	 */
+	@Test
+	public void testExonsView() {
+
+		Transcript transcript = new Transcript();
+		transcript.setOrientation("+");
+		transcript.setCodingStart(100);
+		transcript.setCodingEnd(400);
+		transcript.setExons(Arrays.asList(exon(100, 150, 0), exon(200, 250, 0), exon(300, 350, 0), exon(380, 400, 0)));
+
+		try {
+			transcript.getExons().remove(1);
+			fail("Expected an UnsupportedOperationException");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		List<Exon> exons = new ArrayList<>(transcript.getExons().subList(0, 4));
+		exons.remove(1);
+		exons.remove(exons.size() - 2);
+		assertEquals(2, exons.size());
+		assertEquals(100, exons.get(0).getStart());
+		assertEquals(380, exons.get(1).getStart());
+
+		assertEquals(4, transcript.getNumberOfExons());
+		assertEquals(Arrays.asList(100, 200, 300, 380), transcript.getExonStarts());
+		assertEquals(Arrays.asList(150, 250, 350, 400), transcript.getExonEnds());
+	}
+}
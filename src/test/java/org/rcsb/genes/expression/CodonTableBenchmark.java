@@ -0,0 +1,107 @@
+package org.rcsb.genes.expression;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.rcsb.geneprot.genes.expression.CodonTable;
+import org.rcsb.geneprot.genes.expression.Ribosome;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the translation with CodonTable against the BioJava path of Ribosome,
+ * for single codons (as called for every SNP) and for a whole coding sequence.
+ *
+ * Run with the main method from the test classpath.
+ *
+ * @author Yana Valasatava
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodonTableBenchmark {
+
+	private static final String BASES = "ACGT";
+
+	private String[] codons;
+	private String cds;
+	private byte[] cdsBytes;
+	private char[] protein;
+
+	@Setup
+	public void setup() {
+
+		Random random = new Random(42);
+
+		codons = new String[1024];
+		for (int i = 0; i < codons.length; i++) {
+			char[] codon = new char[3];
+			for (int j = 0; j < 3; j++) {
+				codon[j] = BASES.charAt(random.nextInt(4));
+			}
+			codons[i] = new String(codon);
+		}
+
+		// a typical coding sequence of ~500 amino acids
+		StringBuilder sb = new StringBuilder("ATG");
+		while (sb.length() < 1500) {
+			String codon = codons[random.nextInt(codons.length)];
+			if (CodonTable.translate(codon) != CodonTable.STOP)
+				sb.append(codon);
+		}
+		sb.append("TAA");
+		cds = sb.toString();
+		cdsBytes = cds.getBytes(StandardCharsets.US_ASCII);
+		protein = new char[cdsBytes.length / 3];
+	}
+
+	@Benchmark
+	public void codonsBioJava(Blackhole bh) throws CompoundNotFoundException {
+		for (String codon : codons) {
+			bh.consume(Ribosome.getProteinSequence(codon));
+		}
+	}
+
+	@Benchmark
+	public void codonsTable(Blackhole bh) {
+		for (String codon : codons) {
+			bh.consume(CodonTable.getAminoAcid(codon));
+		}
+	}
+
+	@Benchmark
+	public String sequenceBioJava() throws CompoundNotFoundException {
+		return new DNASequence(cds).getRNASequence().getProteinSequence().getSequenceAsString();
+	}
+
+	@Benchmark
+	public int sequenceTable() {
+		return CodonTable.translate(cdsBytes, 0, cdsBytes.length, true, protein);
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		Options options = new OptionsBuilder()
+				.include(CodonTableBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
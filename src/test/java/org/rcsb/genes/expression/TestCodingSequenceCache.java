@@ -0,0 +1,131 @@
+package org.rcsb.genes.expression;
+
+import org.junit.Test;
+import org.rcsb.geneprot.genes.datastructures.Exon;
+import org.rcsb.geneprot.genes.datastructures.Transcript;
+import org.rcsb.geneprot.genes.expression.CodingSequenceCache;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Class to test the CodingSequenceCache class
+ *
+ * @author Yana Valasatava
+ */
+public class TestCodingSequenceCache {
+
+	// the weight of a sequence of 100 bases of a transcript with one exon
+	private static final long WEIGHT = 100 + 8 + 96;
+
+	private static Transcript transcript(String geneBankId) {
+
+		Exon exon = new Exon();
+		exon.setStart(1000);
+		exon.setEnd(1100);
+
+		Transcript transcript = new Transcript();
+		transcript.setChromosomeName("chr1");
+		transcript.setGeneBankId(geneBankId);
+		transcript.setOrientation("+");
+		transcript.setExons(Collections.singletonList(exon));
+		transcript.setCodingStart(1000);
+		transcript.setCodingEnd(1100);
+		return transcript;
+	}
+
+	/**
+	 * Test that the least recently used sequences are evicted once the cache is over its capacity
+	 * and that the counters reflect the gets and the evictions.
+	 */
+	@Test
+	public void testEviction() throws Exception {
+
+		CodingSequenceCache cache = new CodingSequenceCache(3 * WEIGHT);
+		Transcript a = transcript("NM_A");
+		Transcript b = transcript("NM_B");
+		Transcript c = transcript("NM_C");
+		Transcript d = transcript("NM_D");
+		Transcript e = transcript("NM_E");
+
+		cache.put(a, new byte[100]);
+		cache.put(b, new byte[100]);
+		cache.put(c, new byte[100]);
+		assertEquals(3, cache.getEntriesCount());
+		assertEquals(3 * WEIGHT, cache.getSize());
+		assertEquals(0, cache.getEvictionCount());
+
+		// a becomes the most recently used, b the least
+		assertNotNull(cache.get(a));
+		assertNull(cache.get(d));
+
+		cache.put(d, new byte[100]);
+		assertEquals(3, cache.getEntriesCount());
+		assertEquals(3 * WEIGHT, cache.getSize());
+		assertEquals(1, cache.getEvictionCount());
+
+		assertNull(cache.get(b));
+		assertNotNull(cache.get(c));
+		assertNotNull(cache.get(a));
+		assertNotNull(cache.get(d));
+
+		// a larger sequence evicts the two least recently used, c and a
+		cache.put(e, new byte[200]);
+		assertEquals(2, cache.getEntriesCount());
+		assertEquals(WEIGHT + WEIGHT + 100, cache.getSize());
+		assertEquals(3, cache.getEvictionCount());
+
+		assertNull(cache.get(c));
+		assertNull(cache.get(a));
+		assertNotNull(cache.get(d));
+		assertNotNull(cache.get(e));
+
+		assertEquals(6, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+	}
+
+	/**
+	 * Test that a sequence heavier than the capacity is not cached and evicts nothing.
+	 */
+	@Test
+	public void testSequenceOverCapacity() throws Exception {
+
+		CodingSequenceCache cache = new CodingSequenceCache(2 * WEIGHT);
+		Transcript a = transcript("NM_A");
+		Transcript b = transcript("NM_B");
+
+		cache.put(a, new byte[100]);
+		cache.put(b, new byte[(int) (2 * WEIGHT)]);
+
+		assertEquals(1, cache.getEntriesCount());
+		assertEquals(WEIGHT, cache.getSize());
+		assertEquals(0, cache.getEvictionCount());
+		assertNotNull(cache.get(a));
+		assertNull(cache.get(b));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	/**
+	 * Test that replacing the sequence of a transcript updates the size without an eviction.
+	 */
+	@Test
+	public void testReplace() throws Exception {
+
+		CodingSequenceCache cache = new CodingSequenceCache(2 * WEIGHT);
+		Transcript a = transcript("NM_A");
+		Transcript b = transcript("NM_B");
+
+		cache.put(a, new byte[100]);
+		cache.put(b, new byte[100]);
+		cache.put(a, new byte[50]);
+
+		assertEquals(2, cache.getEntriesCount());
+		assertEquals(2 * WEIGHT - 50, cache.getSize());
+		assertEquals(0, cache.getEvictionCount());
+		assertEquals(50, cache.get(a).length);
+	}
+}
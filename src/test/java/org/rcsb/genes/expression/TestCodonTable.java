@@ -0,0 +1,84 @@
+package org.rcsb.genes.expression;
+
+import org.junit.Test;
+import org.rcsb.geneprot.genes.expression.CodonTable;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Class to test the CodonTable class
+ *
+ * @author Yana Valasatava
+ */
+public class TestCodonTable {
+
+	private static final String[] BASES = {"T", "C", "A", "G"};
+
+	/**
+	 * Test that all 64 codons translate according to the standard genetic code.
+	 */
+	@Test
+	public void testStandardCode() {
+
+		String expected = "FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG";
+		int i = 0;
+		for (String b1 : BASES) {
+			for (String b2 : BASES) {
+				for (String b3 : BASES) {
+					assertEquals(expected.charAt(i++), CodonTable.translate(b1 + b2 + b3));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that lower case, RNA and ambiguous codons are handled.
+	 */
+	@Test
+	public void testCodonAlphabet() {
+
+		assertEquals('M', CodonTable.translate("atg"));
+		assertEquals('M', CodonTable.translate("AUG"));
+		assertEquals('X', CodonTable.translate("ANG"));
+		assertEquals("", CodonTable.getAminoAcid("TAA"));
+		assertSame(CodonTable.getAminoAcid("GCT"), CodonTable.getAminoAcid("GCC"));
+	}
+
+	/**
+	 * Test that a coding sequence is translated with the trailing stop trimmed
+	 * and an alternative start codon read as methionine.
+	 */
+	@Test
+	public void testTranslateSequence() {
+
+		byte[] cds = "CTGGCTAAATGGTAAG".getBytes(StandardCharsets.US_ASCII);
+
+		assertEquals("MAKW", CodonTable.translate(cds, true));
+		assertEquals("LAKW", CodonTable.translate(cds, false));
+
+		char[] protein = new char[4];
+		int length = CodonTable.translate(cds, 3, 9, false, protein);
+		assertEquals(2, length);
+		assertEquals("AK", new String(protein, 0, length));
+	}
+
+	/**
+	 * Test that the reverse strand is translated as the reverse complemented sequence.
+	 */
+	@Test
+	public void testTranslateReverse() {
+
+		byte[] cds = "CTGGCTAAATGGTAAG".getBytes(StandardCharsets.US_ASCII);
+		byte[] reverse = "CTTACCATTTAGCCAG".getBytes(StandardCharsets.US_ASCII);
+
+		assertEquals(CodonTable.translate(cds, true), CodonTable.translateReverse(reverse, true));
+		assertEquals(CodonTable.translate(cds, false), CodonTable.translateReverse(reverse, false));
+
+		char[] protein = new char[4];
+		int length = CodonTable.translateReverse(reverse, 7, 13, false, protein);
+		assertEquals("AK", new String(protein, 0, length));
+	}
+}
@@ -0,0 +1,69 @@
+package org.rcsb.genes.expression;
+
+import org.junit.Test;
+import org.rcsb.geneprot.genes.expression.Nucleotides;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class to test the Nucleotides class
+ *
+ * @author Yana Valasatava
+ */
+public class TestNucleotides {
+
+	private static byte[] bytes(String sequence) {
+		return sequence.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static String string(byte[] sequence) {
+		return new String(sequence, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Test that the complement keeps the case and maps the ambiguity codes.
+	 */
+	@Test
+	public void testComplement() {
+
+		assertEquals('T', Nucleotides.complement((byte) 'A'));
+		assertEquals('g', Nucleotides.complement((byte) 'c'));
+		assertEquals('A', Nucleotides.complement((byte) 'U'));
+		assertEquals('Y', Nucleotides.complement((byte) 'R'));
+		assertEquals('N', Nucleotides.complement((byte) 'N'));
+		assertEquals('-', Nucleotides.complement((byte) '-'));
+	}
+
+	/**
+	 * Test the in place reverse complement on sequences of odd and even length.
+	 */
+	@Test
+	public void testReverseComplement() {
+
+		byte[] odd = bytes("ACGtaNc");
+		Nucleotides.reverseComplement(odd);
+		assertEquals("gNtaCGT", string(odd));
+
+		byte[] even = bytes("xxAACGTTGCxx");
+		Nucleotides.reverseComplement(even, 2, 10, false);
+		assertEquals("xxGCAACGTTxx", string(even));
+
+		byte[] upper = bytes("acgT");
+		Nucleotides.reverseComplement(upper, 0, 4, true);
+		assertEquals("ACGT", string(upper));
+
+		byte[] buffer = new byte[6];
+		Nucleotides.reverseComplement(bytes("GGATC"), 1, 5, buffer, 2);
+		assertEquals("GATC", new String(buffer, 2, 4, StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	public void testToUpperCase() {
+
+		byte[] sequence = bytes("acgtnACGT");
+		Nucleotides.toUpperCase(sequence, 2, 9);
+		assertEquals("acGTNACGT", string(sequence));
+	}
+}
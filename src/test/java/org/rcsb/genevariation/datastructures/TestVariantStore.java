@@ -0,0 +1,102 @@
+package org.rcsb.genevariation.datastructures;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.genevariation.constants.VariantType;
+import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
+import org.rcsb.geneprot.genevariation.datastructures.VariantStore;
+import org.rcsb.geneprot.genevariation.filters.VariantDataFilterChromosome;
+import org.rcsb.geneprot.genevariation.filters.VariantDataFilterSNP;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class to test the VariantStore class
+ *
+ * @author Yana Valasatava
+ */
+public class TestVariantStore {
+
+	private VariantStore store;
+
+	@Before
+	public void setUp() {
+		store = new VariantStore(16);
+		store.add("chr1", 1000, "A", "G", false);
+		store.add("chr1", 2000, "GTC", "G", false);
+		store.add("chr2", 3000, "C", "T", true);
+		store.add("chr2", 4000, "GTC", "GTCT", false);
+		store.add("chr1", 5000, "A", ".", false);
+		store.add("chr3", 6000, "N", "A", false);
+	}
+
+	/**
+	 * Test that variants are read back with the same attributes as they were added.
+	 */
+	@Test
+	public void testRoundTrip() {
+
+		assertEquals(6, store.size());
+
+		assertEquals("chr1", store.getChromosomeName(0));
+		assertEquals(1000, store.getPosition(0));
+		assertEquals(VariantType.SNP, store.getType(0));
+		assertEquals("A", store.getRef(0));
+		assertEquals("G", store.getAlt(0));
+
+		assertEquals(VariantType.DELETION, store.getType(1));
+		assertEquals("GTC", store.getRef(1));
+		assertEquals("G", store.getAlt(1));
+
+		assertEquals(VariantType.INSERTION, store.getType(3));
+		assertEquals("GTCT", store.getAlt(3));
+
+		assertEquals(VariantType.MONOMORPHIC, store.getType(4));
+		assertEquals(".", store.getAlt(4));
+
+		assertEquals(VariantType.SNP, store.getType(5));
+		assertEquals("N", store.getRef(5));
+		assertEquals("chr3", store.getChromosomeName(5));
+	}
+
+	/**
+	 * Test that views behave like the variant objects, including reverse strand SNPs.
+	 */
+	@Test
+	public void testViews() {
+
+		VariantInterface snp = store.get(2);
+		assertTrue(snp.isReverse());
+		assertEquals("chr2", snp.getChromosomeName());
+		assertEquals(3000, snp.getPosition());
+		assertEquals("G", snp.getRefBase());
+		assertEquals("A", snp.getAltBase());
+
+		Iterator<VariantInterface> it = store.iterator();
+		int count = 0;
+		while (it.hasNext()) {
+			assertEquals(store.getPosition(count++), it.next().getPosition());
+		}
+		assertEquals(store.size(), count);
+	}
+
+	/**
+	 * Test that the existing filters can be applied to the store.
+	 */
+	@Test
+	public void testFilter() {
+
+		assertArrayEquals(new int[]{0, 2, 5}, store.select(new VariantDataFilterSNP()));
+
+		VariantStore chr1 = store.filter(new VariantDataFilterChromosome("chr1"));
+		assertEquals(3, chr1.size());
+		assertEquals(5000, chr1.getPosition(2));
+		assertEquals("GTC", chr1.getRef(1));
+		assertFalse(chr1.isReverse(0));
+	}
+}
@@ -1,9 +1,134 @@
 package org.rcsb.genevariation.io;
 
+import org.biojava.nbio.genome.parsers.genename.GeneChromosomePosition;
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
+import org.rcsb.geneprot.genes.constants.StrandOrientation;
+import org.rcsb.geneprot.genes.datastructures.Gene;
+import org.rcsb.geneprot.genevariation.io.GenomeDataProvider;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class to test the GenomeDataProvider class on a small .2bit file written by the test
+ *
+ * @author Yana Valasatava
+ */
 public class TestGenomeDataProvider {
-	
+
+	private static final String CHR21 = "ACGTTGCAAC";
+	private static final String CHR22 = "GGGCCCAAATTT";
+
+	private GenomeDataProvider provider;
+
+	private static GeneChromosomePosition transcript(String chromosome, String gene, String id, char orientation, int start, int end) {
+		GeneChromosomePosition gcp = new GeneChromosomePosition();
+		gcp.setChromosome(chromosome);
+		gcp.setGeneName(gene);
+		gcp.setGenebankId(id);
+		gcp.setOrientation(orientation);
+		gcp.setCdsStart(start);
+		gcp.setCdsEnd(end);
+		gcp.setExonStarts(Arrays.asList(start));
+		gcp.setExonEnds(Arrays.asList(end));
+		return gcp;
+	}
+
+	private static byte[] record(String bases) {
+		ByteBuffer buffer = ByteBuffer.allocate(16 + (bases.length() + 3) / 4).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(bases.length()).putInt(0).putInt(0).putInt(0);
+		for (int i = 0; i < bases.length(); i += 4) {
+			int b = 0;
+			for (int j = 0; j < 4; j++)
+				b = b << 2 | (i + j < bases.length() ? "TCAG".indexOf(bases.charAt(i + j)) : 0);
+			buffer.put((byte) b);
+		}
+		return buffer.array();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+
+		byte[] record21 = record(CHR21);
+		byte[] record22 = record(CHR22);
+		int indexSize = 16 + 2 * (1 + 5 + 4);
+		ByteBuffer buffer = ByteBuffer.allocate(indexSize + record21.length + record22.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(0x1A412743).putInt(0).putInt(2).putInt(0);
+		buffer.put((byte) 5).put("chr21".getBytes(StandardCharsets.US_ASCII)).putInt(indexSize);
+		buffer.put((byte) 5).put("chr22".getBytes(StandardCharsets.US_ASCII)).putInt(indexSize + record21.length);
+		buffer.put(record21).put(record22);
+
+		File file = File.createTempFile("genome", ".2bit");
+		file.deleteOnExit();
+		Files.write(file.toPath(), buffer.array());
+
+		List<GeneChromosomePosition> gcps = new ArrayList<>();
+		gcps.add(transcript("chr21", "A", "NM_1", '+', 0, 6));
+		gcps.add(transcript("chr22", "C", "NM_2", '-', 3, 9));
+		gcps.add(transcript("chr21", "B", "NM_3", '-', 1, 4));
+		gcps.add(transcript("chr21", "A", "NM_4", '+', 2, 8));
+		gcps.add(transcript("chr22", "C", "NM_5", '-', 0, 12));
+
+		provider = new GenomeDataProvider(TwoBitGenome.getInstance(file), gcps);
+	}
+
 	/**
-	 * 
-	 * @author Yana Valasatava
+	 * Test that only the genes of the chromosome are built, with their transcripts grouped.
 	 */
+	@Test
+	public void testGetGenesFromChromosome() throws Exception {
+
+		List<Gene> genes = provider.getGenesFromChromosome("21");
+
+		assertEquals(2, genes.size());
+		assertEquals("A", genes.get(0).getName());
+		assertEquals("B", genes.get(1).getName());
+		assertEquals(2, genes.get(0).getTranscripts().size());
+		assertEquals("NM_4", genes.get(0).getTranscripts().get(1).getGeneBankId());
+		assertEquals(StrandOrientation.REVERSE, genes.get(1).getTranscripts().get(0).getOrientation());
+
+		assertEquals(1, provider.getGenesFromChromosome("chr22").size());
+		assertTrue(provider.getGenesFromChromosome("chrY").isEmpty());
+	}
+
+	/**
+	 * Test that the genes built in parallel are the ones built chromosome by chromosome.
+	 */
+	@Test
+	public void testGetGenesByChromosome() throws Exception {
+
+		List<String> chromosomes = Arrays.asList("chr22", "chr21", "chrX");
+		Map<String, List<Gene>> genes = provider.getGenesByChromosome(chromosomes, new ForkJoinPool(3));
+
+		assertEquals(chromosomes, new ArrayList<>(genes.keySet()));
+		for (String chr : chromosomes) {
+			List<Gene> expected = provider.getGenesFromChromosome(chr);
+			assertEquals(expected.size(), genes.get(chr).size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getName(), genes.get(chr).get(i).getName());
+				assertEquals(expected.get(i).getTranscripts().size(), genes.get(chr).get(i).getTranscripts().size());
+			}
+		}
+	}
+
+	@Test
+	public void testReadBaseFromChromosome() throws Exception {
+
+		assertEquals("A", provider.readBaseFromChromosome("21", 1));
+		assertEquals("C", provider.readBaseFromChromosome("chr21", 10));
+		assertEquals("T", provider.readBaseFromChromosome("chr22", 12));
+	}
 }
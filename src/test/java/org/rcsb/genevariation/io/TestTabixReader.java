@@ -0,0 +1,139 @@
+package org.rcsb.genevariation.io;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
+import org.rcsb.geneprot.genevariation.io.TabixReader;
+import org.rcsb.geneprot.genevariation.io.VariantsDataProvider;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class to test region queries on a bgzip compressed, tabix indexed VCF file
+ * (variants.vcf.gz in the test resources: 600 variants on 21 and 120 on 22,
+ * 25 lines per compressed block).
+ *
+ * @author Yana Valasatava
+ */
+public class TestTabixReader {
+
+	private Path vcf;
+	private List<String> records;
+
+	@Before
+	public void setUp() throws Exception {
+
+		vcf = Paths.get(getClass().getResource("/genevariation/variants.vcf.gz").toURI());
+
+		records = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(Files.newInputStream(vcf)), StandardCharsets.US_ASCII))) {
+			for (String line; (line = reader.readLine()) != null; ) {
+				if ( !line.startsWith("#") )
+					records.add(line);
+			}
+		}
+	}
+
+	/**
+	 * Gets the records overlapping a region by scanning the whole file.
+	 */
+	private List<String> scan(String chromosome, long start, long end) {
+
+		List<String> overlapping = new ArrayList<>();
+		for (String record : records) {
+			String[] fields = record.split("\t");
+			long pos = Long.parseLong(fields[1]);
+			if (fields[0].equals(chromosome) && pos <= end && pos + fields[3].length() - 1 >= start)
+				overlapping.add(record);
+		}
+		return overlapping;
+	}
+
+	private List<String> query(TabixReader reader, String chromosome, long start, long end) throws Exception {
+		List<String> lines = new ArrayList<>();
+		reader.query(chromosome, start, end, lines::add);
+		return lines;
+	}
+
+	/**
+	 * Test that indexed queries give the same records as a full scan for regions of different sizes.
+	 */
+	@Test
+	public void testQueriesMatchScan() throws Exception {
+
+		long[][] regions = {
+				{1, 3000000}, {1, 1}, {16384, 16384}, {100000, 130000},
+				{131072, 262144}, {1048000, 1049000}, {2990000, 3000000}, {2500000, 2500500}};
+
+		try (TabixReader reader = new TabixReader(vcf)) {
+			for (long[] region : regions) {
+				assertEquals("21:" + region[0] + "-" + region[1],
+						scan("21", region[0], region[1]), query(reader, "21", region[0], region[1]));
+			}
+			assertEquals(scan("22", 1, 250000), query(reader, "22", 1, 250000));
+		}
+	}
+
+	/**
+	 * Test that every single record can be found by its own position, including
+	 * deletions that are found from a position inside the deleted bases.
+	 */
+	@Test
+	public void testEveryRecord() throws Exception {
+
+		try (TabixReader reader = new TabixReader(vcf)) {
+			for (String record : records) {
+				String[] fields = record.split("\t");
+				long pos = Long.parseLong(fields[1]);
+				long last = pos + fields[3].length() - 1;
+				assertTrue(record, query(reader, fields[0], pos, pos).contains(record));
+				assertTrue(record, query(reader, fields[0], last, last).contains(record));
+			}
+		}
+	}
+
+	/**
+	 * Test regions without records and unknown sequences.
+	 */
+	@Test
+	public void testEmptyRegions() throws Exception {
+
+		try (TabixReader reader = new TabixReader(vcf)) {
+			assertEquals(scan("22", 600000, 700000), query(reader, "22", 600000, 700000));
+			assertTrue(query(reader, "X", 1, 1000000).isEmpty());
+			assertTrue(query(reader, "21", 5000000, 6000000).isEmpty());
+		}
+	}
+
+	/**
+	 * Test that variants of a region are created from the records, one per alternative allele.
+	 */
+	@Test
+	public void testReadVariants() throws Exception {
+
+		List<String> expected = scan("21", 200000, 400000);
+		int alleles = 0;
+		for (String record : expected) {
+			alleles += record.split("\t")[4].split(",").length;
+		}
+
+		List<VariantInterface> variants = VariantsDataProvider.readVariants(vcf, "chr21", 200000, 400000);
+		assertEquals(alleles, variants.size());
+		for (VariantInterface variant : variants) {
+			assertEquals("chr21", variant.getChromosomeName());
+			assertTrue(variant.getPosition() <= 400000);
+		}
+	}
+}
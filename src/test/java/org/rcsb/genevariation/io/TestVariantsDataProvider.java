@@ -0,0 +1,298 @@
+package org.rcsb.genevariation.io;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SaveMode;
+import org.biojava.nbio.genome.parsers.genename.GeneChromosomePosition;
+import org.junit.Test;
+import org.rcsb.geneprot.common.utils.SparkUtils;
+import org.rcsb.geneprot.genes.datastructures.Exon;
+import org.rcsb.geneprot.genes.datastructures.Transcript;
+import org.rcsb.geneprot.genes.datastructures.TranscriptIntervalIndex;
+import org.rcsb.geneprot.genes.expression.RNApolymerase;
+import org.rcsb.geneprot.genevariation.constants.VariantType;
+import org.rcsb.geneprot.genevariation.datastructures.Mutation;
+import org.rcsb.geneprot.genevariation.datastructures.SNP;
+import org.rcsb.geneprot.genevariation.datastructures.VariantInterface;
+import org.rcsb.geneprot.genevariation.filters.VariantColumns;
+import org.rcsb.geneprot.genevariation.filters.VariantDataFilterChromosome;
+import org.rcsb.geneprot.genevariation.io.VariantsDataProvider;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Class to test the VariantsDataProvider class on variants and transcripts created by the test
+ *
+ * @author Yana Valasatava
+ */
+public class TestVariantsDataProvider {
+
+	private static final String CODING_SEQUENCE = "ATGAAACCCGGGTTTAAACCCGGGTTTTAA";
+
+	private static final List<String> VCF_HEADER = Arrays.asList(
+			"##fileformat=VCFv4.1",
+			"##INFO=<ID=RV,Number=0,Type=Flag,Description=\"RS orientation is reversed\">",
+			"#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO");
+
+	private static Transcript transcript(String chromosome, String geneBankId) {
+
+		Exon exon = new Exon();
+		exon.setStart(100);
+		exon.setEnd(130);
+
+		Transcript transcript = new Transcript();
+		transcript.setChromosomeName(chromosome);
+		transcript.setGeneBankId(geneBankId);
+		transcript.setOrientation("+");
+		transcript.setExons(Collections.singletonList(exon));
+		transcript.setCodingStart(100);
+		transcript.setCodingEnd(130);
+		return transcript;
+	}
+
+	private static VariantInterface snp(String chromosome, long position, String ref, String alt) {
+		SNP snp = new SNP(chromosome, position, VariantType.SNP);
+		snp.setVariation(ref, alt);
+		return snp;
+	}
+
+	private static List<Transcript> transcripts() {
+		return Arrays.asList(transcript("chr1", "NM_1"), transcript("chr2", "NM_2"));
+	}
+
+	private static RNApolymerase polymerase(List<Transcript> transcripts) {
+
+		RNApolymerase polymerase = new RNApolymerase();
+		for (Transcript transcript : transcripts)
+			polymerase.getCache().put(transcript, CODING_SEQUENCE.getBytes(StandardCharsets.US_ASCII));
+		return polymerase;
+	}
+
+	private static List<Mutation> callMutations(List<VariantInterface> variants) throws Exception {
+
+		List<Transcript> transcripts = transcripts();
+		return VariantsDataProvider.callMutations(variants.iterator(), new TranscriptIntervalIndex(transcripts),
+				polymerase(transcripts));
+	}
+
+	/**
+	 * Writes a VCF file with a SNP at every given position of chr1.
+	 */
+	private static Path writeVCF(int... positions) throws Exception {
+
+		List<String> lines = new ArrayList<>(VCF_HEADER);
+		for (int position : positions)
+			lines.add("1\t" + position + "\trs" + position + "\tA\tG\t.\tPASS\tAF=0.01");
+
+		File file = File.createTempFile("variants", ".vcf");
+		file.deleteOnExit();
+		Files.write(file.toPath(), lines, StandardCharsets.US_ASCII);
+		return file.toPath();
+	}
+
+	private static List<List<VariantInterface>> streamVariants(Path path, int batchSize) throws Exception {
+
+		List<List<VariantInterface>> batches = new ArrayList<>();
+		VariantsDataProvider.streamVariantsFromVCF(path, variant -> true, batchSize, batches::add);
+		return batches;
+	}
+
+	private static List<Integer> getSizes(List<? extends List<?>> batches) {
+
+		List<Integer> sizes = new ArrayList<>();
+		for (List<?> batch : batches)
+			sizes.add(batch.size());
+		return sizes;
+	}
+
+	/**
+	 * Test that the mutations are called with the chromosome of the variant.
+	 */
+	@Test
+	public void testCallMutations() throws Exception {
+
+		List<Mutation> mutations = callMutations(Arrays.asList(snp("chr1", 104, "A", "G"), snp("chr2", 107, "C", "A")));
+		assertEquals(2, mutations.size());
+
+		assertEquals("chr1", mutations.get(0).getChromosomeName());
+		assertEquals("NM_1", mutations.get(0).getGeneBankId());
+		assertEquals(104, mutations.get(0).getPosition());
+		assertEquals("K", mutations.get(0).getRefAminoAcid());
+		assertEquals("E", mutations.get(0).getMutAminoAcid());
+
+		assertEquals("chr2", mutations.get(1).getChromosomeName());
+		assertEquals("NM_2", mutations.get(1).getGeneBankId());
+		assertEquals("P", mutations.get(1).getRefAminoAcid());
+		assertEquals("T", mutations.get(1).getMutAminoAcid());
+	}
+
+	/**
+	 * Test that a chromosome filter pushed down into a Parquet dataset of mutations keeps
+	 * the mutations of the chromosome.
+	 */
+	@Test
+	public void testReadMutationsWithChromosomeFilter() throws Exception {
+
+		List<VariantInterface> variants = new ArrayList<>();
+		variants.add(snp("chr1", 104, "A", "G"));
+		variants.add(snp("chr1", 110, "G", "C"));
+		variants.add(snp("chr2", 107, "C", "A"));
+		List<Mutation> mutations = callMutations(variants);
+
+		File dir = Files.createTempDirectory("mutations").toFile();
+		dir.deleteOnExit();
+		String path = new File(dir, "mutations.parquet").getPath();
+		SparkUtils.getSparkSession().createDataFrame(mutations, Mutation.class)
+				.write().mode(SaveMode.Overwrite).parquet(path);
+
+		List<Row> rows = VariantsDataProvider.readVariantsFromParquet(path, new VariantDataFilterChromosome("chr1"),
+				VariantColumns.MUTATION).collectAsList();
+		assertEquals(2, rows.size());
+		for (Row row : rows)
+			assertEquals("chr1", row.getString(row.fieldIndex("chromosomeName")));
+
+		rows = VariantsDataProvider.readVariantsFromParquet(path, new VariantDataFilterChromosome("chr2"),
+				VariantColumns.MUTATION).collectAsList();
+		assertEquals(1, rows.size());
+		assertEquals(107L, rows.get(0).getLong(rows.get(0).fieldIndex("position")));
+	}
+
+	/**
+	 * Test that the variants are streamed in batches of the given size, the last batch holding
+	 * the remaining variants.
+	 */
+	@Test
+	public void testStreamVariantsInBatches() throws Exception {
+
+		Path path = writeVCF(101, 102, 103, 104, 105, 106, 107);
+
+		List<List<VariantInterface>> batches = streamVariants(path, 3);
+		assertEquals(Arrays.asList(3, 3, 1), getSizes(batches));
+		List<Long> positions = new ArrayList<>();
+		for (List<VariantInterface> batch : batches) {
+			for (VariantInterface variant : batch)
+				positions.add(variant.getPosition());
+		}
+		assertEquals(Arrays.asList(101L, 102L, 103L, 104L, 105L, 106L, 107L), positions);
+		assertEquals("chr1", batches.get(2).get(0).getChromosomeName());
+
+		assertEquals(Arrays.asList(7), getSizes(streamVariants(path, 7)));
+		assertEquals(Arrays.asList(7), getSizes(streamVariants(path, 100)));
+		assertEquals(Arrays.asList(1, 1, 1, 1, 1, 1, 1), getSizes(streamVariants(path, 1)));
+	}
+
+	/**
+	 * Test that the batches hold the variants accepted by the filter only.
+	 */
+	@Test
+	public void testStreamFilteredVariants() throws Exception {
+
+		Path path = writeVCF(101, 102, 103, 104, 105, 106, 107);
+
+		List<List<VariantInterface>> batches = new ArrayList<>();
+		VariantsDataProvider.streamVariantsFromVCF(path, variant -> variant.getPosition() % 2 == 1, 3, batches::add);
+		assertEquals(Arrays.asList(3, 1), getSizes(batches));
+		assertEquals(107L, batches.get(1).get(0).getPosition());
+	}
+
+	/**
+	 * Test that a file without variants, or without variants accepted by the filter, gives no batch.
+	 */
+	@Test
+	public void testStreamEmptyFile() throws Exception {
+
+		assertEquals(0, streamVariants(writeVCF(), 3).size());
+
+		List<List<VariantInterface>> batches = new ArrayList<>();
+		VariantsDataProvider.streamVariantsFromVCF(writeVCF(101, 102), new VariantDataFilterChromosome("chr2"), 3, batches::add);
+		assertEquals(0, batches.size());
+	}
+
+	/**
+	 * Test that a batch size below one is rejected.
+	 */
+	@Test
+	public void testStreamInvalidBatchSize() throws Exception {
+
+		try {
+			streamVariants(writeVCF(101), 0);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test that the mutations are handed over batch by batch, a batch of variants outside
+	 * the coding region giving an empty list.
+	 */
+	@Test
+	public void testStreamMutations() throws Exception {
+
+		// the last two variants are after the coding region
+		Path path = writeVCF(101, 104, 107, 110, 140, 150);
+		List<Transcript> transcripts = transcripts();
+
+		List<List<Mutation>> batches = new ArrayList<>();
+		VariantsDataProvider.streamMutations(path, variant -> true, 4, new TranscriptIntervalIndex(transcripts),
+				polymerase(transcripts), batches::add);
+		assertEquals(Arrays.asList(4, 0), getSizes(batches));
+		assertEquals(110, batches.get(0).get(3).getPosition());
+
+		batches.clear();
+		VariantsDataProvider.streamMutations(path, variant -> true, 5, new TranscriptIntervalIndex(transcripts),
+				polymerase(transcripts), batches::add);
+		assertEquals(Arrays.asList(4, 0), getSizes(batches));
+
+		batches.clear();
+		VariantsDataProvider.streamMutations(writeVCF(), variant -> true, 5, new TranscriptIntervalIndex(transcripts),
+				polymerase(transcripts), batches::add);
+		assertEquals(0, batches.size());
+	}
+
+	/**
+	 * Test that the records read with Spark are the alleles of the records in a coding region.
+	 */
+	@Test
+	public void testReadVariantsFromVCFWithSpark() throws Exception {
+
+		List<String> lines = new ArrayList<>(VCF_HEADER);
+		for (int position : new int[]{100, 101, 130, 131})
+			lines.add("chr1\t" + position + "\trs" + position + "\tA\t" + (position == 130 ? "G,T" : "G") + "\t.\tPASS\tAF=0.01");
+		File file = File.createTempFile("variants", ".vcf");
+		file.deleteOnExit();
+		Files.write(file.toPath(), lines, StandardCharsets.US_ASCII);
+
+		// refFlat coordinates: the coding region is 101..130
+		GeneChromosomePosition gcp = new GeneChromosomePosition();
+		gcp.setChromosome("chr1");
+		gcp.setGeneName("GENE");
+		gcp.setGenebankId("NM_1");
+		gcp.setOrientation('+');
+		gcp.setTranscriptionStart(100);
+		gcp.setTranscriptionEnd(130);
+		gcp.setCdsStart(100);
+		gcp.setCdsEnd(130);
+		gcp.setExonStarts(Collections.singletonList(100));
+		gcp.setExonEnds(Collections.singletonList(130));
+
+		List<Row> rows = VariantsDataProvider.readVariantsFromVCFWithSpark(file.getPath(), Collections.singletonList(gcp))
+				.orderBy(CommonConstants.COL_POSITION, "variant")
+				.collectAsList();
+		assertEquals(3, rows.size());
+		assertEquals(101, rows.get(0).getInt(rows.get(0).fieldIndex(CommonConstants.COL_POSITION)));
+		assertEquals(130, rows.get(1).getInt(rows.get(1).fieldIndex(CommonConstants.COL_POSITION)));
+		assertEquals("G", rows.get(1).getString(rows.get(1).fieldIndex("variant")));
+		assertEquals("T", rows.get(2).getString(rows.get(2).fieldIndex("variant")));
+	}
+}
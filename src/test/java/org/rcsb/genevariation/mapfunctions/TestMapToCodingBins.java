@@ -0,0 +1,84 @@
+package org.rcsb.genevariation.mapfunctions;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.catalyst.expressions.GenericRowWithSchema;
+import org.junit.Test;
+import org.rcsb.geneprot.genevariation.mapfunctions.MapToCodingBins;
+import org.rcsb.geneprot.genomemapping.constants.DatasetSchemas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class to test the MapToCodingBins class
+ *
+ * @author Yana Valasatava
+ */
+public class TestMapToCodingBins {
+
+	private static final int BIN_SIZE = 10000;
+
+	private static List<Row> bin(int start, int end) throws Exception {
+
+		Row interval = new GenericRowWithSchema(new Object[]{"chr1", start, end, "GENE", "NM_1", "+"},
+				DatasetSchemas.CODING_INTERVAL_SCHEMA);
+		List<Row> rows = new ArrayList<>();
+		Iterator<Row> it = new MapToCodingBins(BIN_SIZE).call(interval);
+		while (it.hasNext())
+			rows.add(it.next());
+		return rows;
+	}
+
+	private static List<Long> getBins(List<Row> rows) {
+		List<Long> bins = new ArrayList<>();
+		for (Row row : rows)
+			bins.add((Long) row.get(row.length() - 1));
+		return bins;
+	}
+
+	/**
+	 * Test that an interval within a bin is kept once, with its columns followed by the bin.
+	 */
+	@Test
+	public void testIntervalWithinBin() throws Exception {
+
+		List<Row> rows = bin(10001, 19999);
+		assertEquals(1, rows.size());
+
+		Row row = rows.get(0);
+		assertEquals(7, row.length());
+		assertEquals(Arrays.asList("chr1", 10001, 19999, "GENE", "NM_1", "+", 1L),
+				Arrays.asList(row.get(0), row.get(1), row.get(2), row.get(3), row.get(4), row.get(5), row.get(6)));
+	}
+
+	/**
+	 * Test the intervals that start or end on a multiple of the bin size.
+	 */
+	@Test
+	public void testBinBoundaries() throws Exception {
+
+		assertEquals(Arrays.asList(1L), getBins(bin(10000, 10000)));
+		assertEquals(Arrays.asList(0L), getBins(bin(9999, 9999)));
+		assertEquals(Arrays.asList(0L, 1L), getBins(bin(9999, 10000)));
+		assertEquals(Arrays.asList(1L, 2L), getBins(bin(10000, 20000)));
+		assertEquals(Arrays.asList(0L), getBins(bin(1, 9999)));
+	}
+
+	/**
+	 * Test that an interval spanning several bins is replicated into each of them.
+	 */
+	@Test
+	public void testIntervalSpanningBins() throws Exception {
+
+		List<Row> rows = bin(5000, 35000);
+		assertEquals(Arrays.asList(0L, 1L, 2L, 3L), getBins(rows));
+		for (Row row : rows) {
+			assertEquals(5000, row.getInt(1));
+			assertEquals(35000, row.getInt(2));
+		}
+	}
+}
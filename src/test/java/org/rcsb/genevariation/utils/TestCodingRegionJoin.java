@@ -0,0 +1,175 @@
+package org.rcsb.genevariation.utils;
+
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.biojava.nbio.genome.parsers.genename.GeneChromosomePosition;
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.common.utils.SparkUtils;
+import org.rcsb.geneprot.genevariation.datastructures.VcfContainer;
+import org.rcsb.geneprot.genevariation.utils.CodingRegionJoin;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class to test the CodingRegionJoin class on transcripts and positions created by the test
+ *
+ * @author Yana Valasatava
+ */
+public class TestCodingRegionJoin {
+
+	private static final StructType POSITION_SCHEMA = DataTypes.createStructType(new StructField[]{
+			DataTypes.createStructField(CommonConstants.COL_CHROMOSOME, DataTypes.StringType, false),
+			DataTypes.createStructField(CommonConstants.COL_POSITION, DataTypes.IntegerType, false)});
+
+	private List<GeneChromosomePosition> transcripts;
+	private Dataset<Row> intervals;
+
+	private static GeneChromosomePosition transcript(String chromosome, String geneBankId, int start, int end) {
+
+		// refFlat coordinates: 0-based start, 1-based end
+		GeneChromosomePosition gcp = new GeneChromosomePosition();
+		gcp.setChromosome(chromosome);
+		gcp.setGeneName("GENE");
+		gcp.setGenebankId(geneBankId);
+		gcp.setOrientation('+');
+		gcp.setTranscriptionStart(start);
+		gcp.setTranscriptionEnd(end);
+		gcp.setCdsStart(start);
+		gcp.setCdsEnd(end);
+		gcp.setExonStarts(Arrays.asList(start));
+		gcp.setExonEnds(Arrays.asList(end));
+		return gcp;
+	}
+
+	@Before
+	public void setUp() throws Exception {
+
+		transcripts = Arrays.asList(
+				// coding 9991..30010, spanning the bins 0 to 3
+				transcript("chr1", "NM_1", 9990, 30010),
+				// coding 19991..20010, within the first transcript
+				transcript("chr1", "NM_2", 19990, 20010),
+				// coding 5001..9999, ending just before a bin boundary
+				transcript("chr2", "NM_3", 5000, 9999));
+		intervals = CodingRegionJoin.getCodingIntervals(SparkUtils.getSparkSession(), transcripts);
+	}
+
+	private static Dataset<Row> positions(Object[]... positions) {
+
+		List<Row> rows = new ArrayList<>();
+		for (Object[] position : positions)
+			rows.add(RowFactory.create(position));
+		SparkSession sparkSession = SparkUtils.getSparkSession();
+		return sparkSession.createDataFrame(rows, POSITION_SCHEMA);
+	}
+
+	private static TreeSet<Integer> getPositions(Dataset<Row> df, String chromosome) {
+
+		TreeSet<Integer> positions = new TreeSet<>();
+		for (Row row : df.collectAsList()) {
+			if (row.getString(row.fieldIndex(CommonConstants.COL_CHROMOSOME)).equals(chromosome))
+				positions.add(row.getInt(row.fieldIndex(CommonConstants.COL_POSITION)));
+		}
+		return positions;
+	}
+
+	/**
+	 * Test that the 0-based start of an exon is not coding and its 1-based end is, the way
+	 * VCF positions are compared.
+	 */
+	@Test
+	public void testIntervalEnds() throws Exception {
+
+		Dataset<Row> df = positions(
+				new Object[]{"chr1", 9990}, new Object[]{"chr1", 9991}, new Object[]{"chr1", 30010},
+				new Object[]{"chr1", 30011}, new Object[]{"chr2", 5000}, new Object[]{"chr2", 5001});
+		Dataset<Row> coding = CodingRegionJoin.filterCodingRegion(df, CommonConstants.COL_CHROMOSOME,
+				CommonConstants.COL_POSITION, intervals, CodingRegionJoin.DEFAULT_BIN_SIZE);
+
+		assertEquals(new TreeSet<>(Arrays.asList(9991, 30010)), getPositions(coding, "chr1"));
+		assertEquals(new TreeSet<>(Arrays.asList(5001)), getPositions(coding, "chr2"));
+	}
+
+	/**
+	 * Test the positions on multiples of the bin size, which fall into the first bin of an interval
+	 * starting there and not into an interval ending just before.
+	 */
+	@Test
+	public void testBinBoundaries() throws Exception {
+
+		Dataset<Row> df = positions(
+				new Object[]{"chr1", 10000}, new Object[]{"chr1", 20000}, new Object[]{"chr1", 30000},
+				new Object[]{"chr1", 40000}, new Object[]{"chr2", 9999}, new Object[]{"chr2", 10000});
+		Dataset<Row> coding = CodingRegionJoin.filterCodingRegion(df, CommonConstants.COL_CHROMOSOME,
+				CommonConstants.COL_POSITION, intervals, CodingRegionJoin.DEFAULT_BIN_SIZE);
+
+		assertEquals(new TreeSet<>(Arrays.asList(10000, 20000, 30000)), getPositions(coding, "chr1"));
+		assertEquals(new TreeSet<>(Arrays.asList(9999)), getPositions(coding, "chr2"));
+	}
+
+	/**
+	 * Test that an interval replicated into several bins, and overlapped by another interval,
+	 * reports every position once in the filter and once per interval in the join.
+	 */
+	@Test
+	public void testIntervalSpanningBins() throws Exception {
+
+		assertEquals(4, CodingRegionJoin.binIntervals(intervals.filter(intervals.col(CommonConstants.COL_NCBI_RNA_SEQUENCE_ACCESSION)
+				.equalTo("NM_1")), CodingRegionJoin.DEFAULT_BIN_SIZE).count());
+
+		Dataset<Row> df = positions(new Object[]{"chr1", 15000}, new Object[]{"chr1", 20005}, new Object[]{"chr1", 25000});
+		Dataset<Row> coding = CodingRegionJoin.filterCodingRegion(df, CommonConstants.COL_CHROMOSOME,
+				CommonConstants.COL_POSITION, intervals, CodingRegionJoin.DEFAULT_BIN_SIZE);
+		assertEquals(3, coding.count());
+		assertEquals(Arrays.asList(CommonConstants.COL_CHROMOSOME, CommonConstants.COL_POSITION), Arrays.asList(coding.columns()));
+
+		Map<Integer, Integer> transcripts = new HashMap<>();
+		for (Row row : CodingRegionJoin.joinCodingRegion(df, CommonConstants.COL_CHROMOSOME,
+				CommonConstants.COL_POSITION, intervals, CodingRegionJoin.DEFAULT_BIN_SIZE).collectAsList()) {
+			transcripts.merge(row.getInt(row.fieldIndex(CommonConstants.COL_POSITION)), 1, Integer::sum);
+		}
+		assertEquals(1, (int) transcripts.get(15000));
+		assertEquals(2, (int) transcripts.get(20005));
+		assertEquals(1, (int) transcripts.get(25000));
+	}
+
+	/**
+	 * Test that the VCF records kept with the broadcast index are the ones kept with the binned join.
+	 */
+	@Test
+	public void testBroadcastSameAsJoin() throws Exception {
+
+		List<VcfContainer> records = new ArrayList<>();
+		for (int position : new int[]{9990, 9991, 10000, 20000, 30010, 30011, 40000}) {
+			VcfContainer record = new VcfContainer();
+			record.setChromosome("chr1");
+			record.setPosition(position);
+			record.setOriginal("A");
+			record.setVariant("G");
+			records.add(record);
+		}
+		Dataset<VcfContainer> df = SparkUtils.getSparkSession().createDataset(records, Encoders.bean(VcfContainer.class));
+
+		Dataset<Row> broadcast = CodingRegionJoin.filterCodingRegion(df, transcripts, CodingRegionJoin.DEFAULT_BIN_SIZE, 100);
+		Dataset<Row> joined = CodingRegionJoin.filterCodingRegion(df, transcripts, CodingRegionJoin.DEFAULT_BIN_SIZE, -1);
+
+		TreeSet<Integer> expected = new TreeSet<>(Arrays.asList(9991, 10000, 20000, 30010));
+		assertEquals(expected, getPositions(broadcast, "chr1"));
+		assertEquals(expected, getPositions(joined, "chr1"));
+	}
+}
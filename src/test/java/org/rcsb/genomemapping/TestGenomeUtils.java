@@ -0,0 +1,125 @@
+package org.rcsb.genomemapping;
+
+import com.google.common.collect.Range;
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.common.io.TwoBitGenome;
+import org.rcsb.geneprot.genomemapping.utils.GenomeUtils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class to test the batch sequence fetch of the GenomeUtils class on a small .2bit file written by the test
+ *
+ * @author Yana Valasatava
+ */
+public class TestGenomeUtils {
+
+    private static final String BASES = "TCAG";
+
+    private TwoBitGenome genome;
+    private String chromosome;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Random random = new Random(12);
+        char[] bases = new char[5000];
+        for (int i = 0; i < bases.length; i++)
+            bases[i] = BASES.charAt(random.nextInt(4));
+        chromosome = new String(bases);
+
+        // a single sequence without N-blocks and mask blocks
+        byte[] name = "chrT".getBytes(StandardCharsets.US_ASCII);
+        int indexSize = 16 + 1 + name.length + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(indexSize + 16 + (bases.length + 3) / 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0x1A412743).putInt(0).putInt(1).putInt(0);
+        buffer.put((byte) name.length).put(name).putInt(indexSize);
+        buffer.putInt(bases.length).putInt(0).putInt(0).putInt(0);
+        for (int i = 0; i < bases.length; i += 4) {
+            int b = 0;
+            for (int j = 0; j < 4; j++)
+                b = b << 2 | (i + j < bases.length ? BASES.indexOf(bases[i + j]) : 0);
+            buffer.put((byte) b);
+        }
+
+        File file = File.createTempFile("transcripts", ".2bit");
+        file.deleteOnExit();
+        Files.write(file.toPath(), buffer.array());
+        genome = TwoBitGenome.getInstance(file);
+    }
+
+    private String concatenate(List<Range<Integer>> ranges) {
+        StringBuilder sequence = new StringBuilder();
+        for (Range<Integer> range : ranges)
+            sequence.append(chromosome, range.lowerEndpoint(), range.upperEndpoint());
+        return sequence.toString();
+    }
+
+    /**
+     * Test that transcripts with shared, overlapping, adjacent and unsorted ranges are assembled as range by range.
+     */
+    @Test
+    public void testGetTranscriptSequences() throws Exception {
+
+        List<List<Range<Integer>>> cds = new ArrayList<>();
+        cds.add(Arrays.asList(Range.closed(100, 160), Range.closed(300, 420), Range.closed(900, 913)));
+        cds.add(Arrays.asList(Range.closed(120, 160), Range.closed(300, 400)));
+        cds.add(Arrays.asList(Range.closed(160, 200), Range.closed(4990, 5000)));
+        cds.add(Arrays.asList(Range.closed(2000, 2100), Range.closed(1000, 1050)));
+        cds.add(Collections.emptyList());
+        cds.add(Collections.singletonList(Range.closed(0, 3)));
+
+        Random random = new Random(7);
+        for (int t = 0; t < 50; t++) {
+            List<Range<Integer>> ranges = new ArrayList<>();
+            int start = random.nextInt(3000);
+            for (int e = 0; e < 1 + random.nextInt(6); e++) {
+                int end = start + 1 + random.nextInt(150);
+                ranges.add(Range.closed(start, end));
+                start = end + random.nextInt(100);
+            }
+            cds.add(ranges);
+        }
+
+        byte[][] sequences = GenomeUtils.getTranscriptSequences(genome, "chrT", cds);
+
+        assertEquals(cds.size(), sequences.length);
+        for (int t = 0; t < cds.size(); t++) {
+            assertEquals(concatenate(cds.get(t)), new String(sequences[t], StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Test that the transcripts of both strands are translated as their spliced sequences.
+     */
+    @Test
+    public void testGetProteinSequences() throws Exception {
+
+        List<List<Range<Integer>>> cds = new ArrayList<>();
+        cds.add(Arrays.asList(Range.closed(100, 160), Range.closed(300, 420)));
+        cds.add(Arrays.asList(Range.closed(130, 160), Range.closed(300, 360), Range.closed(700, 703)));
+
+        String[] proteins = GenomeUtils.getProteinSequences(genome, "chrT", Arrays.asList("+", "-"), cds);
+
+        assertEquals(GenomeUtils.getProteinSequence("+", concatenate(cds.get(0))), proteins[0]);
+        assertEquals(GenomeUtils.getProteinSequence("-", concatenate(cds.get(1))), proteins[1]);
+    }
+
+    @Test
+    public void testGetSequenceDigest() {
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", GenomeUtils.getSequenceDigest(""));
+        assertEquals("b2f5ff47436671b6e533d8dc3614845d", GenomeUtils.getSequenceDigest("g"));
+    }
+}
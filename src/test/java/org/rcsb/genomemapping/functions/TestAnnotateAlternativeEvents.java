@@ -0,0 +1,123 @@
+package org.rcsb.genomemapping.functions;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.catalyst.expressions.GenericRowWithSchema;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Test;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+import org.rcsb.geneprot.genomemapping.functions.AnnotateAlternativeEvents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class to test the AnnotateAlternativeEvents class
+ *
+ * @author Yana Valasatava
+ */
+public class TestAnnotateAlternativeEvents {
+
+    private static final StructType CODING_SCHEMA = DataTypes.createStructType(new StructField[]{
+            DataTypes.createStructField(CommonConstants.COL_START, DataTypes.IntegerType, false),
+            DataTypes.createStructField(CommonConstants.COL_END, DataTypes.IntegerType, false)});
+
+    private static final StructType SCHEMA = DataTypes.createStructType(new StructField[]{
+            DataTypes.createStructField(CommonConstants.COL_GENE_NAME, DataTypes.StringType, false),
+            DataTypes.createStructField(CommonConstants.COL_TRANSCRIPT_ID, DataTypes.StringType, false),
+            DataTypes.createStructField(CommonConstants.COL_CODING, DataTypes.createArrayType(CODING_SCHEMA), true)});
+
+    private static Row transcript(String id, int... coordinates) {
+
+        List<Row> coding = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2)
+            coding.add(new GenericRowWithSchema(new Object[]{coordinates[i], coordinates[i + 1]}, CODING_SCHEMA));
+        return new GenericRowWithSchema(new Object[]{"TTN", id, coding}, SCHEMA);
+    }
+
+    private static List<Row> annotate(Row... transcripts) throws Exception {
+
+        List<Row> rows = new ArrayList<>();
+        Iterator<Row> it = new AnnotateAlternativeEvents().call(Arrays.asList(transcripts));
+        it.forEachRemaining(rows::add);
+        return rows;
+    }
+
+    private static List<Boolean> flags(Row row) {
+        return row.getList(row.fieldIndex(CommonConstants.COL_ALTERNATIVE_EXONS));
+    }
+
+    private static boolean hasAlternativeExons(Row row) {
+        return row.getBoolean(row.fieldIndex(CommonConstants.COL_HAS_ALTERNATIVE_EXONS));
+    }
+
+    /**
+     * Test that the flags follow the order of the coding regions, a region being alternative
+     * if some transcript of the gene does not have it.
+     */
+    @Test
+    public void testFlags() throws Exception {
+
+        List<Row> rows = annotate(
+                transcript("T1", 10, 20, 30, 40, 50, 60),
+                transcript("T2", 10, 20, 50, 60),
+                transcript("T3", 10, 20, 30, 41, 50, 60));
+
+        assertEquals(3, rows.size());
+        assertEquals(Arrays.asList(false, true, false), flags(rows.get(0)));
+        assertEquals(Arrays.asList(false, false), flags(rows.get(1)));
+        assertEquals(Arrays.asList(false, true, false), flags(rows.get(2)));
+        assertEquals(true, hasAlternativeExons(rows.get(0)));
+        assertEquals(false, hasAlternativeExons(rows.get(1)));
+
+        Row row = rows.get(2);
+        assertEquals("T3", row.getString(row.fieldIndex(CommonConstants.COL_TRANSCRIPT_ID)));
+        assertEquals(SCHEMA.size() + 2, row.schema().size());
+        assertEquals(row.schema(), rows.get(0).schema());
+    }
+
+    /**
+     * Test that regions with the same Range hash code ([0, 0] and [1, 31]) are told apart,
+     * and that a region repeated within a transcript is counted once for that transcript.
+     */
+    @Test
+    public void testExactKeys() throws Exception {
+
+        List<Row> rows = annotate(
+                transcript("T1", 0, 0, 5, 5),
+                transcript("T2", 1, 31, 5, 5, 5, 5));
+
+        assertEquals(Arrays.asList(true, false), flags(rows.get(0)));
+        assertEquals(Arrays.asList(true, false, false), flags(rows.get(1)));
+    }
+
+    /**
+     * Test that the rows have the schema declared up front, so the output can be built without collecting it.
+     */
+    @Test
+    public void testOutputSchema() throws Exception {
+
+        StructType schema = AnnotateAlternativeEvents.getOutputSchema(SCHEMA);
+        Row row = annotate(transcript("T1", 10, 20), transcript("T2", 10, 20)).get(0);
+
+        assertArrayEquals(schema.fieldNames(), row.schema().fieldNames());
+        assertEquals(CommonConstants.COL_HAS_ALTERNATIVE_EXONS, schema.fields()[schema.size() - 1].name());
+        assertTrue(annotate().isEmpty());
+    }
+
+    @Test
+    public void testSingleTranscript() throws Exception {
+
+        List<Row> rows = annotate(transcript("T1", 10, 20, 30, 40));
+
+        assertEquals(Arrays.asList(false, false), flags(rows.get(0)));
+        assertEquals(false, hasAlternativeExons(rows.get(0)));
+    }
+}
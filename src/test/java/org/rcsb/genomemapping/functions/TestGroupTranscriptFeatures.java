@@ -0,0 +1,104 @@
+package org.rcsb.genomemapping.functions;
+
+import org.junit.Test;
+import org.rcsb.geneprot.gencode.gtf.GTFTokenizer;
+import org.rcsb.geneprot.gencode.gtf.GencodeFeature;
+import org.rcsb.geneprot.genomemapping.functions.GroupTranscriptFeatures;
+import org.rcsb.geneprot.genomemapping.functions.GroupTranscriptFeatures.PartitionHead;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Class to test the GroupTranscriptFeatures class on every way of splitting a list of features in partitions
+ *
+ * @author Yana Valasatava
+ */
+public class TestGroupTranscriptFeatures {
+
+    // the number of features of the transcripts, in the order of the file
+    private static final int[] TRANSCRIPTS = {3, 1, 5, 2, 1};
+
+    private static List<GencodeFeature> getFeatures(int[] transcripts) throws Exception {
+
+        GTFTokenizer tokenizer = new GTFTokenizer("transcript_id", "exon_number");
+        List<GencodeFeature> features = new ArrayList<>();
+        for (int t = 0; t < transcripts.length; t++) {
+            for (int e = 1; e <= transcripts[t]; e++) {
+                features.add(tokenizer.parseLine("1\tensembl\texon\t" + (100 * t + e) + "\t" + (100 * t + e)
+                        + "\t.\t+\t.\ttranscript_id \"T" + t + "\"; exon_number \"" + e + "\";"));
+            }
+        }
+        return features;
+    }
+
+    private static List<List<String>> group(List<List<GencodeFeature>> partitions) throws Exception {
+
+        List<PartitionHead> heads = new ArrayList<>();
+        for (List<GencodeFeature> partition : partitions)
+            heads.add(GroupTranscriptFeatures.readHead(partition.iterator()));
+
+        GroupTranscriptFeatures function = new GroupTranscriptFeatures(heads);
+        List<List<String>> groups = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            Iterator<Iterable<GencodeFeature>> it = function.call(i, partitions.get(i).iterator());
+            while (it.hasNext()) {
+                List<String> group = new ArrayList<>();
+                for (GencodeFeature feature : it.next())
+                    group.add(feature.getAttribute("transcript_id") + ":" + feature.getAttribute("exon_number"));
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Test that the transcripts are the same whatever the split boundaries, including empty partitions
+     * and transcripts spanning several partitions.
+     */
+    @Test
+    public void testAllSplits() throws Exception {
+
+        List<GencodeFeature> features = getFeatures(TRANSCRIPTS);
+        List<List<String>> expected = group(Collections.singletonList(features));
+
+        assertEquals(TRANSCRIPTS.length, expected.size());
+        for (int t = 0; t < TRANSCRIPTS.length; t++) {
+            assertEquals(TRANSCRIPTS[t], expected.get(t).size());
+            assertEquals("T" + t + ":1", expected.get(t).get(0));
+        }
+
+        int n = features.size();
+        for (int a = 0; a <= n; a++) {
+            for (int b = a; b <= n; b++) {
+                for (int c = b; c <= n; c++) {
+                    List<List<GencodeFeature>> partitions = new ArrayList<>();
+                    partitions.add(features.subList(0, a));
+                    partitions.add(features.subList(a, b));
+                    partitions.add(features.subList(b, c));
+                    partitions.add(features.subList(c, n));
+                    assertEquals("splits " + a + " " + b + " " + c, expected, group(partitions));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNotContiguous() throws Exception {
+
+        List<GencodeFeature> features = getFeatures(new int[]{2, 2});
+        features.add(features.remove(0));
+
+        try {
+            group(Collections.singletonList(features));
+            fail("Expected an error for the features of T0");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
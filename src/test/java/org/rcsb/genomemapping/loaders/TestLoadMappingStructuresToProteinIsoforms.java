@@ -0,0 +1,176 @@
+package org.rcsb.genomemapping.loaders;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.common.utils.SparkUtils;
+import org.rcsb.geneprot.genomemapping.constants.CommonConstants;
+import org.rcsb.geneprot.genomemapping.functions.HarvestAllIsoformsMappings;
+import org.rcsb.geneprot.genomemapping.loaders.LoadMappingStructuresToProteinIsoforms;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.spark.sql.functions.col;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Class to test the harvesting of the LoadMappingStructuresToProteinIsoforms class with a stub
+ * of the PDBe API
+ *
+ * @author Yana Valasatava
+ */
+public class TestLoadMappingStructuresToProteinIsoforms {
+
+    private static final List<String> ENTRIES = Arrays.asList("1ABC", "2ABC", "3ABC", "4ABC");
+
+    // the state of the stub, shared with the tasks of the local Spark session
+    private static final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private static final Set<String> failing = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * Answers every entry of a partition without a request, failing the entries in the failing set.
+     */
+    private static class HarvestStub implements FlatMapFunction<Iterator<Row>, Row> {
+
+        @Override
+        public Iterator<Row> call(Iterator<Row> entries) throws Exception {
+
+            List<Row> rows = new ArrayList<>();
+            while (entries.hasNext()) {
+                Row row = entries.next();
+                String entryId = row.getString(row.fieldIndex(CommonConstants.COL_ENTRY_ID));
+                requests.computeIfAbsent(entryId, k -> new AtomicInteger()).incrementAndGet();
+                if (failing.contains(entryId))
+                    rows.add(RowFactory.create(entryId, null, "java.io.IOException: Connection reset"));
+                else
+                    rows.add(RowFactory.create(entryId, "{\"" + entryId + "\":{}}", null));
+            }
+            return rows.iterator();
+        }
+    }
+
+    private String location;
+    private Dataset<Row> entries;
+
+    @Before
+    public void setUp() throws Exception {
+
+        requests.clear();
+        failing.clear();
+
+        File dir = Files.createTempDirectory("all-isoforms").toFile();
+        dir.deleteOnExit();
+        location = dir.getPath() + "/";
+
+        entries = SparkUtils.getSparkSession().createDataset(ENTRIES, Encoders.STRING())
+                .toDF(CommonConstants.COL_ENTRY_ID);
+    }
+
+    private int getRequests(String entryId) {
+        AtomicInteger count = requests.get(entryId);
+        return count == null ? 0 : count.get();
+    }
+
+    private static Set<String> getEntryIds(Dataset<Row> df) {
+        return new HashSet<>(df.select(CommonConstants.COL_ENTRY_ID).as(Encoders.STRING()).collectAsList());
+    }
+
+    @Test
+    public void testReadCheckpointsOfEmptyLocation() throws Exception {
+
+        Dataset<Row> checkpoints = LoadMappingStructuresToProteinIsoforms.readCheckpoints(location + "missing/");
+        assertEquals(HarvestAllIsoformsMappings.SCHEMA, checkpoints.schema());
+        assertEquals(0, checkpoints.count());
+    }
+
+    /**
+     * Test that a restarted harvest skips the entries harvested by the first one, requests the failed
+     * entries again and ignores a checkpoint without the _SUCCESS marker.
+     */
+    @Test
+    public void testHarvestRestart() throws Exception {
+
+        // a checkpoint left by a job that has not completed
+        String uncommitted = location + LoadMappingStructuresToProteinIsoforms.CHECKPOINT_PREFIX + "0-00000";
+        SparkUtils.getSparkSession().createDataFrame(Collections.singletonList(RowFactory.create("1ABC", "{}", null)),
+                HarvestAllIsoformsMappings.SCHEMA).write().parquet(uncommitted);
+        assertTrue(new File(uncommitted, "_SUCCESS").delete());
+        assertEquals(0, LoadMappingStructuresToProteinIsoforms.readCheckpoints(location).count());
+
+        failing.add("2ABC");
+        LoadMappingStructuresToProteinIsoforms.harvest(entries, location, new HarvestStub());
+
+        for (String entryId : ENTRIES)
+            assertEquals(entryId, 1, getRequests(entryId));
+
+        Dataset<Row> checkpoints = LoadMappingStructuresToProteinIsoforms.readCheckpoints(location);
+        assertEquals(4, checkpoints.count());
+        assertEquals(Collections.singleton("2ABC"), getEntryIds(checkpoints.filter(col(CommonConstants.COL_ERROR).isNotNull())));
+
+        failing.clear();
+        LoadMappingStructuresToProteinIsoforms.harvest(entries, location, new HarvestStub());
+
+        assertEquals(1, getRequests("1ABC"));
+        assertEquals(2, getRequests("2ABC"));
+        assertEquals(1, getRequests("3ABC"));
+        assertEquals(1, getRequests("4ABC"));
+
+        checkpoints = LoadMappingStructuresToProteinIsoforms.readCheckpoints(location);
+        assertEquals(5, checkpoints.count());
+        assertEquals(new HashSet<>(ENTRIES), getEntryIds(checkpoints.filter(col(CommonConstants.COL_ERROR).isNull())));
+
+        // nothing is left to harvest
+        LoadMappingStructuresToProteinIsoforms.harvest(entries, location, new HarvestStub());
+        assertEquals(2, getRequests("2ABC"));
+        assertEquals(5, LoadMappingStructuresToProteinIsoforms.readCheckpoints(location).count());
+    }
+
+    /**
+     * Test that the failed entries are the ones without a successful response in any checkpoint.
+     */
+    @Test
+    public void testWriteFailedEntries() throws Exception {
+
+        failing.addAll(Arrays.asList("2ABC", "3ABC"));
+        LoadMappingStructuresToProteinIsoforms.harvest(entries, location, new HarvestStub());
+
+        failing.remove("3ABC");
+        LoadMappingStructuresToProteinIsoforms.harvest(entries, location, new HarvestStub());
+
+        Dataset<Row> checkpoints = LoadMappingStructuresToProteinIsoforms.readCheckpoints(location);
+        Dataset<Row> failed = LoadMappingStructuresToProteinIsoforms.writeFailedEntries(checkpoints, location);
+        assertEquals(Collections.singleton("2ABC"), getEntryIds(failed));
+
+        Dataset<Row> written = SparkUtils.getSparkSession().read()
+                .parquet(location + LoadMappingStructuresToProteinIsoforms.FAILED_ENTRIES);
+        assertEquals(Collections.singletonList(CommonConstants.COL_ENTRY_ID), Arrays.asList(written.columns()));
+        assertEquals(Collections.singleton("2ABC"), getEntryIds(written));
+
+        // no entry is failed once they are all harvested
+        failing.clear();
+        LoadMappingStructuresToProteinIsoforms.harvest(entries, location, new HarvestStub());
+        checkpoints = LoadMappingStructuresToProteinIsoforms.readCheckpoints(location);
+        assertEquals(0, LoadMappingStructuresToProteinIsoforms.writeFailedEntries(checkpoints, location).count());
+
+        Row row = checkpoints.filter(col(CommonConstants.COL_ENTRY_ID).equalTo("4ABC")).first();
+        assertEquals("{\"4ABC\":{}}", row.getString(row.fieldIndex(CommonConstants.COL_RESPONSE)));
+        assertNull(row.get(row.fieldIndex(CommonConstants.COL_ERROR)));
+    }
+}
@@ -0,0 +1,38 @@
+package org.rcsb.genomemapping.utils;
+
+import org.junit.Test;
+import org.rcsb.geneprot.genomemapping.utils.LongIntHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Class to test the LongIntHashMap class against a HashMap
+ *
+ * @author Yana Valasatava
+ */
+public class TestLongIntHashMap {
+
+    @Test
+    public void testSameAsHashMap() {
+
+        Random random = new Random(11);
+        LongIntHashMap map = new LongIntHashMap(2);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        long[] special = {Long.MIN_VALUE, Long.MAX_VALUE, 0L, -1L};
+        for (int i = 0; i < 20000; i++) {
+            long key = i % 10 == 0 ? special[random.nextInt(special.length)]
+                    : (long) random.nextInt(500) << 32 | random.nextInt(500);
+            int delta = random.nextInt(5) - 1;
+            expected.merge(key, delta, Integer::sum);
+            assertEquals(expected.get(key).intValue(), map.add(key, delta));
+        }
+        for (Map.Entry<Long, Integer> entry : expected.entrySet())
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        assertEquals(0, map.get(501L << 32));
+    }
+}
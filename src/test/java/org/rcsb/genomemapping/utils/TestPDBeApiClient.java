@@ -0,0 +1,120 @@
+package org.rcsb.genomemapping.utils;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.genomemapping.utils.PDBeApiClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Class to test the PDBeApiClient class against a local stub server
+ *
+ * @author Yana Valasatava
+ */
+public class TestPDBeApiClient {
+
+    private static final String MAPPING = "{\"1b8i\":{\"UniProt\":{}}}";
+
+    private HttpServer server;
+    private PDBeApiClient client;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<Long> times = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/mappings/all_isoforms/", exchange -> {
+
+            times.add(System.nanoTime());
+            int count = requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+
+            int status = 404;
+            byte[] bytes = new byte[0];
+            if (path.endsWith("/1B8I")) {
+                status = 200;
+                bytes = MAPPING.getBytes(StandardCharsets.UTF_8);
+            } else if (path.endsWith("/2XXX")) {
+                status = 500;
+            } else if (path.endsWith("/3BSY")) {
+                // busy at the first request only
+                status = count == 1 ? 503 : 200;
+                bytes = count == 1 ? bytes : MAPPING.getBytes(StandardCharsets.UTF_8);
+            }
+
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+
+        client = new PDBeApiClient("http://localhost:" + server.getAddress().getPort(), 2, 2, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testAllIsoforms() throws Exception {
+        assertEquals(MAPPING, client.getAllIsoforms("1B8I").get());
+    }
+
+    @Test
+    public void testNoMapping() throws Exception {
+        assertNull(client.getAllIsoforms("9ZZZ").get());
+        assertEquals(1, requests.get());
+    }
+
+    /**
+     * Test that a server error fails the request once the retries are exhausted.
+     */
+    @Test
+    public void testServerError() throws Exception {
+
+        try {
+            client.getAllIsoforms("2XXX").get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(3, requests.get());
+    }
+
+    /**
+     * Test that the retry of a request waits for the rate limiter of the client.
+     */
+    @Test
+    public void testRetryWaitsForRate() throws Exception {
+
+        PDBeApiClient limited = new PDBeApiClient("http://localhost:" + server.getAddress().getPort(), 2, 2, 1,
+                RateLimiter.create(4));
+        try {
+            assertEquals(MAPPING, limited.getAllIsoforms("3BSY").get());
+        } finally {
+            limited.close();
+        }
+        assertEquals(2, requests.get());
+        // the retry is sent a quarter of a second after the first attempt instead of after the backoff
+        assertTrue((times.get(1) - times.get(0)) / 1000000 >= 150);
+    }
+}
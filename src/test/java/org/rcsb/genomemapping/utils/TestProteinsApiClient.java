@@ -0,0 +1,157 @@
+package org.rcsb.genomemapping.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rcsb.geneprot.genomemapping.utils.ProteinsApiClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Class to test the ProteinsApiClient class against a local stub server
+ *
+ * @author Yana Valasatava
+ */
+public class TestProteinsApiClient {
+
+    private HttpServer server;
+    private ProteinsApiClient client;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(16));
+        server.createContext("/proteins/", exchange -> {
+
+            String path = exchange.getRequestURI().getPath();
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+
+            int status;
+            String body;
+            if (path.equals("/proteins/P1/isoforms.json")) {
+                status = 200;
+                body = "[{\"accession\":\"P1-1\"},{\"accession\":\"P1-2\"}]";
+            } else if (path.equals("/proteins/P2.json")) {
+                status = 200;
+                body = "{\"accession\":\"P2\"}";
+            } else if (path.equals("/proteins/P3/isoforms.json") && failures.getAndDecrement() > 0) {
+                status = 503;
+                body = "";
+            } else if (path.equals("/proteins/P3/isoforms.json")) {
+                status = 200;
+                body = "[{\"accession\":\"P3-1\"}]";
+            } else if (path.startsWith("/proteins/BAD")) {
+                status = 400;
+                body = "{\"errorMessage\":[\"Invalid accession\"]}";
+            } else if (path.startsWith("/proteins/Q") && path.endsWith("/isoforms.json")) {
+                status = 200;
+                body = "[]";
+            } else {
+                status = 404;
+                body = "";
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+
+        String url = "http://localhost:" + server.getAddress().getPort();
+        client = new ProteinsApiClient(url, 4, 3, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testIsoforms() throws Exception {
+        assertEquals("[{\"accession\":\"P1-1\"},{\"accession\":\"P1-2\"}]", client.getIsoforms("P1").get());
+        assertEquals(1, requests.get());
+    }
+
+    /**
+     * Test that an entry without isoforms is retrieved by itself.
+     */
+    @Test
+    public void testEntryWithoutIsoforms() throws Exception {
+        assertEquals("{\"accession\":\"P2\"}", client.getIsoforms("P2").get());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testNotFound() throws Exception {
+        assertNull(client.getIsoforms("BAD1").get());
+        assertNull(client.getIsoforms("P4").get());
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+
+        failures.set(2);
+        assertEquals("[{\"accession\":\"P3-1\"}]", client.getIsoforms("P3").get());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void testRetriesExhausted() throws Exception {
+
+        failures.set(10);
+        try {
+            client.getIsoforms("P3").get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(4, requests.get());
+    }
+
+    /**
+     * Test that no more than maxConcurrency requests are in flight when a whole batch is issued.
+     */
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            results.add(client.getIsoforms("Q" + i));
+        for (CompletableFuture<String> result : results)
+            assertEquals("[]", result.get());
+
+        assertEquals(40, requests.get());
+        assertTrue(maxInFlight.get() <= 4);
+        assertTrue(maxInFlight.get() > 1);
+    }
+}